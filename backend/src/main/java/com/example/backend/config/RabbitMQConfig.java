@@ -1,12 +1,20 @@
 package com.example.backend.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -14,6 +22,36 @@ public class RabbitMQConfig {
     public static final String NOTIFICATION_EXCHANGE = "notification.exchange";
     public static final String NOTIFICATION_ROUTING_KEY = "notification.routing.key";
 
+    // 批量通知：一条消息携带多个接收人，由消费者批量落库后逐个推送
+    public static final String NOTIFICATION_BATCH_QUEUE = "notification.batch.queue";
+    public static final String NOTIFICATION_BATCH_ROUTING_KEY = "notification.batch.routing.key";
+
+    // 异步选课：按课程ID分区，同一课程的请求落在同一个队列中顺序处理
+    public static final String ENROLLMENT_EXCHANGE = "enrollment.exchange";
+    public static final String ENROLLMENT_QUEUE_PREFIX = "enrollment.queue.";
+    public static final String ENROLLMENT_ROUTING_KEY_PREFIX = "enrollment.partition.";
+    // 无法处理的选课请求（消息无法解析、重投后仍失败）转入死信队列，不再重新入队
+    public static final String ENROLLMENT_DEAD_LETTER_EXCHANGE = "enrollment.dlx";
+    public static final String ENROLLMENT_DEAD_LETTER_QUEUE = "enrollment.dead.queue";
+    public static final String ENROLLMENT_DEAD_LETTER_ROUTING_KEY = "enrollment.dead";
+
+    // 课程索引同步：课程变更时经发件箱投递课程ID，消费者按数据库最新状态写入ES
+    public static final String COURSE_INDEX_QUEUE = "course.index.queue";
+    public static final String COURSE_INDEX_EXCHANGE = "course.index.exchange";
+    public static final String COURSE_INDEX_ROUTING_KEY = "course.index.routing.key";
+
+    @Value("${enrollment.async.partitions:4}")
+    private int enrollmentPartitions;
+
+    @Value("${enrollment.search.index-retry.max-attempts:8}")
+    private int indexRetryMaxAttempts;
+
+    @Value("${enrollment.search.index-retry.initial-interval-ms:1000}")
+    private long indexRetryInitialInterval;
+
+    @Value("${enrollment.search.index-retry.max-interval-ms:60000}")
+    private long indexRetryMaxInterval;
+
     @Bean
     public Queue notificationQueue() {
         return new Queue(NOTIFICATION_QUEUE, true);
@@ -31,6 +69,89 @@ public class RabbitMQConfig {
                 .with(NOTIFICATION_ROUTING_KEY);
     }
 
+    @Bean
+    public Queue notificationBatchQueue() {
+        return new Queue(NOTIFICATION_BATCH_QUEUE, true);
+    }
+
+    @Bean
+    public Binding notificationBatchBinding(Queue notificationBatchQueue, DirectExchange notificationExchange) {
+        return BindingBuilder.bind(notificationBatchQueue)
+                .to(notificationExchange)
+                .with(NOTIFICATION_BATCH_ROUTING_KEY);
+    }
+
+    @Bean
+    public DirectExchange enrollmentExchange() {
+        return new DirectExchange(ENROLLMENT_EXCHANGE);
+    }
+
+    @Bean
+    public Declarables enrollmentQueues(DirectExchange enrollmentExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int i = 0; i < enrollmentPartitions; i++) {
+            // 单活消费者：多实例部署时每个分区同一时刻只有一个消费者
+            Queue queue = QueueBuilder.durable(ENROLLMENT_QUEUE_PREFIX + i)
+                    .singleActiveConsumer()
+                    .deadLetterExchange(ENROLLMENT_DEAD_LETTER_EXCHANGE)
+                    .deadLetterRoutingKey(ENROLLMENT_DEAD_LETTER_ROUTING_KEY)
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(enrollmentExchange).with(ENROLLMENT_ROUTING_KEY_PREFIX + i));
+        }
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public DirectExchange enrollmentDeadLetterExchange() {
+        return new DirectExchange(ENROLLMENT_DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    public Queue enrollmentDeadLetterQueue() {
+        return new Queue(ENROLLMENT_DEAD_LETTER_QUEUE, true);
+    }
+
+    @Bean
+    public Binding enrollmentDeadLetterBinding(Queue enrollmentDeadLetterQueue, DirectExchange enrollmentDeadLetterExchange) {
+        return BindingBuilder.bind(enrollmentDeadLetterQueue)
+                .to(enrollmentDeadLetterExchange)
+                .with(ENROLLMENT_DEAD_LETTER_ROUTING_KEY);
+    }
+
+    @Bean
+    public Queue courseIndexQueue() {
+        return new Queue(COURSE_INDEX_QUEUE, true);
+    }
+
+    @Bean
+    public DirectExchange courseIndexExchange() {
+        return new DirectExchange(COURSE_INDEX_EXCHANGE);
+    }
+
+    @Bean
+    public Binding courseIndexBinding(Queue courseIndexQueue, DirectExchange courseIndexExchange) {
+        return BindingBuilder.bind(courseIndexQueue)
+                .to(courseIndexExchange)
+                .with(COURSE_INDEX_ROUTING_KEY);
+    }
+
+    /**
+     * 课程索引同步的消费者：ES不可用时在消费线程内指数退避重试，而不是立即重新入队空转
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory courseIndexListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(indexRetryMaxAttempts)
+                .backOffOptions(indexRetryInitialInterval, 2.0, indexRetryMaxInterval)
+                .recoverer(new RejectAndDontRequeueRecoverer())
+                .build());
+        return factory;
+    }
+
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
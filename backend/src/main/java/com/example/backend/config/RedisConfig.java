@@ -1,9 +1,14 @@
 package com.example.backend.config;
 
+import com.example.backend.service.CourseCacheService;
+import com.example.backend.service.CourseCatalogCacheService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -26,4 +31,23 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Redis pub/sub订阅：课程目录缓存和选课课程缓存的跨节点失效通知
+     * 关闭订阅时目录缓存仍按版本号定期检查，只是其他节点的修改要等本地缓存过期后才可见
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       CourseCatalogCacheService catalogCacheService,
+                                                                       CourseCacheService courseCacheService,
+                                                                       @Value("${enrollment.catalog-cache.subscribe:true}") boolean subscribe) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // 没有订阅频道时容器启动不会连接Redis
+        if (subscribe) {
+            container.addMessageListener(catalogCacheService, new ChannelTopic(CourseCatalogCacheService.INVALIDATE_CHANNEL));
+            container.addMessageListener(courseCacheService, new ChannelTopic(CourseCacheService.EVICT_CHANNEL));
+        }
+        return container;
+    }
 }
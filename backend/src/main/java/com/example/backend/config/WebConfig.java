@@ -1,8 +1,14 @@
 package com.example.backend.config;
 
+import com.example.backend.filter.IdempotencyFilter;
+import com.example.backend.interceptor.AdmissionInterceptor;
 import com.example.backend.interceptor.AuthInterceptor;
+import com.example.backend.interceptor.IdempotencyInterceptor;
 import com.example.backend.interceptor.PermissionInterceptor;
+import com.example.backend.service.IdempotencyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -15,6 +21,24 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private PermissionInterceptor permissionInterceptor;
 
+    @Autowired
+    private IdempotencyInterceptor idempotencyInterceptor;
+
+    @Autowired
+    private AdmissionInterceptor admissionInterceptor;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // 幂等过滤器只处理选课接口，其他请求不缓存请求体和响应体
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter() {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyService));
+        registration.addUrlPatterns("/api/enrollments", "/api/enrollments/*");
+        return registration;
+    }
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         // 认证拦截器：拦截所有API，排除登录、注册和验证码
@@ -28,5 +52,15 @@ public class WebConfig implements WebMvcConfigurer {
                 .addPathPatterns("/api/courses/**")
                 .addPathPatterns("/api/attachments/**")
                 .excludePathPatterns("/api/enrollments/**"); // 选课接口学生可用
+
+        // 选课/退课幂等：重复请求直接返回已保存的响应，放在准入控制之前，不占用处理名额
+        registry.addInterceptor(idempotencyInterceptor)
+                .addPathPatterns("/api/enrollments/**");
+
+        // 选课准入控制：选课高峰时限制同时处理的写请求数（GET请求在拦截器中直接放行），
+        // 票据轮询只读Redis，排课方案只读不写，不做限制
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns("/api/enrollments/**")
+                .excludePathPatterns("/api/enrollments/tickets/**", "/api/enrollments/plan");
     }
 }
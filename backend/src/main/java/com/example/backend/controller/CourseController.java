@@ -4,17 +4,24 @@ import com.example.backend.entity.User;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.dto.CourseCreateRequest;
 import com.example.backend.dto.CourseDTO;
+import com.example.backend.service.CourseCatalogCacheService;
+import com.example.backend.service.CourseSearchService;
 import com.example.backend.service.CourseService;
+import com.example.backend.service.PrerequisiteService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,14 +29,27 @@ import java.util.Map;
 @RequestMapping("/api/courses")
 public class CourseController {
 
+    private static final byte[] CATALOG_PREFIX = "{\"success\":true,\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CATALOG_OVERLAY = ",\"overlay\":".getBytes(StandardCharsets.UTF_8);
+
     @Autowired
     private CourseService courseService;
 
+    @Autowired
+    private CourseSearchService courseSearchService;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 获取课程列表
+     * 传cursor（第一页传空字符串）时使用游标分页，返回nextCursor，withTotal=true时才统计总数；否则按页码分页
      */
     @GetMapping
     public ResponseEntity<?> getCourses(
@@ -37,18 +57,34 @@ public class CourseController {
             @RequestParam(required = false, defaultValue = "ACTIVE") String status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal,
             HttpServletRequest request) {
 
         Long studentId = getStudentIdFromRequest(request);
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-
-        Page<CourseDTO> courses = courseService.getCourses(keyword, status, studentId, pageable);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", courses);
-
-        return ResponseEntity.ok(response);
+        // 课程页是所有学生共用的缓存字节，原样写入；已选标记和当前人数放在overlay中由前端合并
+        CourseCatalogCacheService.SharedPage courses;
+        if (cursor != null) {
+            courses = courseService.getCatalogSlice(keyword, status, cursor, size, withTotal);
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+            courses = courseService.getCatalogPage(keyword, status, pageable);
+        }
+        Map<String, Object> overlay = courseService.getCatalogOverlay(courses.courseIds(), studentId);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(courses.json().length + 256);
+        body.writeBytes(CATALOG_PREFIX);
+        body.writeBytes(courses.json());
+        body.writeBytes(CATALOG_OVERLAY);
+        try {
+            body.writeBytes(objectMapper.writeValueAsBytes(overlay));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化课程列表失败: " + e.getMessage());
+        }
+        body.write('}');
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body.toByteArray());
     }
 
     /**
@@ -66,6 +102,18 @@ public class CourseController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 获取课程的先修课程（直接和全部）
+     */
+    @GetMapping("/{id}/prerequisites")
+    public ResponseEntity<?> getPrerequisites(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", prerequisiteService.getPrerequisites(id));
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 创建课程（管理员）
      */
@@ -128,6 +176,21 @@ public class CourseController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 重建课程搜索索引（管理员）
+     */
+    @PostMapping("/search/reindex")
+    public ResponseEntity<?> reindexCourses() {
+        int count = courseSearchService.reindexAll();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "成功索引 " + count + " 门课程");
+        response.put("count", count);
+
+        return ResponseEntity.ok(response);
+    }
+
     private Long getUserIdFromRequest(HttpServletRequest request) {
         return (Long) request.getAttribute("userId");
     }
@@ -4,7 +4,17 @@ import com.example.backend.entity.User;
 import com.example.backend.repository.UserRepository;
 import com.example.backend.dto.CalendarEventDTO;
 import com.example.backend.dto.EnrollmentDTO;
+import com.example.backend.dto.EnrollmentResultDTO;
+import com.example.backend.dto.EnrollmentTicket;
+import com.example.backend.dto.PreferenceDTO;
+import com.example.backend.dto.ScheduleConflictDTO;
+import com.example.backend.dto.WaitlistDTO;
 import com.example.backend.service.CourseEnrollmentService;
+import com.example.backend.service.EnrollmentArchiveService;
+import com.example.backend.service.EnrollmentQueueService;
+import com.example.backend.service.LotteryService;
+import com.example.backend.service.SchedulePlanService;
+import com.example.backend.service.WaitlistService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -12,6 +22,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +34,21 @@ public class CourseEnrollmentController {
     @Autowired
     private CourseEnrollmentService enrollmentService;
 
+    @Autowired
+    private EnrollmentQueueService enrollmentQueueService;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private LotteryService lotteryService;
+
+    @Autowired
+    private SchedulePlanService schedulePlanService;
+
+    @Autowired
+    private EnrollmentArchiveService enrollmentArchiveService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -54,6 +80,157 @@ public class CourseEnrollmentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 批量选课
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> enrollCourses(@RequestBody Map<String, List<Long>> request,
+                                           HttpServletRequest httpRequest) {
+        List<Long> courseIds = request.get("courseIds");
+        if (courseIds == null || courseIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "课程ID不能为空"));
+        }
+
+        Long userId = getUserIdFromRequest(httpRequest);
+        Long studentId = getStudentIdFromRequest(httpRequest);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户，无法选课"));
+        }
+
+        List<EnrollmentResultDTO> results = enrollmentService.enrollCourses(courseIds, studentId, userId);
+        long successCount = results.stream().filter(EnrollmentResultDTO::isSuccess).count();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "成功选课" + successCount + "门，失败" + (results.size() - successCount) + "门");
+        response.put("data", results);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 换课：退掉fromCourseId并选上toCourseId，目标课程已满时原课程保留
+     */
+    @PostMapping("/swap")
+    public ResponseEntity<?> swapCourse(@RequestBody Map<String, Long> request,
+                                        HttpServletRequest httpRequest) {
+        Long fromCourseId = request.get("fromCourseId");
+        Long toCourseId = request.get("toCourseId");
+        if (fromCourseId == null || toCourseId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "课程ID不能为空"));
+        }
+
+        Long userId = getUserIdFromRequest(httpRequest);
+        Long studentId = getStudentIdFromRequest(httpRequest);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户，无法选课"));
+        }
+
+        EnrollmentDTO enrollment = enrollmentService.swapCourse(fromCourseId, toCourseId, studentId, userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "换课成功");
+        response.put("data", enrollment);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 排课方案：根据意向课程给出互不冲突的选课组合（只读，不会选课）
+     * 请求体：{courseIds: [...], sort: "credits"|"freeDays", limit: 10}
+     */
+    @PostMapping("/plan")
+    public ResponseEntity<?> planSchedule(@RequestBody Map<String, Object> request,
+                                          HttpServletRequest httpRequest) {
+        Long studentId = getStudentIdFromRequest(httpRequest);
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户，无法排课"));
+        }
+
+        List<Long> courseIds = new ArrayList<>();
+        if (request.get("courseIds") instanceof List<?> list) {
+            for (Object id : list) {
+                if (id instanceof Number number) {
+                    courseIds.add(number.longValue());
+                }
+            }
+        }
+        String sort = request.get("sort") instanceof String value ? value : "credits";
+        Integer limit = request.get("limit") instanceof Number number ? number.intValue() : null;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", schedulePlanService.plan(courseIds, sort, limit, studentId));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 选课冲突预览：一次返回待选课程之间及与已选课程的全部时间冲突
+     */
+    @GetMapping("/conflicts")
+    public ResponseEntity<?> previewConflicts(@RequestParam List<Long> courseIds, HttpServletRequest request) {
+        Long studentId = getStudentIdFromRequest(request);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户"));
+        }
+
+        List<ScheduleConflictDTO> conflicts = enrollmentService.previewConflicts(courseIds, studentId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", conflicts.isEmpty() ? "没有时间冲突" : "发现" + conflicts.size() + "处时间冲突");
+        response.put("data", conflicts);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 异步选课（排队），立即返回票据
+     */
+    @PostMapping("/async")
+    public ResponseEntity<?> enrollCourseAsync(@RequestBody Map<String, Long> request,
+                                               HttpServletRequest httpRequest) {
+        Long courseId = request.get("courseId");
+        if (courseId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "课程ID不能为空"));
+        }
+
+        Long userId = getUserIdFromRequest(httpRequest);
+        Long studentId = getStudentIdFromRequest(httpRequest);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户，无法选课"));
+        }
+
+        EnrollmentTicket ticket = enrollmentQueueService.submit(courseId, studentId, userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "选课请求已提交，正在排队处理");
+        response.put("data", ticket);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 查询异步选课结果
+     */
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<?> getTicket(@PathVariable String ticketId, HttpServletRequest request) {
+        Long userId = getUserIdFromRequest(request);
+        EnrollmentTicket ticket = enrollmentQueueService.getTicket(ticketId, userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", ticket);
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 退课
      */
@@ -74,6 +251,120 @@ public class CourseEnrollmentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 加入候补名单
+     */
+    @PostMapping("/waitlist")
+    public ResponseEntity<?> joinWaitlist(@RequestBody Map<String, Long> request,
+                                          HttpServletRequest httpRequest) {
+        Long courseId = request.get("courseId");
+        if (courseId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "课程ID不能为空"));
+        }
+
+        Long userId = getUserIdFromRequest(httpRequest);
+        Long studentId = getStudentIdFromRequest(httpRequest);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户"));
+        }
+
+        WaitlistDTO waitlist = waitlistService.join(courseId, studentId, userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "已加入候补，当前排在第" + waitlist.getPosition() + "位");
+        response.put("data", waitlist);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 退出候补名单
+     */
+    @DeleteMapping("/waitlist/{courseId}")
+    public ResponseEntity<?> leaveWaitlist(@PathVariable Long courseId, HttpServletRequest request) {
+        Long studentId = getStudentIdFromRequest(request);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户"));
+        }
+
+        waitlistService.leave(courseId, studentId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "已退出候补");
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取我的候补及排队位置
+     */
+    @GetMapping("/waitlist")
+    public ResponseEntity<?> getMyWaitlist(HttpServletRequest request) {
+        Long studentId = getStudentIdFromRequest(request);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户"));
+        }
+
+        List<WaitlistDTO> waitlist = waitlistService.getMyWaitlist(studentId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", waitlist);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 填报抽签志愿（按顺序，覆盖尚未抽签的志愿）
+     */
+    @PutMapping("/preferences")
+    public ResponseEntity<?> submitPreferences(@RequestBody Map<String, List<Long>> request,
+                                               HttpServletRequest httpRequest) {
+        List<Long> courseIds = request.get("courseIds");
+        if (courseIds == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "课程ID不能为空"));
+        }
+
+        Long userId = getUserIdFromRequest(httpRequest);
+        Long studentId = getStudentIdFromRequest(httpRequest);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户，无法选课"));
+        }
+
+        List<PreferenceDTO> preferences = lotteryService.submitPreferences(courseIds, studentId, userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "志愿已保存");
+        response.put("data", preferences);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 我的抽签志愿及结果
+     */
+    @GetMapping("/preferences")
+    public ResponseEntity<?> getMyPreferences(HttpServletRequest request) {
+        Long studentId = getStudentIdFromRequest(request);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", lotteryService.getMyPreferences(studentId));
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 获取我的选课列表
      */
@@ -94,6 +385,24 @@ public class CourseEnrollmentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 成绩单：当前和往届已选、已修完的课程
+     */
+    @GetMapping("/transcript")
+    public ResponseEntity<?> getTranscript(HttpServletRequest request) {
+        Long studentId = getStudentIdFromRequest(request);
+
+        if (studentId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "您不是学生用户"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", enrollmentArchiveService.getTranscript(studentId));
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 获取课程日历数据
      */
@@ -0,0 +1,420 @@
+package com.example.backend.controller;
+
+import com.example.backend.entity.Course;
+import com.example.backend.service.ClassEnrollmentService;
+import com.example.backend.service.CourseCacheService;
+import com.example.backend.service.EnrollmentArchiveService;
+import com.example.backend.service.IdempotencyService;
+import com.example.backend.service.LotteryService;
+import com.example.backend.service.OutboxService;
+import com.example.backend.service.PrerequisiteService;
+import com.example.backend.service.SeatCountReconcileService;
+import com.example.backend.service.SeatReservationService;
+import com.example.backend.service.SeatShardService;
+import com.example.backend.service.StudentLoadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/enrollments")
+public class EnrollmentAdminController {
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private SeatShardService seatShardService;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private LotteryService lotteryService;
+
+    @Autowired
+    private ClassEnrollmentService classEnrollmentService;
+
+    @Autowired
+    private SeatCountReconcileService seatCountReconcileService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    @Autowired
+    private EnrollmentArchiveService enrollmentArchiveService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    /**
+     * 选课名额对账（Redis与数据库已选人数比对）
+     */
+    @GetMapping("/seats/reconcile")
+    public ResponseEntity<?> checkSeats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        List<Map<String, Object>> drifts = seatReservationService.reconcile(false);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", drifts);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 以数据库为准修复Redis中的剩余名额
+     */
+    @PostMapping("/seats/reconcile")
+    public ResponseEntity<?> repairSeats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        List<Map<String, Object>> drifts = seatReservationService.reconcile(true);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "已修复" + drifts.size() + "门课程的名额");
+        response.put("data", drifts);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 课程选课人数（current_students）对账指标
+     */
+    @GetMapping("/seats/drift")
+    public ResponseEntity<?> seatDriftStats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", seatCountReconcileService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 立即执行一轮选课人数对账并修正
+     */
+    @PostMapping("/seats/drift/repair")
+    public ResponseEntity<?> repairSeatDrift(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, Object> result = seatCountReconcileService.reconcile();
+            if (Boolean.TRUE.equals(result.get("skipped"))) {
+                response.put("success", false);
+                response.put("message", "选课人数对账正在其他节点执行");
+                return ResponseEntity.badRequest().body(response);
+            }
+            response.put("success", true);
+            response.put("message", "已修正" + result.get("repaired") + "门课程");
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 重建全部学生的选课负荷缓存（已选门数和学分合计）
+     */
+    @PostMapping("/load/rebuild")
+    public ResponseEntity<?> rebuildStudentLoads(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int students = studentLoadService.rebuildAll();
+            response.put("success", true);
+            response.put("message", "已重建" + students + "名学生的选课负荷");
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 为热门课程启用名额分片（已启用时按新分片数重新分配）
+     */
+    @PutMapping("/seats/shards/{courseId}")
+    public ResponseEntity<?> enableShards(@PathVariable Long courseId,
+                                          @RequestParam(defaultValue = "8") int slots,
+                                          HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Course course = seatShardService.enableSharding(courseId, slots);
+            response.put("success", true);
+            response.put("message", "已启用名额分片");
+            response.put("data", Map.of("courseId", courseId, "seatShards", course.getSeatShards()));
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 关闭课程的名额分片
+     */
+    @DeleteMapping("/seats/shards/{courseId}")
+    public ResponseEntity<?> disableShards(@PathVariable Long courseId, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            seatShardService.disableSharding(courseId);
+            response.put("success", true);
+            response.put("message", "已关闭名额分片");
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 统一设置本学期选课时间窗口（作用于所有ACTIVE课程）
+     */
+    @PutMapping("/window")
+    public ResponseEntity<?> updateEnrollWindow(@RequestBody Map<String, String> body, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LocalDateTime startAt = body.get("startAt") != null ? LocalDateTime.parse(body.get("startAt")) : null;
+            LocalDateTime endAt = body.get("endAt") != null ? LocalDateTime.parse(body.get("endAt")) : null;
+            int updated = courseCacheService.updateEnrollWindow(startAt, endAt);
+            response.put("success", true);
+            response.put("message", "已更新" + updated + "门课程的选课时间");
+            return ResponseEntity.ok(response);
+        } catch (DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", "时间格式错误");
+            return ResponseEntity.badRequest().body(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 立即预热本节点的选课缓存
+     */
+    @PostMapping("/cache/warm")
+    public ResponseEntity<?> warmCache(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        int count = courseCacheService.warmUp();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "已预热" + count + "门课程");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 幂等去重命中统计（当前节点）
+     */
+    @GetMapping("/idempotency/stats")
+    public ResponseEntity<?> idempotencyStats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", idempotencyService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 立即对选课已结束的抽签课程执行抽签
+     */
+    @PostMapping("/lottery/run")
+    public ResponseEntity<?> runLottery(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, Object> stats = lotteryService.runLottery();
+            response.put("success", true);
+            response.put("message", "抽签完成");
+            response.put("data", stats);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 按班级批量选课：将班级全部学生选入必修课
+     */
+    @PostMapping("/class")
+    public ResponseEntity<?> enrollClass(@RequestBody Map<String, Long> body, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Long classId = body.get("classId");
+        Long courseId = body.get("courseId");
+        if (classId == null || courseId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "班级ID和课程ID不能为空"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, Object> stats = classEnrollmentService.enrollClass(classId, courseId);
+            response.put("success", true);
+            response.put("message", "已为" + stats.get("enrolled") + "名学生选课");
+            response.put("data", stats);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 添加先修关系：选修courseId前需修完prerequisiteId
+     */
+    @PostMapping("/prerequisites")
+    public ResponseEntity<?> addPrerequisite(@RequestBody Map<String, Long> body, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Long courseId = body.get("courseId");
+        Long prerequisiteId = body.get("prerequisiteId");
+        if (courseId == null || prerequisiteId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "课程ID和先修课程ID不能为空"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            prerequisiteService.addPrerequisite(courseId, prerequisiteId);
+            response.put("success", true);
+            response.put("message", "先修关系已添加");
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 删除先修关系
+     */
+    @DeleteMapping("/prerequisites")
+    public ResponseEntity<?> removePrerequisite(@RequestParam Long courseId, @RequestParam Long prerequisiteId,
+                                                HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            prerequisiteService.removePrerequisite(courseId, prerequisiteId);
+            response.put("success", true);
+            response.put("message", "先修关系已删除");
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 立即归档已结课课程的选课记录
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<?> archiveEnrollments(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, Object> result = enrollmentArchiveService.archive();
+            response.put("success", true);
+            response.put("message", "已归档" + result.get("courses") + "门课程的" + result.get("archived") + "条选课记录");
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 发件箱投递统计（累计值为当前节点）
+     */
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<?> outboxStats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return forbidden();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", outboxService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    private boolean isAdmin(HttpServletRequest request) {
+        return "ADMIN".equals(request.getAttribute("role"));
+    }
+
+    private ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("success", false, "message", "权限不足，仅管理员可操作"));
+    }
+}
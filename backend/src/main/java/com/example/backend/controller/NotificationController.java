@@ -1,5 +1,6 @@
 package com.example.backend.controller;
 
+import com.example.backend.dto.CursorPage;
 import com.example.backend.dto.NotificationDTO;
 import com.example.backend.service.NotificationService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,12 +19,21 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    /**
+     * 获取通知列表：传cursor（第一页传空字符串）时使用游标分页，withTotal=true时才统计总数；否则按页码分页
+     */
     @GetMapping
     public ResponseEntity<?> getNotifications(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal,
             HttpServletRequest request) {
         Long userId = (Long) request.getAttribute("userId");
+        if (cursor != null) {
+            CursorPage<NotificationDTO> notifications = notificationService.getNotifications(userId, cursor, size, withTotal);
+            return ResponseEntity.ok(Map.of("success", true, "data", notifications));
+        }
         Page<NotificationDTO> notifications = notificationService.getNotifications(
             userId, PageRequest.of(page, size));
         return ResponseEntity.ok(Map.of("success", true, "data", notifications));
@@ -34,15 +34,23 @@ public class StudentController {
     }
 
     // 获取列表：支持 ?keyword=xxx&className=xxx 查询
+    // 传cursor（第一页传空字符串）时按id游标分页，返回nextCursor，withTotal=true时才统计总数
     @GetMapping
-    public List<StudentDTO> getAllStudents(
+    public Object getAllStudents(
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) String className,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
             HttpServletRequest request) {
 
         String role = (String) request.getAttribute("role");
         boolean isAdmin = "ADMIN".equals(role);
 
+        if (cursor != null) {
+            return studentService.getStudentPage(className, keyword, cursor, size, withTotal, isAdmin);
+        }
+
         List<Student> students;
 
         // 如果指定了班级
@@ -75,8 +75,13 @@ public class UserController {
     }
 
     // 获取所有用户列表（仅管理员）
+    // 传cursor（第一页传空字符串）时按注册时间倒序游标分页，withTotal=true时才统计总数
     @GetMapping("/list")
-    public Map<String, Object> getUserList(HttpServletRequest request) {
+    public Map<String, Object> getUserList(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            HttpServletRequest request) {
         String role = (String) request.getAttribute("role");
         Map<String, Object> result = new HashMap<>();
 
@@ -88,7 +93,7 @@ public class UserController {
 
         try {
             result.put("success", true);
-            result.put("data", userService.getAllUsers());
+            result.put("data", cursor != null ? userService.getUserPage(cursor, size, withTotal) : userService.getAllUsers());
         } catch (Exception e) {
             result.put("success", false);
             result.put("message", e.getMessage());
@@ -4,6 +4,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class CourseCreateRequest {
@@ -31,6 +32,12 @@ public class CourseCreateRequest {
 
     private LocalDate endDate;
 
+    private LocalDateTime enrollStartAt;
+
+    private LocalDateTime enrollEndAt;
+
+    private String enrollMode = "FCFS";
+
     private String coverImage;
 
     private List<ScheduleDTO> schedules;
@@ -108,6 +115,30 @@ public class CourseCreateRequest {
         this.endDate = endDate;
     }
 
+    public LocalDateTime getEnrollStartAt() {
+        return enrollStartAt;
+    }
+
+    public void setEnrollStartAt(LocalDateTime enrollStartAt) {
+        this.enrollStartAt = enrollStartAt;
+    }
+
+    public LocalDateTime getEnrollEndAt() {
+        return enrollEndAt;
+    }
+
+    public void setEnrollEndAt(LocalDateTime enrollEndAt) {
+        this.enrollEndAt = enrollEndAt;
+    }
+
+    public String getEnrollMode() {
+        return enrollMode;
+    }
+
+    public void setEnrollMode(String enrollMode) {
+        this.enrollMode = enrollMode;
+    }
+
     public String getCoverImage() {
         return coverImage;
     }
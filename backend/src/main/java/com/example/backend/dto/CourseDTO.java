@@ -19,6 +19,9 @@ public class CourseDTO {
     private String status;
     private LocalDate startDate;
     private LocalDate endDate;
+    private LocalDateTime enrollStartAt;
+    private LocalDateTime enrollEndAt;
+    private String enrollMode;
     private String coverImage;
     private LocalDateTime createdAt;
     private List<ScheduleDTO> schedules;
@@ -39,6 +42,9 @@ public class CourseDTO {
         dto.setStatus(course.getStatus());
         dto.setStartDate(course.getStartDate());
         dto.setEndDate(course.getEndDate());
+        dto.setEnrollStartAt(course.getEnrollStartAt());
+        dto.setEnrollEndAt(course.getEnrollEndAt());
+        dto.setEnrollMode(course.getEnrollMode());
         dto.setCoverImage(course.getCoverImage());
         dto.setCreatedAt(course.getCreatedAt());
         return dto;
@@ -141,6 +147,30 @@ public class CourseDTO {
         this.endDate = endDate;
     }
 
+    public LocalDateTime getEnrollStartAt() {
+        return enrollStartAt;
+    }
+
+    public void setEnrollStartAt(LocalDateTime enrollStartAt) {
+        this.enrollStartAt = enrollStartAt;
+    }
+
+    public LocalDateTime getEnrollEndAt() {
+        return enrollEndAt;
+    }
+
+    public void setEnrollEndAt(LocalDateTime enrollEndAt) {
+        this.enrollEndAt = enrollEndAt;
+    }
+
+    public String getEnrollMode() {
+        return enrollMode;
+    }
+
+    public void setEnrollMode(String enrollMode) {
+        this.enrollMode = enrollMode;
+    }
+
     public String getCoverImage() {
         return coverImage;
     }
@@ -1,6 +1,7 @@
 package com.example.backend.dto;
 
 import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.entity.CourseEnrollmentArchive;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -29,6 +30,17 @@ public class EnrollmentDTO {
         return dto;
     }
 
+    public static EnrollmentDTO fromArchive(CourseEnrollmentArchive archived) {
+        EnrollmentDTO dto = new EnrollmentDTO();
+        dto.setId(archived.getId());
+        dto.setCourseId(archived.getCourseId());
+        dto.setStudentId(archived.getStudentId());
+        dto.setEnrollmentStatus(archived.getEnrollmentStatus());
+        dto.setEnrolledAt(archived.getEnrolledAt());
+        dto.setScore(archived.getScore());
+        return dto;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,22 @@
+package com.example.backend.dto;
+
+import java.io.Serializable;
+
+public class EnrollmentRequestMessage implements Serializable {
+    private String ticketId;
+    private Long courseId;
+    private Long studentId;
+    private Long userId;
+
+    public String getTicketId() { return ticketId; }
+    public void setTicketId(String ticketId) { this.ticketId = ticketId; }
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public Long getStudentId() { return studentId; }
+    public void setStudentId(Long studentId) { this.studentId = studentId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+}
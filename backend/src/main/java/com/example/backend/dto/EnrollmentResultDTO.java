@@ -0,0 +1,43 @@
+package com.example.backend.dto;
+
+public class EnrollmentResultDTO {
+    private Long courseId;
+    private String courseName;
+    private boolean success;
+    private String message;
+    private EnrollmentDTO enrollment;
+
+    public static EnrollmentResultDTO success(EnrollmentDTO enrollment) {
+        EnrollmentResultDTO result = new EnrollmentResultDTO();
+        result.setCourseId(enrollment.getCourseId());
+        result.setCourseName(enrollment.getCourseName());
+        result.setSuccess(true);
+        result.setMessage("选课成功");
+        result.setEnrollment(enrollment);
+        return result;
+    }
+
+    public static EnrollmentResultDTO failure(Long courseId, String courseName, String message) {
+        EnrollmentResultDTO result = new EnrollmentResultDTO();
+        result.setCourseId(courseId);
+        result.setCourseName(courseName);
+        result.setSuccess(false);
+        result.setMessage(message);
+        return result;
+    }
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public String getCourseName() { return courseName; }
+    public void setCourseName(String courseName) { this.courseName = courseName; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public EnrollmentDTO getEnrollment() { return enrollment; }
+    public void setEnrollment(EnrollmentDTO enrollment) { this.enrollment = enrollment; }
+}
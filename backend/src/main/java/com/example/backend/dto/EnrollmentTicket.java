@@ -0,0 +1,38 @@
+package com.example.backend.dto;
+
+import java.io.Serializable;
+
+public class EnrollmentTicket implements Serializable {
+    private String ticketId;
+    private Long userId;
+    private Long courseId;
+    private String status; // QUEUED排队中/SUCCESS成功/FAILED失败
+    private String message;
+    private Long enrollmentId;
+    private Long createdAt; // 毫秒时间戳
+    private Long finishedAt;
+
+    public String getTicketId() { return ticketId; }
+    public void setTicketId(String ticketId) { this.ticketId = ticketId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Long getEnrollmentId() { return enrollmentId; }
+    public void setEnrollmentId(Long enrollmentId) { this.enrollmentId = enrollmentId; }
+
+    public Long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Long createdAt) { this.createdAt = createdAt; }
+
+    public Long getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Long finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -1,6 +1,7 @@
 package com.example.backend.dto;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class NotificationMessage implements Serializable {
     private Long userId;
@@ -8,6 +9,7 @@ public class NotificationMessage implements Serializable {
     private String content;
     private String type;
     private Long relatedId;
+    private List<Long> userIds; // 批量通知的接收人，单条通知时为空
 
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
@@ -23,4 +25,7 @@ public class NotificationMessage implements Serializable {
 
     public Long getRelatedId() { return relatedId; }
     public void setRelatedId(Long relatedId) { this.relatedId = relatedId; }
+
+    public List<Long> getUserIds() { return userIds; }
+    public void setUserIds(List<Long> userIds) { this.userIds = userIds; }
 }
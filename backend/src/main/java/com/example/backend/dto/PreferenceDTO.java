@@ -0,0 +1,20 @@
+package com.example.backend.dto;
+
+public class PreferenceDTO {
+    private Long courseId;
+    private String courseName;
+    private Integer rank; // 志愿顺序，从1开始
+    private String status; // PENDING/ALLOCATED/REJECTED
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public String getCourseName() { return courseName; }
+    public void setCourseName(String courseName) { this.courseName = courseName; }
+
+    public Integer getRank() { return rank; }
+    public void setRank(Integer rank) { this.rank = rank; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+}
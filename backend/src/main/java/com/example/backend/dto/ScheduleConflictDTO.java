@@ -0,0 +1,44 @@
+package com.example.backend.dto;
+
+public class ScheduleConflictDTO {
+    private Long courseId; // 待选课程
+    private String courseName;
+    private Long conflictCourseId; // 与之冲突的课程
+    private String conflictCourseName;
+    private Boolean conflictEnrolled; // 冲突课程是否为已选课程（否则为本次待选课程）
+    private Integer dayOfWeek;
+    private String dayName;
+    private Integer sectionStart;
+    private Integer sectionEnd;
+    private String weeks; // 重叠的周次，如 "1-8,10"
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public String getCourseName() { return courseName; }
+    public void setCourseName(String courseName) { this.courseName = courseName; }
+
+    public Long getConflictCourseId() { return conflictCourseId; }
+    public void setConflictCourseId(Long conflictCourseId) { this.conflictCourseId = conflictCourseId; }
+
+    public String getConflictCourseName() { return conflictCourseName; }
+    public void setConflictCourseName(String conflictCourseName) { this.conflictCourseName = conflictCourseName; }
+
+    public Boolean getConflictEnrolled() { return conflictEnrolled; }
+    public void setConflictEnrolled(Boolean conflictEnrolled) { this.conflictEnrolled = conflictEnrolled; }
+
+    public Integer getDayOfWeek() { return dayOfWeek; }
+    public void setDayOfWeek(Integer dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+
+    public String getDayName() { return dayName; }
+    public void setDayName(String dayName) { this.dayName = dayName; }
+
+    public Integer getSectionStart() { return sectionStart; }
+    public void setSectionStart(Integer sectionStart) { this.sectionStart = sectionStart; }
+
+    public Integer getSectionEnd() { return sectionEnd; }
+    public void setSectionEnd(Integer sectionEnd) { this.sectionEnd = sectionEnd; }
+
+    public String getWeeks() { return weeks; }
+    public void setWeeks(String weeks) { this.weeks = weeks; }
+}
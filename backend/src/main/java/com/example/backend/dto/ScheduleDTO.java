@@ -49,6 +49,20 @@ public class ScheduleDTO {
         LocalTime.of(22, 40)
     };
 
+    /**
+     * 获取节次开始时间，节次无效返回null
+     */
+    public static LocalTime getSectionStartTime(int section) {
+        return section >= 1 && section <= 12 ? SECTION_START_TIMES[section] : null;
+    }
+
+    /**
+     * 获取节次结束时间，节次无效返回null
+     */
+    public static LocalTime getSectionEndTime(int section) {
+        return section >= 1 && section <= 12 ? SECTION_END_TIMES[section] : null;
+    }
+
     public static ScheduleDTO fromEntity(CourseSchedule schedule) {
         ScheduleDTO dto = new ScheduleDTO();
         dto.setId(schedule.getId());
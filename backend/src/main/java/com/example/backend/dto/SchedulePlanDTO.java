@@ -0,0 +1,23 @@
+package com.example.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class SchedulePlanDTO {
+    private List<Long> courseIds; // 方案中的意向课程（不含已选课程）
+    private List<String> courseNames;
+    private BigDecimal totalCredit; // 方案课程的学分合计
+    private Integer freeDays; // 加上已选课程后周一至周五没有课的天数
+
+    public List<Long> getCourseIds() { return courseIds; }
+    public void setCourseIds(List<Long> courseIds) { this.courseIds = courseIds; }
+
+    public List<String> getCourseNames() { return courseNames; }
+    public void setCourseNames(List<String> courseNames) { this.courseNames = courseNames; }
+
+    public BigDecimal getTotalCredit() { return totalCredit; }
+    public void setTotalCredit(BigDecimal totalCredit) { this.totalCredit = totalCredit; }
+
+    public Integer getFreeDays() { return freeDays; }
+    public void setFreeDays(Integer freeDays) { this.freeDays = freeDays; }
+}
@@ -0,0 +1,22 @@
+package com.example.backend.dto;
+
+import java.time.LocalDateTime;
+
+public class WaitlistDTO {
+    private Long courseId;
+    private String courseName;
+    private Long position; // 从1开始
+    private LocalDateTime joinedAt;
+
+    public Long getCourseId() { return courseId; }
+    public void setCourseId(Long courseId) { this.courseId = courseId; }
+
+    public String getCourseName() { return courseName; }
+    public void setCourseName(String courseName) { this.courseName = courseName; }
+
+    public Long getPosition() { return position; }
+    public void setPosition(Long position) { this.position = position; }
+
+    public LocalDateTime getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(LocalDateTime joinedAt) { this.joinedAt = joinedAt; }
+}
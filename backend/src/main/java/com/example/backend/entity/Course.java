@@ -6,7 +6,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "courses")
+@Table(name = "courses",
+       indexes = @Index(name = "idx_course_status_created", columnList = "status, created_at, id"))
 public class Course {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,6 +34,9 @@ public class Course {
     @Column(name = "current_students")
     private Integer currentStudents = 0;
 
+    @Column(name = "seat_shards")
+    private Integer seatShards = 0; // 名额分片数，0表示不分片
+
     @Column(name = "course_type", length = 20)
     private String courseType = "REQUIRED"; // REQUIRED必修/ELECTIVE选修
 
@@ -45,6 +49,18 @@ public class Course {
     @Column(name = "end_date")
     private LocalDate endDate;
 
+    @Column(name = "enroll_start_at")
+    private LocalDateTime enrollStartAt; // 选课开始时间，为空表示不限制
+
+    @Column(name = "enroll_end_at")
+    private LocalDateTime enrollEndAt; // 选课结束时间，为空表示不限制
+
+    @Column(name = "enroll_mode", length = 20)
+    private String enrollMode = "FCFS"; // FCFS先到先得/LOTTERY抽签
+
+    @Column(name = "lottery_drawn_at")
+    private LocalDateTime lotteryDrawnAt; // 抽签完成时间
+
     @Column(name = "cover_image", length = 500)
     private String coverImage;
 
@@ -133,6 +149,14 @@ public class Course {
         this.currentStudents = currentStudents;
     }
 
+    public Integer getSeatShards() {
+        return seatShards;
+    }
+
+    public void setSeatShards(Integer seatShards) {
+        this.seatShards = seatShards;
+    }
+
     public String getCourseType() {
         return courseType;
     }
@@ -165,6 +189,38 @@ public class Course {
         this.endDate = endDate;
     }
 
+    public LocalDateTime getEnrollStartAt() {
+        return enrollStartAt;
+    }
+
+    public void setEnrollStartAt(LocalDateTime enrollStartAt) {
+        this.enrollStartAt = enrollStartAt;
+    }
+
+    public LocalDateTime getEnrollEndAt() {
+        return enrollEndAt;
+    }
+
+    public void setEnrollEndAt(LocalDateTime enrollEndAt) {
+        this.enrollEndAt = enrollEndAt;
+    }
+
+    public String getEnrollMode() {
+        return enrollMode;
+    }
+
+    public void setEnrollMode(String enrollMode) {
+        this.enrollMode = enrollMode;
+    }
+
+    public LocalDateTime getLotteryDrawnAt() {
+        return lotteryDrawnAt;
+    }
+
+    public void setLotteryDrawnAt(LocalDateTime lotteryDrawnAt) {
+        this.lotteryDrawnAt = lotteryDrawnAt;
+    }
+
     public String getCoverImage() {
         return coverImage;
     }
@@ -6,7 +6,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "course_enrollments",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "student_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "student_id"}),
+       indexes = @Index(name = "idx_enrollment_student_status", columnList = "student_id, enrollment_status"))
 public class CourseEnrollment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,61 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "course_prerequisites",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "prerequisite_id"}),
+       indexes = @Index(name = "idx_prerequisite_prerequisite", columnList = "prerequisite_id"))
+public class CoursePrerequisite {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "prerequisite_id", nullable = false)
+    private Long prerequisiteId; // 选修course_id前需修完的课程
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getPrerequisiteId() {
+        return prerequisiteId;
+    }
+
+    public void setPrerequisiteId(Long prerequisiteId) {
+        this.prerequisiteId = prerequisiteId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
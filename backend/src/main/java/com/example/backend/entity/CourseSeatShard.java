@@ -0,0 +1,65 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "course_seat_shards",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"course_id", "slot"}))
+public class CourseSeatShard {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(nullable = false)
+    private Integer slot; // 分片序号 0 ~ N-1
+
+    @Column(nullable = false)
+    private Integer capacity = 0; // 该分片的名额
+
+    @Column(nullable = false)
+    private Integer used = 0; // 该分片已占用
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Integer getSlot() {
+        return slot;
+    }
+
+    public void setSlot(Integer slot) {
+        this.slot = slot;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
+    public Integer getUsed() {
+        return used;
+    }
+
+    public void setUsed(Integer used) {
+        this.used = used;
+    }
+}
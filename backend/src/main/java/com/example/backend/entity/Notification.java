@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+       indexes = @Index(name = "idx_notification_user_created", columnList = "user_id, created_at, id"),
+       uniqueConstraints = @UniqueConstraint(name = "uk_notification_message_user", columnNames = {"message_id", "user_id"}))
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,6 +27,10 @@ public class Notification {
     @Column(name = "related_id")
     private Long relatedId;
 
+    // 来源MQ消息ID（发件箱消息为outbox-{id}），用于重复投递时去重
+    @Column(name = "message_id", length = 64)
+    private String messageId;
+
     @Column(name = "is_read")
     private Boolean isRead = false;
 
@@ -46,6 +52,9 @@ public class Notification {
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
 
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
 
@@ -3,7 +3,8 @@ package com.example.backend.entity;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "students")
+@Table(name = "students",
+       indexes = @Index(name = "idx_student_class", columnList = "class_name, id"))
 public class Student {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+       indexes = @Index(name = "idx_user_created", columnList = "created_at, id"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,125 @@
+package com.example.backend.es;
+
+import com.example.backend.entity.Course;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.Setting;
+
+import java.time.ZoneId;
+
+/**
+ * 课程搜索索引
+ * 名称、教师和简介使用CJK二元分词（同时保留单字），不依赖IK等分词插件；课程编号按前缀匹配。
+ * 只用于查找课程ID，展示的数据仍从数据库读取
+ */
+@Document(indexName = "courses")
+@Setting(settingPath = "/es/course-settings.json")
+public class CourseDocument {
+
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Long)
+    private Long courseId;
+
+    @Field(type = FieldType.Text, analyzer = "course_code", searchAnalyzer = "course_code_search")
+    private String courseCode;
+
+    @Field(type = FieldType.Text, analyzer = "course_cjk")
+    private String courseName;
+
+    @Field(type = FieldType.Text, analyzer = "course_cjk")
+    private String teacherName;
+
+    @Field(type = FieldType.Text, analyzer = "course_cjk")
+    private String description;
+
+    @Field(type = FieldType.Keyword)
+    private String status;
+
+    // 创建时间（毫秒），与courseId一起作为排序和游标分页的依据
+    @Field(type = FieldType.Long)
+    private Long createdAtMillis;
+
+    public static CourseDocument fromEntity(Course course) {
+        CourseDocument document = new CourseDocument();
+        document.setId(course.getId().toString());
+        document.setCourseId(course.getId());
+        document.setCourseCode(course.getCourseCode());
+        document.setCourseName(course.getCourseName());
+        document.setTeacherName(course.getTeacherName());
+        document.setDescription(course.getDescription());
+        document.setStatus(course.getStatus());
+        if (course.getCreatedAt() != null) {
+            document.setCreatedAtMillis(course.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        return document;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public String getCourseCode() {
+        return courseCode;
+    }
+
+    public void setCourseCode(String courseCode) {
+        this.courseCode = courseCode;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public void setCourseName(String courseName) {
+        this.courseName = courseName;
+    }
+
+    public String getTeacherName() {
+        return teacherName;
+    }
+
+    public void setTeacherName(String teacherName) {
+        this.teacherName = teacherName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public void setCreatedAtMillis(Long createdAtMillis) {
+        this.createdAtMillis = createdAtMillis;
+    }
+}
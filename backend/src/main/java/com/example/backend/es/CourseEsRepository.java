@@ -0,0 +1,21 @@
+package com.example.backend.es;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.annotations.Query;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CourseEsRepository extends ElasticsearchRepository<CourseDocument, String> {
+
+    // 按状态过滤、关键词全文搜索：名称、教师、简介合并匹配全部分词，或课程编号前缀匹配
+    @Query("{\"bool\": {\"filter\": [{\"term\": {\"status\": \"?0\"}}], \"must\": [{\"multi_match\": {\"query\": \"?1\", \"type\": \"cross_fields\", \"operator\": \"and\", \"fields\": [\"courseName^3\", \"courseCode^3\", \"teacherName^2\", \"description\"]}}]}}")
+    Page<CourseDocument> searchByStatusAndKeyword(String status, String keyword, Pageable pageable);
+
+    // 游标分页：同上，只取(createdAtMillis, courseId)排在游标之后的课程
+    @Query("{\"bool\": {\"filter\": [{\"term\": {\"status\": \"?0\"}}, {\"bool\": {\"should\": [{\"range\": {\"createdAtMillis\": {\"lt\": ?2}}}, {\"bool\": {\"filter\": [{\"term\": {\"createdAtMillis\": ?2}}, {\"range\": {\"courseId\": {\"lt\": ?3}}}]}}], \"minimum_should_match\": 1}}], \"must\": [{\"multi_match\": {\"query\": \"?1\", \"type\": \"cross_fields\", \"operator\": \"and\", \"fields\": [\"courseName^3\", \"courseCode^3\", \"teacherName^2\", \"description\"]}}]}}")
+    List<CourseDocument> searchByStatusAndKeywordBefore(String status, String keyword, Long createdAtMillis, Long courseId, Pageable pageable);
+}
@@ -0,0 +1,70 @@
+package com.example.backend.interceptor;
+
+import com.example.backend.service.AdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.UUID;
+
+/**
+ * 选课准入拦截器：选课类写请求超出并发上限时立即返回429和排队位置，不占用后端线程和数据库连接
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String TOKEN_ATTR = "admissionToken";
+    private static final String START_ATTR = "admissionStart";
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 只限制选课、退课、换课等写操作，查看课表、成绩单等只读请求在高峰期也能正常访问
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method) || !admissionService.isEnabled()) {
+            return true;
+        }
+        // 管理员不受限制
+        if ("ADMIN".equals(request.getAttribute("role"))) {
+            return true;
+        }
+        Long userId = (Long) request.getAttribute("userId");
+        if (userId == null) {
+            return true;
+        }
+
+        String token = userId + ":" + UUID.randomUUID();
+        long result = admissionService.acquire(userId, token);
+        if (result == AdmissionService.ADMITTED) {
+            request.setAttribute(TOKEN_ATTR, token);
+            request.setAttribute(START_ATTR, System.currentTimeMillis());
+            return true;
+        }
+
+        response.setStatus(429);
+        response.setContentType("application/json;charset=UTF-8");
+        if (result == AdmissionService.REJECTED) {
+            response.setHeader("Retry-After", "10");
+            response.getWriter().write("{\"success\":false,\"message\":\"当前选课人数过多，请稍后再试\"}");
+        } else {
+            long waitSeconds = admissionService.estimateWaitSeconds(result);
+            response.setHeader("Retry-After", String.valueOf(waitSeconds));
+            response.getWriter().write("{\"success\":false,\"message\":\"正在排队，前方还有" + (result - 1) + "人\","
+                    + "\"data\":{\"position\":" + result + ",\"estimatedWaitSeconds\":" + waitSeconds + "}}");
+        }
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object token = request.getAttribute(TOKEN_ATTR);
+        if (token != null) {
+            long elapsed = System.currentTimeMillis() - (Long) request.getAttribute(START_ATTR);
+            admissionService.release((String) token, elapsed);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backend.interceptor;
+
+import com.example.backend.service.IdempotencyService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 幂等拦截器：带Idempotency-Key的重复选课/退课请求直接返回首次请求的响应
+ * 首次请求的响应由IdempotencyFilter在请求结束后保存
+ */
+@Component
+public class IdempotencyInterceptor implements HandlerInterceptor {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "OPTIONS".equals(method)) {
+            return true;
+        }
+        String key = request.getHeader(IdempotencyService.HEADER);
+        Long userId = (Long) request.getAttribute("userId");
+        if (key == null || key.isBlank() || userId == null) {
+            return true;
+        }
+
+        if (key.length() > MAX_KEY_LENGTH) {
+            response.setContentType("application/json;charset=UTF-8");
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"success\":false,\"message\":\"Idempotency-Key过长\"}");
+            return false;
+        }
+
+        // 请求体摘要由IdempotencyFilter在读取请求体前计算
+        String bodyHash = (String) request.getAttribute(IdempotencyService.BODY_HASH_ATTR);
+        String redisKey = idempotencyService.redisKey(userId, method, request.getRequestURI(),
+                bodyHash != null ? bodyHash : "", key);
+        IdempotencyService.StoredResponse stored = idempotencyService.begin(redisKey);
+        if (stored == null) {
+            request.setAttribute(IdempotencyService.KEY_ATTR, redisKey);
+            return true;
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        if (stored.pending()) {
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            response.getWriter().write("{\"success\":false,\"message\":\"请求正在处理中，请勿重复提交\"}");
+        } else {
+            response.setStatus(stored.status());
+            response.setHeader("Idempotent-Replayed", "true");
+            response.getWriter().write(stored.body());
+        }
+        return false;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -30,6 +31,10 @@ public interface CourseAttachmentRepository extends JpaRepository<CourseAttachme
     // 统计课程附件数量
     long countByCourseId(Long courseId);
 
+    // 按课程分组统计附件数量（courseId, count），课程列表一页只查一次
+    @Query("SELECT a.courseId, COUNT(a) FROM CourseAttachment a WHERE a.courseId IN :courseIds GROUP BY a.courseId")
+    List<Object[]> countGroupByCourseIdIn(@Param("courseIds") Collection<Long> courseIds);
+
     // 按文件名搜索
     @Query("SELECT a FROM CourseAttachment a WHERE a.fileName LIKE %:keyword%")
     List<CourseAttachment> searchByFileName(@Param("keyword") String keyword);
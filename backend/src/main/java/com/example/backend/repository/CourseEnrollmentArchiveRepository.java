@@ -0,0 +1,25 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CourseEnrollmentArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CourseEnrollmentArchiveRepository extends JpaRepository<CourseEnrollmentArchive, Long> {
+
+    List<CourseEnrollmentArchive> findByStudentIdAndEnrollmentStatusIn(Long studentId, Collection<String> statuses);
+
+    // 查询学生已修完的课程ID列表（先修检查）
+    @Query("SELECT a.courseId FROM CourseEnrollmentArchive a WHERE a.studentId = :studentId AND a.enrollmentStatus = 'COMPLETED'")
+    List<Long> findCompletedCourseIdsByStudentId(@Param("studentId") Long studentId);
+
+    // 批量读取学生已修完的课程（studentId, courseId）
+    @Query("SELECT a.studentId, a.courseId FROM CourseEnrollmentArchive a " +
+           "WHERE a.studentId IN :studentIds AND a.enrollmentStatus = 'COMPLETED'")
+    List<Object[]> findCompletedRowsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+}
@@ -8,11 +8,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollment, Long> {
+public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollment, Long>, CourseEnrollmentRepositoryCustom {
 
     // 查询学生的选课记录
     List<CourseEnrollment> findByStudentIdAndEnrollmentStatus(Long studentId, String status);
@@ -20,6 +21,9 @@ public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollme
     // 查询学生的所有选课记录
     List<CourseEnrollment> findByStudentId(Long studentId);
 
+    // 查询学生在指定课程中的选课记录
+    List<CourseEnrollment> findByStudentIdAndCourseIdIn(Long studentId, Collection<Long> courseIds);
+
     // 查询课程的选课学生
     Page<CourseEnrollment> findByCourseIdAndEnrollmentStatus(Long courseId, String status, Pageable pageable);
 
@@ -38,4 +42,45 @@ public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollme
     // 查询学生已选的课程ID列表
     @Query("SELECT e.courseId FROM CourseEnrollment e WHERE e.studentId = :studentId AND e.enrollmentStatus = 'ENROLLED'")
     List<Long> findEnrolledCourseIdsByStudentId(@Param("studentId") Long studentId);
+
+    // 查询学生已修完的课程ID列表（先修检查）
+    @Query("SELECT e.courseId FROM CourseEnrollment e WHERE e.studentId = :studentId AND e.enrollmentStatus = 'COMPLETED'")
+    List<Long> findCompletedCourseIdsByStudentId(@Param("studentId") Long studentId);
+
+    // 查询学生在指定课程中已选的课程ID（课程列表的已选标记）
+    @Query("SELECT e.courseId FROM CourseEnrollment e WHERE e.studentId = :studentId " +
+           "AND e.courseId IN :courseIds AND e.enrollmentStatus = 'ENROLLED'")
+    List<Long> findEnrolledCourseIdsByStudentIdAndCourseIdIn(@Param("studentId") Long studentId,
+                                                             @Param("courseIds") Collection<Long> courseIds);
+
+    // 查询课程已选学生ID列表
+    @Query("SELECT e.studentId FROM CourseEnrollment e WHERE e.courseId = :courseId AND e.enrollmentStatus = 'ENROLLED'")
+    List<Long> findEnrolledStudentIdsByCourseId(@Param("courseId") Long courseId);
+
+    // 按课程分段读取选课记录（id, studentId），用于归档
+    @Query("SELECT e.id, e.studentId FROM CourseEnrollment e WHERE e.courseId = :courseId ORDER BY e.id")
+    List<Object[]> findIdRowsByCourseId(@Param("courseId") Long courseId, Pageable pageable);
+
+    // 学生选课记录（含已修完），用于成绩单
+    List<CourseEnrollment> findByStudentIdAndEnrollmentStatusIn(Long studentId, Collection<String> statuses);
+
+    // 批量读取学生的选课记录（id, studentId, courseId, enrollmentStatus），用于抽签
+    @Query("SELECT e.id, e.studentId, e.courseId, e.enrollmentStatus FROM CourseEnrollment e WHERE e.studentId IN :studentIds")
+    List<Object[]> findStatusRowsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    // 按课程分组统计已选人数（courseId, count）
+    @Query("SELECT e.courseId, COUNT(e) FROM CourseEnrollment e " +
+           "WHERE e.courseId IN :courseIds AND e.enrollmentStatus = 'ENROLLED' GROUP BY e.courseId")
+    List<Object[]> countEnrolledGroupByCourseId(@Param("courseIds") Collection<Long> courseIds);
+
+    // 学生已选门数和学分合计（count, sum(credit)）
+    @Query("SELECT COUNT(e), COALESCE(SUM(c.credit), 0) FROM CourseEnrollment e, Course c " +
+           "WHERE c.id = e.courseId AND e.studentId = :studentId AND e.enrollmentStatus = 'ENROLLED'")
+    List<Object[]> sumLoadByStudentId(@Param("studentId") Long studentId);
+
+    // 按学生分组统计已选门数和学分合计（studentId, count, sum(credit)）
+    @Query("SELECT e.studentId, COUNT(e), COALESCE(SUM(c.credit), 0) FROM CourseEnrollment e, Course c " +
+           "WHERE c.id = e.courseId AND e.studentId IN :studentIds AND e.enrollmentStatus = 'ENROLLED' " +
+           "GROUP BY e.studentId")
+    List<Object[]> sumLoadGroupByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
 }
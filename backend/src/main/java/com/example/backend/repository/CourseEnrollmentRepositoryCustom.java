@@ -0,0 +1,18 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CourseEnrollment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CourseEnrollmentRepositoryCustom {
+
+    // JDBC批量插入选课记录（IDENTITY主键下JPA无法批量插入）
+    int batchInsert(List<CourseEnrollment> enrollments);
+
+    // JDBC批量把已退课的记录重新置为已选
+    int batchReactivate(List<Long> enrollmentIds);
+
+    // 把选课记录移入归档表（INSERT ... SELECT后删除），返回移动的条数；需在事务中调用
+    int moveToArchive(List<Long> enrollmentIds, LocalDateTime archivedAt);
+}
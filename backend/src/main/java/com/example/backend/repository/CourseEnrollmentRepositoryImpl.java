@@ -0,0 +1,91 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CourseEnrollment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+public class CourseEnrollmentRepositoryImpl implements CourseEnrollmentRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO course_enrollments (course_id, student_id, user_id, enrollment_status, " +
+            "enrolled_at, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String REACTIVATE_SQL =
+            "UPDATE course_enrollments SET enrollment_status = 'ENROLLED', enrolled_at = ?, dropped_at = NULL, " +
+            "updated_at = ? WHERE id = ?";
+
+    // 归档表主键沿用原记录ID，重复执行时忽略已归档的记录
+    private static final String ARCHIVE_SQL =
+            "INSERT IGNORE INTO course_enrollment_archive (id, course_id, student_id, user_id, enrollment_status, " +
+            "enrolled_at, dropped_at, score, created_at, updated_at, archived_at) " +
+            "SELECT id, course_id, student_id, user_id, enrollment_status, enrolled_at, dropped_at, score, " +
+            "created_at, updated_at, ? FROM course_enrollments WHERE id IN (%s)";
+
+    private static final String DELETE_SQL = "DELETE FROM course_enrollments WHERE id IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(List<CourseEnrollment> enrollments) {
+        if (enrollments.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, enrollments, 500, (ps, e) -> {
+            ps.setLong(1, e.getCourseId());
+            ps.setLong(2, e.getStudentId());
+            ps.setLong(3, e.getUserId());
+            ps.setString(4, e.getEnrollmentStatus());
+            ps.setTimestamp(5, e.getEnrolledAt() != null ? Timestamp.valueOf(e.getEnrolledAt()) : now);
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+        return sum(counts);
+    }
+
+    @Override
+    public int batchReactivate(List<Long> enrollmentIds) {
+        if (enrollmentIds.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(REACTIVATE_SQL, enrollmentIds, 500, (ps, id) -> {
+            ps.setTimestamp(1, now);
+            ps.setTimestamp(2, now);
+            ps.setLong(3, id);
+        });
+        return sum(counts);
+    }
+
+    @Override
+    public int moveToArchive(List<Long> enrollmentIds, LocalDateTime archivedAt) {
+        if (enrollmentIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(enrollmentIds.size(), "?"));
+        Object[] archiveArgs = new Object[enrollmentIds.size() + 1];
+        archiveArgs[0] = Timestamp.valueOf(archivedAt);
+        for (int i = 0; i < enrollmentIds.size(); i++) {
+            archiveArgs[i + 1] = enrollmentIds.get(i);
+        }
+        jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders), archiveArgs);
+        return jdbcTemplate.update(String.format(DELETE_SQL, placeholders), enrollmentIds.toArray());
+    }
+
+    private static int sum(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // 部分驱动批量执行时返回SUCCESS_NO_INFO(-2)
+                total += count >= 0 ? count : 1;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CoursePreference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CoursePreferenceRepository extends JpaRepository<CoursePreference, Long> {
+
+    List<CoursePreference> findByStudentIdOrderByPreferenceRankAsc(Long studentId);
+
+    @Modifying
+    @Query("DELETE FROM CoursePreference p WHERE p.studentId = :studentId AND p.courseId IN :courseIds")
+    int deleteByStudentIdAndCourseIdIn(@Param("studentId") Long studentId, @Param("courseIds") Collection<Long> courseIds);
+
+    // 抽签用：只取需要的列，避免加载大量实体
+    @Query("SELECT p.id, p.studentId, p.userId, p.courseId, p.preferenceRank FROM CoursePreference p " +
+           "WHERE p.courseId IN :courseIds AND p.status = 'PENDING'")
+    List<Object[]> findPendingRows(@Param("courseIds") Collection<Long> courseIds);
+
+    @Modifying
+    @Query("UPDATE CoursePreference p SET p.status = 'ALLOCATED' WHERE p.id IN :ids")
+    int markAllocated(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE CoursePreference p SET p.status = 'REJECTED' WHERE p.courseId IN :courseIds AND p.status = 'PENDING'")
+    int markRejected(@Param("courseIds") Collection<Long> courseIds);
+
+    @Modifying
+    @Query("DELETE FROM CoursePreference p WHERE p.courseId = :courseId")
+    void deleteByCourseId(@Param("courseId") Long courseId);
+}
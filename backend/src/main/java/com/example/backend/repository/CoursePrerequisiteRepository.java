@@ -0,0 +1,28 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CoursePrerequisite;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CoursePrerequisiteRepository extends JpaRepository<CoursePrerequisite, Long> {
+
+    boolean existsByCourseIdAndPrerequisiteId(Long courseId, Long prerequisiteId);
+
+    // 构建先修关系图：只取两列（courseId, prerequisiteId）
+    @Query("SELECT p.courseId, p.prerequisiteId FROM CoursePrerequisite p ORDER BY p.id")
+    List<Object[]> findAllRows();
+
+    @Modifying
+    @Query("DELETE FROM CoursePrerequisite p WHERE p.courseId = :courseId AND p.prerequisiteId = :prerequisiteId")
+    int deleteByCourseIdAndPrerequisiteId(@Param("courseId") Long courseId, @Param("prerequisiteId") Long prerequisiteId);
+
+    @Modifying
+    @Query("DELETE FROM CoursePrerequisite p WHERE p.courseId = :courseId OR p.prerequisiteId = :courseId")
+    void deleteByCourse(@Param("courseId") Long courseId);
+}
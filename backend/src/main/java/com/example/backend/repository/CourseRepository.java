@@ -3,17 +3,23 @@ package com.example.backend.repository;
 import com.example.backend.entity.Course;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CourseRepository extends JpaRepository<Course, Long> {
+public interface CourseRepository extends JpaRepository<Course, Long>, CourseRepositoryCustom {
 
     Optional<Course> findByCourseCode(String courseCode);
 
@@ -22,6 +28,25 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     // 按状态查询
     List<Course> findByStatus(String status);
 
+    // 是否有ACTIVE课程的选课窗口在指定时间之前开始且尚未结束（即将开放或正在开放）
+    @Query("SELECT COUNT(c) > 0 FROM Course c WHERE c.status = 'ACTIVE' AND c.enrollStartAt IS NOT NULL " +
+           "AND c.enrollStartAt <= :warmUntil AND (c.enrollEndAt IS NULL OR c.enrollEndAt > :now)")
+    boolean existsEnrollWindow(@Param("now") LocalDateTime now, @Param("warmUntil") LocalDateTime warmUntil);
+
+    // 统一设置所有ACTIVE课程的选课时间窗口（按学期开放选课）
+    @Transactional
+    @Modifying
+    @Query("UPDATE Course c SET c.enrollStartAt = :startAt, c.enrollEndAt = :endAt WHERE c.status = 'ACTIVE'")
+    int updateEnrollWindowForActive(@Param("startAt") LocalDateTime startAt, @Param("endAt") LocalDateTime endAt);
+
+    // 选课时间已结束、尚未抽签的抽签课程
+    @Query("SELECT c FROM Course c WHERE c.enrollMode = 'LOTTERY' AND c.status = 'ACTIVE' " +
+           "AND c.lotteryDrawnAt IS NULL AND c.enrollEndAt <= :now")
+    List<Course> findLotteryDue(@Param("now") LocalDateTime now);
+
+    // 查询启用了名额分片的课程
+    List<Course> findBySeatShardsGreaterThan(Integer seatShards);
+
     // 分页查询活跃课程
     Page<Course> findByStatus(String status, Pageable pageable);
 
@@ -30,15 +55,68 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
            "(c.courseName LIKE %:keyword% OR c.courseCode LIKE %:keyword% OR c.teacherName LIKE %:keyword%)")
     Page<Course> searchCourses(@Param("status") String status, @Param("keyword") String keyword, Pageable pageable);
 
-    // 乐观锁更新选课人数（防止超卖）
+    // 游标分页：按(createdAt, id)倒序取游标之后的课程，createdAt为null时从第一条开始，keyword为null时不过滤
+    @Query("SELECT c FROM Course c WHERE c.status = :status " +
+           "AND (:keyword IS NULL OR c.courseName LIKE %:keyword% OR c.courseCode LIKE %:keyword% OR c.teacherName LIKE %:keyword%) " +
+           "AND (:createdAt IS NULL OR c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Course> findPageBefore(@Param("status") String status, @Param("keyword") String keyword,
+                                @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT COUNT(c) FROM Course c WHERE c.status = :status " +
+           "AND (:keyword IS NULL OR c.courseName LIKE %:keyword% OR c.courseCode LIKE %:keyword% OR c.teacherName LIKE %:keyword%)")
+    long countCatalog(@Param("status") String status, @Param("keyword") String keyword);
+
+    // 加行锁读取课程（启用名额分片时使用）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Course c WHERE c.id = :courseId")
+    Optional<Course> findByIdForUpdate(@Param("courseId") Long courseId);
+
+    // 课程当前人数（id, currentStudents），目录缓存不保存人数，展示时单独读取
+    @Query("SELECT c.id, c.currentStudents FROM Course c WHERE c.id IN :ids")
+    List<Object[]> findCurrentStudentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 读取最新的名额分片数（不经过一级缓存）
+    @Query("SELECT c.seatShards FROM Course c WHERE c.id = :courseId")
+    Integer findSeatShardsById(@Param("courseId") Long courseId);
+
+    // 乐观锁更新选课人数（防止超卖），已启用名额分片的课程不走此路径
     @Modifying
     @Query("UPDATE Course c SET c.currentStudents = c.currentStudents + 1 " +
-           "WHERE c.id = :courseId AND (c.maxStudents = 0 OR c.currentStudents < c.maxStudents)")
+           "WHERE c.id = :courseId AND (c.maxStudents = 0 OR c.currentStudents < c.maxStudents) " +
+           "AND (c.seatShards IS NULL OR c.seatShards = 0)")
     int incrementCurrentStudents(@Param("courseId") Long courseId);
 
+    // 一次增加多个选课人数（按班级批量选课），剩余名额不足时不更新
+    @Modifying
+    @Query("UPDATE Course c SET c.currentStudents = c.currentStudents + :count " +
+           "WHERE c.id = :courseId AND (c.maxStudents = 0 OR c.currentStudents + :count <= c.maxStudents) " +
+           "AND (c.seatShards IS NULL OR c.seatShards = 0)")
+    int incrementCurrentStudentsBy(@Param("courseId") Long courseId, @Param("count") int count);
+
     // 减少选课人数（退课时）
     @Modifying
     @Query("UPDATE Course c SET c.currentStudents = c.currentStudents - 1 " +
            "WHERE c.id = :courseId AND c.currentStudents > 0")
     int decrementCurrentStudents(@Param("courseId") Long courseId);
+
+    // 按主键分段读取选课人数（对账用，已归档课程的选课记录不在主表中，跳过）：[id, currentStudents, seatShards, maxStudents]
+    @Query("SELECT c.id, c.currentStudents, c.seatShards, c.maxStudents FROM Course c WHERE c.id > :afterId " +
+           "AND (c.status IS NULL OR c.status <> 'ARCHIVED') ORDER BY c.id")
+    List<Object[]> findCountRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // 直接写入选课人数（Redis名额模式下回写）
+    @Transactional
+    @Modifying
+    @Query("UPDATE Course c SET c.currentStudents = :count WHERE c.id = :courseId")
+    int updateCurrentStudents(@Param("courseId") Long courseId, @Param("count") int count);
+
+    // 已结课且尚未归档（或归档中断、主表仍有选课记录）的课程
+    @Query("SELECT c.id FROM Course c WHERE c.endDate < :cutoff AND (c.status IS NULL OR c.status <> 'ARCHIVED' " +
+           "OR EXISTS (SELECT 1 FROM CourseEnrollment e WHERE e.courseId = c.id)) ORDER BY c.id")
+    List<Long> findIdsToArchive(@Param("cutoff") LocalDate cutoff);
+
+    @Modifying
+    @Query("UPDATE Course c SET c.status = 'ARCHIVED' WHERE c.id = :id")
+    int markArchived(@Param("id") Long id);
 }
@@ -0,0 +1,15 @@
+package com.example.backend.repository;
+
+import java.util.List;
+
+public interface CourseRepositoryCustom {
+
+    /**
+     * 对账发现的人数不一致：expected为读取时的current_students（-1表示NULL），actual为当时统计的已选人数
+     * 修正时按数据库重新统计，不直接写入actual
+     */
+    record CountFix(Long courseId, int expected, int actual) {}
+
+    // JDBC批量按选课记录重新统计courses.current_students，返回实际更新的行数
+    int batchFixCurrentStudents(List<CountFix> fixes);
+}
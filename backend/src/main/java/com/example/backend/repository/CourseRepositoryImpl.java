@@ -0,0 +1,34 @@
+package com.example.backend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class CourseRepositoryImpl implements CourseRepositoryCustom {
+
+    // 在同一条语句中重新统计并写入，持有courses行锁期间计数，不会与并发选课交错；已分片的课程跳过
+    private static final String FIX_SQL =
+            "UPDATE courses c SET c.current_students = (SELECT COUNT(*) FROM course_enrollments e " +
+            "WHERE e.course_id = c.id AND e.enrollment_status = 'ENROLLED') " +
+            "WHERE c.id = ? AND (c.seat_shards IS NULL OR c.seat_shards = 0)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchFixCurrentStudents(List<CountFix> fixes) {
+        if (fixes.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(FIX_SQL, fixes, 500, (ps, fix) -> ps.setLong(1, fix.courseId()));
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // 部分驱动批量执行时返回SUCCESS_NO_INFO(-2)，无法区分是否命中，按未知处理不计数
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+}
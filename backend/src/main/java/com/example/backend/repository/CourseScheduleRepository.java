@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +14,9 @@ public interface CourseScheduleRepository extends JpaRepository<CourseSchedule,
 
     List<CourseSchedule> findByCourseId(Long courseId);
 
+    // 批量查询多门课程的时间安排
+    List<CourseSchedule> findByCourseIdIn(Collection<Long> courseIds);
+
     // 按星期几查询
     List<CourseSchedule> findByDayOfWeek(Integer dayOfWeek);
 
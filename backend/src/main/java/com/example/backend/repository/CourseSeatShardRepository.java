@@ -0,0 +1,50 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CourseSeatShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CourseSeatShardRepository extends JpaRepository<CourseSeatShard, Long> {
+
+    List<CourseSeatShard> findByCourseIdOrderBySlotAsc(Long courseId);
+
+    // 锁住指定的未满分片，已被其他事务锁住时直接跳过，不等待行锁
+    @Query(value = "SELECT id FROM course_seat_shards WHERE course_id = :courseId AND slot = :slot " +
+                   "AND used < capacity FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockFreeSlot(@Param("courseId") Long courseId, @Param("slot") int slot);
+
+    // 锁住指定的有占用的分片（归还名额），规则同上
+    @Query(value = "SELECT id FROM course_seat_shards WHERE course_id = :courseId AND slot = :slot " +
+                   "AND used > 0 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockUsedSlot(@Param("courseId") Long courseId, @Param("slot") int slot);
+
+    @Query("SELECT COUNT(s) FROM CourseSeatShard s WHERE s.courseId = :courseId AND s.used < s.capacity")
+    long countFreeByCourseId(@Param("courseId") Long courseId);
+
+    @Query("SELECT COUNT(s) FROM CourseSeatShard s WHERE s.courseId = :courseId AND s.used > 0")
+    long countUsedByCourseId(@Param("courseId") Long courseId);
+
+    // 在已锁住的分片上占用一个名额
+    @Modifying
+    @Query("UPDATE CourseSeatShard s SET s.used = s.used + 1 WHERE s.id = :id AND s.used < s.capacity")
+    int claimShard(@Param("id") Long id);
+
+    // 在已锁住的分片上归还一个名额
+    @Modifying
+    @Query("UPDATE CourseSeatShard s SET s.used = s.used - 1 WHERE s.id = :id AND s.used > 0")
+    int releaseShard(@Param("id") Long id);
+
+    // 汇总课程已占名额
+    @Query("SELECT COALESCE(SUM(s.used), 0) FROM CourseSeatShard s WHERE s.courseId = :courseId")
+    long sumUsedByCourseId(@Param("courseId") Long courseId);
+
+    @Modifying
+    @Query("DELETE FROM CourseSeatShard s WHERE s.courseId = :courseId")
+    void deleteByCourseId(@Param("courseId") Long courseId);
+}
@@ -0,0 +1,41 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.CourseWaitlist;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CourseWaitlistRepository extends JpaRepository<CourseWaitlist, Long> {
+
+    // 队首（按(course_id, id)索引取第一条）
+    Optional<CourseWaitlist> findFirstByCourseIdOrderByIdAsc(Long courseId);
+
+    // 排在前面的人数（只扫描索引中位于前面的部分）
+    long countByCourseIdAndIdLessThan(Long courseId, Long id);
+
+    Optional<CourseWaitlist> findByCourseIdAndStudentId(Long courseId, Long studentId);
+
+    boolean existsByCourseIdAndStudentId(Long courseId, Long studentId);
+
+    List<CourseWaitlist> findByStudentIdOrderByIdAsc(Long studentId);
+
+    // 删除课程的候补名单
+    void deleteByCourseId(Long courseId);
+
+    // 学生已直接选上课程（单门、班级批量），移出该课程的候补名单
+    @Modifying
+    @Query("DELETE FROM CourseWaitlist w WHERE w.courseId = :courseId AND w.studentId IN :studentIds")
+    int deleteByCourseIdAndStudentIdIn(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    // 学生已直接选上若干门课程（购物车），移出这些课程的候补名单
+    @Modifying
+    @Query("DELETE FROM CourseWaitlist w WHERE w.studentId = :studentId AND w.courseId IN :courseIds")
+    int deleteByStudentIdAndCourseIdIn(@Param("studentId") Long studentId, @Param("courseIds") Collection<Long> courseIds);
+}
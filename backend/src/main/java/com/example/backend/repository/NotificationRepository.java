@@ -6,15 +6,32 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
 
     Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
+    // 游标分页：按(createdAt, id)倒序取游标之后的通知，createdAt为null时从第一条开始
+    @Query("SELECT n FROM Notification n WHERE n.userId = :userId " +
+           "AND (:createdAt IS NULL OR n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id, Pageable pageable);
+
+    long countByUserId(Long userId);
+
+    boolean existsByMessageIdAndUserId(String messageId, Long userId);
+
+    // 同一条MQ消息已经写入过通知的用户（批量通知重复投递时去重）
+    @Query("SELECT n.userId FROM Notification n WHERE n.messageId = :messageId")
+    List<Long> findUserIdsByMessageId(@Param("messageId") String messageId);
+
     long countByUserIdAndIsReadFalse(Long userId);
 
     @Modifying
@@ -0,0 +1,47 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>, OutboxEventRepositoryCustom {
+
+    // 待投递的消息（按写入顺序）
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = 'PENDING' " +
+           "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) ORDER BY e.id")
+    List<OutboxEvent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(String status);
+
+    // 已收到broker确认
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'SENT', e.sentAt = :now, e.attempts = e.attempts + 1 " +
+           "WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // 投递失败，延后重试；达到最大次数后不再重试
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.lastError = :error, e.status = CASE WHEN e.attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END " +
+           "WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("maxAttempts") int maxAttempts);
+
+    // 清理已投递的历史消息
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = 'SENT' AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
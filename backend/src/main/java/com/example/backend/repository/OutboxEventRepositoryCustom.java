@@ -0,0 +1,11 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxEventRepositoryCustom {
+
+    // JDBC批量写入发件箱（IDENTITY主键下JPA无法批量插入）
+    int batchInsert(List<OutboxEvent> events);
+}
@@ -0,0 +1,42 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (exchange, routing_key, payload_type, payload, status, attempts, created_at) " +
+            "VALUES (?, ?, ?, ?, 'PENDING', 0, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchInsert(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, events, 500, (ps, e) -> {
+            ps.setString(1, e.getExchange());
+            ps.setString(2, e.getRoutingKey());
+            ps.setString(3, e.getPayloadType());
+            ps.setString(4, e.getPayload());
+            ps.setTimestamp(5, now);
+        });
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // 部分驱动批量执行时返回SUCCESS_NO_INFO(-2)
+                total += count >= 0 ? count : 1;
+            }
+        }
+        return total;
+    }
+}
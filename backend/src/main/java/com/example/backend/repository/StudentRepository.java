@@ -1,7 +1,10 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.Student;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -22,4 +25,19 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
 
     // 统计班级学生数量
     long countByClassName(String className);
+
+    // 按ID分段遍历
+    @Query("SELECT s.id FROM Student s WHERE s.id > :afterId ORDER BY s.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // 游标分页：按id取游标之后的学生，className、keyword为null时不过滤
+    @Query("SELECT s FROM Student s WHERE s.id > :afterId " +
+           "AND (:className IS NULL OR s.className = :className) " +
+           "AND (:keyword IS NULL OR s.name LIKE %:keyword% OR s.studentNumber LIKE %:keyword%) ORDER BY s.id")
+    List<Student> findPageAfter(@Param("afterId") Long afterId, @Param("className") String className,
+                                @Param("keyword") String keyword, Pageable pageable);
+
+    @Query("SELECT COUNT(s) FROM Student s WHERE (:className IS NULL OR s.className = :className) " +
+           "AND (:keyword IS NULL OR s.name LIKE %:keyword% OR s.studentNumber LIKE %:keyword%)")
+    long countPage(@Param("className") String className, @Param("keyword") String keyword);
 }
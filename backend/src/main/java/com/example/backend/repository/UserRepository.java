@@ -1,9 +1,15 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +17,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
     Optional<User> findByStudentId(Long studentId);
+
+    // 批量查询学生对应的用户ID：[studentId, userId]
+    @Query("SELECT u.studentId, u.id FROM User u WHERE u.studentId IN :studentIds")
+    List<Object[]> findIdRowsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    // 游标分页：按(createdAt, id)倒序取游标之后的用户，createdAt为null时从第一条开始
+    @Query("SELECT u FROM User u WHERE (:createdAt IS NULL OR u.createdAt < :createdAt " +
+           "OR (u.createdAt = :createdAt AND u.id < :id)) ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,121 @@
+package com.example.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 选课准入控制（虚拟候场室）
+ * 同时处理中的选课请求数以租约形式保存在Redis有序集合中，多个后端节点共享；
+ * 超出并发上限的用户按首次到达顺序排队，客户端重试时返回排队位置，队列满时直接拒绝
+ */
+@Service
+public class AdmissionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionService.class);
+
+    // 正在处理的请求：member=请求令牌，score=租约到期时间
+    private static final String ACTIVE_KEY = "enrollment:admission:{gate}:active";
+    // 排队用户：member=用户ID，score=首次排队时间
+    private static final String QUEUE_KEY = "enrollment:admission:{gate}:queue";
+    // 排队用户最近一次重试时间，超时未重试的移出队列
+    private static final String SEEN_KEY = "enrollment:admission:{gate}:seen";
+
+    public static final long ADMITTED = 0;
+    public static final long REJECTED = -1;
+
+    /**
+     * 返回值：0 放行，-1 队列已满拒绝，>0 排队位置
+     * 有空位时只放行排在前面的用户，保证先到先得
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now) " +
+            "local stale = redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', now - tonumber(ARGV[6])) " +
+            "for _, m in ipairs(stale) do redis.call('ZREM', KEYS[2], m) redis.call('ZREM', KEYS[3], m) end " +
+            "local free = tonumber(ARGV[5]) - redis.call('ZCARD', KEYS[1]) " +
+            "local rank = redis.call('ZRANK', KEYS[2], ARGV[2]) " +
+            "if free > 0 and (rank ~= false and rank < free or rank == false and redis.call('ZCARD', KEYS[2]) < free) then " +
+            "  redis.call('ZADD', KEYS[1], now + tonumber(ARGV[4]), ARGV[3]) " +
+            "  redis.call('ZREM', KEYS[2], ARGV[2]) redis.call('ZREM', KEYS[3], ARGV[2]) " +
+            "  return 0 " +
+            "end " +
+            "if rank == false then " +
+            "  if redis.call('ZCARD', KEYS[2]) >= tonumber(ARGV[7]) then return -1 end " +
+            "  redis.call('ZADD', KEYS[2], now, ARGV[2]) " +
+            "  rank = redis.call('ZRANK', KEYS[2], ARGV[2]) " +
+            "end " +
+            "redis.call('ZADD', KEYS[3], now, ARGV[2]) " +
+            "return rank + 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${enrollment.admission.enabled:false}")
+    private boolean enabled;
+
+    @Value("${enrollment.admission.max-active:200}")
+    private int maxActive;
+
+    @Value("${enrollment.admission.max-queue:5000}")
+    private int maxQueue;
+
+    @Value("${enrollment.admission.lease-ms:10000}")
+    private long leaseMs;
+
+    @Value("${enrollment.admission.queue-ttl-ms:30000}")
+    private long queueTtlMs;
+
+    // 本节点请求平均处理耗时（指数移动平均），用于估算等待时间
+    private volatile double avgServiceMs = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 申请准入
+     * @param userId 排队用的用户ID（重试时保持排队位置）
+     * @param token 本次请求的令牌，放行后用于归还
+     * @return 0 放行，-1 拒绝，>0 排队位置；Redis不可用时放行
+     */
+    public long acquire(Long userId, String token) {
+        try {
+            Long result = stringRedisTemplate.execute(ACQUIRE_SCRIPT,
+                    List.of(ACTIVE_KEY, QUEUE_KEY, SEEN_KEY),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(userId), token,
+                    String.valueOf(leaseMs), String.valueOf(maxActive), String.valueOf(queueTtlMs),
+                    String.valueOf(maxQueue));
+            return result != null ? result : ADMITTED;
+        } catch (Exception e) {
+            log.warn("选课准入控制不可用，直接放行: {}", e.getMessage());
+            return ADMITTED;
+        }
+    }
+
+    /**
+     * 请求处理完成，归还名额
+     */
+    public void release(String token, long elapsedMs) {
+        avgServiceMs = avgServiceMs * 0.9 + elapsedMs * 0.1;
+        try {
+            stringRedisTemplate.opsForZSet().remove(ACTIVE_KEY, token);
+        } catch (Exception e) {
+            log.warn("归还选课准入令牌失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按排队位置估算等待秒数
+     */
+    public long estimateWaitSeconds(long position) {
+        double batches = Math.ceil((double) position / Math.max(1, maxActive));
+        return Math.max(1, Math.round(batches * avgServiceMs / 1000));
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.ClassInfo;
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.entity.CourseSchedule;
+import com.example.backend.entity.Student;
+import com.example.backend.repository.ClassInfoRepository;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseScheduleRepository;
+import com.example.backend.repository.CourseWaitlistRepository;
+import com.example.backend.repository.StudentRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.util.Chunks;
+import com.example.backend.util.TimetableBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 按班级批量选课（管理员将整个班级选入必修课）
+ * 整个班级的冲突检查在内存中完成，选课记录用JDBC批量写入，
+ * 名额通过SeatReservationService一次性预占（与单条选课使用同一套计数），通知合并为一条MQ消息
+ */
+@Service
+public class ClassEnrollmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassEnrollmentService.class);
+
+    @Autowired
+    private ClassInfoRepository classInfoRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseScheduleRepository scheduleRepository;
+
+    @Autowired
+    private CourseWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    @Autowired
+    private EnrollmentArchiveService enrollmentArchiveService;
+
+    /**
+     * 将班级全部学生选入课程
+     * 已选、已修完、时间冲突、未修完先修课程、超出选课数量或学分上限、没有登录账号的学生会被跳过；剩余名额不足以容纳其余学生时整体失败
+     */
+    @Transactional
+    public Map<String, Object> enrollClass(Long classId, Long courseId) {
+        long start = System.currentTimeMillis();
+        ClassInfo classInfo = classInfoRepository.findById(classId)
+                .orElseThrow(() -> new RuntimeException("班级不存在"));
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("课程不存在"));
+        if (!"ACTIVE".equals(course.getStatus())) {
+            throw new RuntimeException("该课程当前不可选");
+        }
+        if (!"REQUIRED".equals(course.getCourseType())) {
+            throw new RuntimeException("仅必修课支持按班级批量选课");
+        }
+
+        List<Student> students = studentRepository.findByClassName(classInfo.getName());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("students", students.size());
+        if (students.isEmpty()) {
+            stats.put("enrolled", 0);
+            return stats;
+        }
+        List<Long> studentIds = students.stream().map(Student::getId).toList();
+
+        // 1. 学生账号
+        Map<Long, Long> userIds = new HashMap<>();
+        for (List<Long> chunk : Chunks.of(studentIds)) {
+            for (Object[] row : userRepository.findIdRowsByStudentIdIn(chunk)) {
+                userIds.put((Long) row[0], (Long) row[1]);
+            }
+        }
+
+        // 2. 学生已有的选课记录
+        Map<Long, List<Long>> enrolledCourses = new HashMap<>();
+        Map<Long, List<Long>> completedCourses = new HashMap<>();
+        Map<Long, Long> droppedRows = new HashMap<>();
+        // 已有该课程非退课记录（已修完等）的学生，不能再插入或重新激活
+        Set<Long> blockedStudents = new HashSet<>();
+        Set<Long> relatedCourseIds = new HashSet<>();
+        relatedCourseIds.add(courseId);
+        for (List<Long> chunk : Chunks.of(studentIds)) {
+            for (Object[] row : enrollmentRepository.findStatusRowsByStudentIdIn(chunk)) {
+                Long studentId = (Long) row[1];
+                Long enrolledCourseId = (Long) row[2];
+                if (courseId.equals(enrolledCourseId) && !"ENROLLED".equals(row[3]) && !"DROPPED".equals(row[3])) {
+                    blockedStudents.add(studentId);
+                }
+                if ("ENROLLED".equals(row[3])) {
+                    enrolledCourses.computeIfAbsent(studentId, k -> new ArrayList<>()).add(enrolledCourseId);
+                    relatedCourseIds.add(enrolledCourseId);
+                } else if ("COMPLETED".equals(row[3])) {
+                    completedCourses.computeIfAbsent(studentId, k -> new ArrayList<>()).add(enrolledCourseId);
+                } else if ("DROPPED".equals(row[3]) && courseId.equals(enrolledCourseId)) {
+                    droppedRows.put(studentId, (Long) row[0]);
+                }
+            }
+        }
+
+        // 3. 相关课程的位图
+        Map<Long, TimetableBitmap> courseBitmaps = new HashMap<>();
+        for (List<Long> chunk : Chunks.of(new ArrayList<>(relatedCourseIds))) {
+            for (CourseSchedule schedule : scheduleRepository.findByCourseIdIn(chunk)) {
+                courseBitmaps.computeIfAbsent(schedule.getCourseId(), k -> new TimetableBitmap()).add(schedule);
+            }
+        }
+        TimetableBitmap targetBitmap = courseBitmaps.getOrDefault(courseId, new TimetableBitmap());
+        Map<Long, Course> relatedCourses = courseCacheService.getCourses(relatedCourseIds);
+        BigDecimal credit = creditOf(course);
+
+        // 4. 在内存中逐个学生检查
+        List<Long> accepted = new ArrayList<>();
+        List<String> alreadyEnrolled = new ArrayList<>();
+        List<String> alreadyCompleted = new ArrayList<>();
+        List<String> conflicts = new ArrayList<>();
+        List<String> overLimit = new ArrayList<>();
+        List<String> missingPrerequisites = new ArrayList<>();
+        boolean hasPrerequisites = prerequisiteService.hasPrerequisites(courseId);
+        if (hasPrerequisites) {
+            // 往届修完的课程在归档表中
+            for (List<Long> chunk : Chunks.of(studentIds)) {
+                enrollmentArchiveService.archivedCompletedCourseIds(chunk).forEach((studentId, courseIds) ->
+                        completedCourses.computeIfAbsent(studentId, k -> new ArrayList<>()).addAll(courseIds));
+            }
+        }
+        List<String> noAccount = new ArrayList<>();
+        for (Student student : students) {
+            List<Long> enrolled = enrolledCourses.getOrDefault(student.getId(), List.of());
+            if (enrolled.contains(courseId)) {
+                alreadyEnrolled.add(student.getStudentNumber());
+            } else if (blockedStudents.contains(student.getId())) {
+                alreadyCompleted.add(student.getStudentNumber());
+            } else if (!userIds.containsKey(student.getId())) {
+                noAccount.add(student.getStudentNumber());
+            } else if (hasPrerequisites && prerequisiteService.missingMessage(courseId,
+                    completedCourses.getOrDefault(student.getId(), List.of())) != null) {
+                missingPrerequisites.add(student.getStudentNumber());
+            } else if (studentLoadService.violation(loadOf(enrolled, relatedCourses), 1, credit) != null) {
+                overLimit.add(student.getStudentNumber());
+            } else if (hasConflict(targetBitmap, enrolled, courseBitmaps)) {
+                conflicts.add(student.getStudentNumber());
+            } else {
+                accepted.add(student.getId());
+            }
+        }
+
+        // 5. 一次性预占名额：与单条选课一样经过Redis计数、名额分片或courses行的条件UPDATE，不足时整体回滚
+        if (!seatReservationService.claimSeats(course, accepted.size())) {
+            throw new RuntimeException("课程剩余名额不足：需要" + accepted.size() + "个");
+        }
+
+        // 6. 批量写入
+        LocalDateTime now = LocalDateTime.now();
+        List<CourseEnrollment> toInsert = new ArrayList<>();
+        List<Long> toReactivate = new ArrayList<>();
+        for (Long studentId : accepted) {
+            Long droppedId = droppedRows.get(studentId);
+            if (droppedId != null) {
+                toReactivate.add(droppedId);
+                continue;
+            }
+            CourseEnrollment enrollment = new CourseEnrollment();
+            enrollment.setCourseId(courseId);
+            enrollment.setStudentId(studentId);
+            enrollment.setUserId(userIds.get(studentId));
+            enrollment.setEnrollmentStatus("ENROLLED");
+            enrollment.setEnrolledAt(now);
+            toInsert.add(enrollment);
+        }
+        enrollmentRepository.batchInsert(toInsert);
+        enrollmentRepository.batchReactivate(toReactivate);
+        for (List<Long> chunk : Chunks.of(accepted)) {
+            waitlistRepository.deleteByCourseIdAndStudentIdIn(courseId, chunk);
+        }
+
+        if (!accepted.isEmpty()) {
+            courseCacheService.evict(courseId);
+            timetableService.evictStudents(accepted);
+            studentLoadService.evict(accepted);
+            notificationService.sendBatchNotification(accepted.stream().map(userIds::get).toList(), "选课成功",
+                "管理员已为您所在班级选修课程「" + course.getCourseName() + "」", "ENROLL_SUCCESS", courseId);
+        }
+
+        stats.put("enrolled", accepted.size());
+        stats.put("alreadyEnrolled", alreadyEnrolled);
+        stats.put("alreadyCompleted", alreadyCompleted);
+        stats.put("conflicts", conflicts);
+        stats.put("overLimit", overLimit);
+        stats.put("missingPrerequisites", missingPrerequisites);
+        stats.put("noAccount", noAccount);
+        stats.put("totalMs", System.currentTimeMillis() - start);
+        log.info("班级批量选课完成 classId={} courseId={} enrolled={} skipped={}", classId, courseId, accepted.size(),
+                students.size() - accepted.size());
+        return stats;
+    }
+
+    private static StudentLoadService.Load loadOf(List<Long> enrolled, Map<Long, Course> courses) {
+        BigDecimal credits = BigDecimal.ZERO;
+        for (Long enrolledCourseId : enrolled) {
+            credits = credits.add(creditOf(courses.get(enrolledCourseId)));
+        }
+        return new StudentLoadService.Load(enrolled.size(), credits);
+    }
+
+    private static BigDecimal creditOf(Course course) {
+        return course != null && course.getCredit() != null ? course.getCredit() : BigDecimal.ZERO;
+    }
+
+    private static boolean hasConflict(TimetableBitmap target, List<Long> enrolled, Map<Long, TimetableBitmap> courseBitmaps) {
+        if (target.isEmpty()) {
+            return false;
+        }
+        for (Long enrolledCourseId : enrolled) {
+            TimetableBitmap bitmap = courseBitmaps.get(enrolledCourseId);
+            if (bitmap != null && bitmap.intersects(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
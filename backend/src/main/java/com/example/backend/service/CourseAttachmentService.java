@@ -28,6 +28,9 @@ public class CourseAttachmentService {
     @Autowired
     private ElasticsearchService elasticsearchService;
 
+    @Autowired
+    private CourseCatalogCacheService catalogCacheService;
+
     private final Tika tika = new Tika();
 
     /**
@@ -59,6 +62,8 @@ public class CourseAttachmentService {
         attachment.setCreatedBy(createdBy);
 
         attachment = attachmentRepository.save(attachment);
+        // 课程目录中的附件数量
+        catalogCacheService.invalidate();
 
         // 异步索引到ES
         elasticsearchService.indexAttachmentAsync(attachment);
@@ -128,6 +133,7 @@ public class CourseAttachmentService {
 
         // 删除数据库记录
         attachmentRepository.deleteById(attachmentId);
+        catalogCacheService.invalidate();
     }
 
     /**
@@ -0,0 +1,297 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseSchedule;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseScheduleRepository;
+import com.example.backend.util.TimetableBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 选课热点数据的本地缓存（课程、时间安排、课程占用位图）
+ * 选课开放前由定时任务在每个节点上预加载全部ACTIVE课程，开放期间定时整体刷新，
+ * 选课高峰时课程和时间安排都从内存读取；名额仍以数据库/Redis为准，缓存只用于状态、时间窗口和冲突检查。
+ * 课程被修改后事务提交时通过pub/sub通知所有节点清除该课程的缓存
+ */
+@Service
+public class CourseCacheService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseCacheService.class);
+
+    public static final String EVICT_CHANNEL = "course:cache:evict";
+
+    // 清除全部课程的通知内容
+    private static final String EVICT_ALL = "*";
+
+    private record CachedCourse(Course course, List<CourseSchedule> schedules, TimetableBitmap bitmap, long expiresAt) {
+    }
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseScheduleRepository scheduleRepository;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private CourseCatalogCacheService catalogCacheService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${enrollment.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // 选课开始前多久开始预热
+    @Value("${enrollment.cache.prewarm-lead-minutes:5}")
+    private long prewarmLeadMinutes;
+
+    private final Map<Long, CachedCourse> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 获取课程（返回的是缓存中各线程共享的脱管副本，不能修改，也不能用于保存）
+     */
+    public Optional<Course> getCourse(Long courseId) {
+        CachedCourse cached = get(courseId);
+        return Optional.ofNullable(cached).map(CachedCourse::course);
+    }
+
+    /**
+     * 批量获取课程，不存在的课程不在结果中
+     */
+    public Map<Long, Course> getCourses(Collection<Long> courseIds) {
+        Map<Long, Course> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Long id : courseIds) {
+            CachedCourse cached = cache.get(id);
+            if (cached != null && cached.expiresAt() > now) {
+                result.put(id, cached.course());
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (CachedCourse loaded : load(courseRepository.findAllById(missing))) {
+                result.put(loaded.course().getId(), loaded.course());
+            }
+        }
+        return result;
+    }
+
+    public List<CourseSchedule> getSchedules(Long courseId) {
+        CachedCourse cached = get(courseId);
+        return cached != null ? cached.schedules() : scheduleRepository.findByCourseId(courseId);
+    }
+
+    /**
+     * 课程的占用位图（返回副本）
+     */
+    public TimetableBitmap getCourseBitmap(Long courseId) {
+        CachedCourse cached = get(courseId);
+        return cached != null ? cached.bitmap().copy() : TimetableBitmap.of(scheduleRepository.findByCourseId(courseId));
+    }
+
+    /**
+     * 课程被修改后清除所有节点的缓存
+     * 立即清除本节点缓存，事务提交后再清一次并通知其他节点，避免提交前被其他请求重新加载旧数据
+     */
+    public void evict(Long courseId) {
+        cache.remove(courseId);
+        afterCommit(() -> {
+            cache.remove(courseId);
+            publishEviction(courseId.toString());
+        });
+    }
+
+    public void evictAll() {
+        cache.clear();
+        afterCommit(() -> {
+            cache.clear();
+            publishEviction(EVICT_ALL);
+        });
+    }
+
+    /**
+     * 收到其他节点（也包括本节点）的清除通知，消息内容为课程ID或*
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (EVICT_ALL.equals(body)) {
+            cache.clear();
+            return;
+        }
+        try {
+            cache.remove(Long.parseLong(body));
+        } catch (NumberFormatException e) {
+            log.warn("课程缓存清除通知格式错误: {}", body);
+        }
+    }
+
+    /**
+     * 统一设置所有ACTIVE课程的选课时间窗口
+     * @return 更新的课程数
+     */
+    public int updateEnrollWindow(LocalDateTime startAt, LocalDateTime endAt) {
+        if (startAt != null && endAt != null && !endAt.isAfter(startAt)) {
+            throw new RuntimeException("选课结束时间必须晚于开始时间");
+        }
+        int updated = courseRepository.updateEnrollWindowForActive(startAt, endAt);
+        evictAll();
+        catalogCacheService.invalidate();
+        return updated;
+    }
+
+    /**
+     * 预加载全部ACTIVE课程、时间安排和剩余名额
+     * @return 加载的课程数
+     */
+    public int warmUp() {
+        List<Course> courses = courseRepository.findByStatus("ACTIVE");
+        load(courses);
+        for (Course course : courses) {
+            try {
+                seatReservationService.warmSeats(course);
+            } catch (Exception e) {
+                log.warn("预热课程{}剩余名额失败: {}", course.getId(), e.getMessage());
+            }
+        }
+        return courses.size();
+    }
+
+    /**
+     * 有课程即将开放或正在开放选课时，定时整体刷新缓存，保证高峰期缓存不过期
+     * 每个节点各自执行，因此所有节点都会被预热
+     */
+    @Scheduled(fixedDelayString = "${enrollment.cache.prewarm-interval:30000}")
+    public void prewarmForEnrollmentWindow() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (!courseRepository.existsEnrollWindow(now, now.plusMinutes(prewarmLeadMinutes))) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            int count = warmUp();
+            log.info("选课缓存预热完成：{}门课程，耗时{}ms", count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("选课缓存预热失败: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void publishEviction(String body) {
+        try {
+            stringRedisTemplate.convertAndSend(EVICT_CHANNEL, body);
+        } catch (Exception e) {
+            log.warn("发布课程缓存清除通知失败: {}", e.getMessage());
+        }
+    }
+
+    private CachedCourse get(Long courseId) {
+        CachedCourse cached = cache.get(courseId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+        List<CachedCourse> loaded = courseRepository.findById(courseId).map(course -> load(List.of(course))).orElse(List.of());
+        return loaded.isEmpty() ? null : loaded.get(0);
+    }
+
+    /**
+     * 批量加载时间安排并写入缓存
+     * 缓存的是实体的副本：查询返回的实体属于加载它的持久化上下文，跨线程共享时可能在该会话中被脏检查写回
+     */
+    private List<CachedCourse> load(List<Course> courses) {
+        if (courses.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<CourseSchedule>> schedules = new HashMap<>();
+        List<Long> ids = courses.stream().map(Course::getId).toList();
+        for (CourseSchedule schedule : scheduleRepository.findByCourseIdIn(ids)) {
+            schedules.computeIfAbsent(schedule.getCourseId(), k -> new ArrayList<>()).add(schedule);
+        }
+
+        long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        List<CachedCourse> loaded = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            List<CourseSchedule> courseSchedules = schedules.getOrDefault(course.getId(), List.of()).stream()
+                    .map(CourseCacheService::detach).toList();
+            CachedCourse cached = new CachedCourse(detach(course), courseSchedules, TimetableBitmap.of(courseSchedules), expiresAt);
+            cache.put(course.getId(), cached);
+            loaded.add(cached);
+        }
+        return loaded;
+    }
+
+    private static Course detach(Course course) {
+        Course copy = new Course();
+        copy.setId(course.getId());
+        copy.setCourseCode(course.getCourseCode());
+        copy.setCourseName(course.getCourseName());
+        copy.setDescription(course.getDescription());
+        copy.setTeacherName(course.getTeacherName());
+        copy.setCredit(course.getCredit());
+        copy.setMaxStudents(course.getMaxStudents());
+        copy.setCurrentStudents(course.getCurrentStudents());
+        copy.setSeatShards(course.getSeatShards());
+        copy.setCourseType(course.getCourseType());
+        copy.setStatus(course.getStatus());
+        copy.setStartDate(course.getStartDate());
+        copy.setEndDate(course.getEndDate());
+        copy.setEnrollStartAt(course.getEnrollStartAt());
+        copy.setEnrollEndAt(course.getEnrollEndAt());
+        copy.setEnrollMode(course.getEnrollMode());
+        copy.setLotteryDrawnAt(course.getLotteryDrawnAt());
+        copy.setCoverImage(course.getCoverImage());
+        copy.setCreatedBy(course.getCreatedBy());
+        copy.setCreatedAt(course.getCreatedAt());
+        copy.setUpdatedAt(course.getUpdatedAt());
+        return copy;
+    }
+
+    private static CourseSchedule detach(CourseSchedule schedule) {
+        CourseSchedule copy = new CourseSchedule();
+        copy.setId(schedule.getId());
+        copy.setCourseId(schedule.getCourseId());
+        copy.setDayOfWeek(schedule.getDayOfWeek());
+        copy.setStartTime(schedule.getStartTime());
+        copy.setEndTime(schedule.getEndTime());
+        copy.setClassroom(schedule.getClassroom());
+        copy.setWeekStart(schedule.getWeekStart());
+        copy.setWeekEnd(schedule.getWeekEnd());
+        copy.setWeekType(schedule.getWeekType());
+        copy.setSectionStart(schedule.getSectionStart());
+        copy.setSectionEnd(schedule.getSectionEnd());
+        copy.setCreatedAt(schedule.getCreatedAt());
+        return copy;
+    }
+}
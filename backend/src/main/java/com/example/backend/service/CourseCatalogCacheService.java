@@ -0,0 +1,296 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.CourseDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 课程目录缓存（课程列表分页和课程详情）
+ * 一级缓存在本节点内存，按容量LRU淘汰并设有较短的过期时间；二级缓存在Redis，所有节点共用。
+ * 缓存内容是序列化后的JSON：课程列表页原样写入响应，所有学生共用同一份字节，已选标记和当前人数另外返回；
+ * 课程详情命中时反序列化出新对象，调用方可以直接在上面补充实时数据。
+ * 当前人数变化频繁，不放进目录缓存，只在本节点短暂缓存，选课不会使目录缓存失效。
+ * 课程信息修改后递增Redis中的目录版本号并通过pub/sub通知所有节点清空一级缓存；
+ * 缓存key带版本号，修改前读到的旧数据即使晚于失效写入也不会再被读到
+ */
+@Service
+public class CourseCatalogCacheService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseCatalogCacheService.class);
+
+    public static final String INVALIDATE_CHANNEL = "course:catalog:invalidate";
+
+    private static final String VERSION_KEY = "course:catalog:version";
+    private static final String KEY_PREFIX = "course:catalog:";
+
+    /**
+     * 缓存的一页课程（不含当前人数和已选标记）
+     * 按页码分页时字段与分页接口原有的JSON一致；游标分页时只有content、nextCursor和可选的totalElements
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record CatalogPage(List<CourseDTO> content, Long totalElements, Integer totalPages, Integer number,
+                              Integer size, String nextCursor) {
+    }
+
+    /**
+     * 序列化后的课程列表页及页内课程ID
+     */
+    public record SharedPage(byte[] json, List<Long> courseIds) {
+    }
+
+    private record CachedJson(byte[] json, List<Long> courseIds, long expiresAt) {
+    }
+
+    private record CachedSeats(Integer count, long expiresAt) {
+    }
+
+    private record Loaded(Object value, List<Long> courseIds) {
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${enrollment.catalog-cache.local-size:2000}")
+    private int localSize;
+
+    // 一级缓存有效期，也是错过失效通知时最长读到旧数据的时间
+    @Value("${enrollment.catalog-cache.local-ttl-seconds:30}")
+    private long localTtlSeconds;
+
+    @Value("${enrollment.catalog-cache.redis-ttl-minutes:10}")
+    private long redisTtlMinutes;
+
+    // 当前人数在本节点缓存的时长
+    @Value("${enrollment.catalog-cache.seat-ttl-ms:1000}")
+    private long seatTtlMillis;
+
+    private final Map<String, CachedJson> local = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedJson> eldest) {
+                    return size() > localSize;
+                }
+            });
+
+    private final Map<Long, CachedSeats> seats = new ConcurrentHashMap<>();
+
+    // 本节点已知的目录版本号及读取时间，-1表示尚未读取
+    private volatile long version = -1;
+    private volatile long versionReadAt;
+
+    /**
+     * 课程详情（含时间安排和附件数量），loader在未命中时从数据库加载
+     */
+    public CourseDTO getDetail(Long courseId, Supplier<CourseDTO> loader) {
+        CachedJson cached = get("detail:" + courseId, () -> {
+            CourseDTO loaded = loader.get();
+            return new Loaded(loaded, List.of(loaded.getId()));
+        }, json -> List.of(courseId));
+        CourseDTO dto = read(cached.json(), CourseDTO.class);
+        return dto != null ? dto : loader.get();
+    }
+
+    /**
+     * 课程列表的一页（序列化后的字节，调用方不能修改），query为分页和筛选条件
+     */
+    public SharedPage getPage(String query, Supplier<CatalogPage> loader) {
+        String hash = DigestUtils.md5DigestAsHex(query.getBytes(StandardCharsets.UTF_8));
+        CachedJson cached = get("page:" + hash, () -> {
+            CatalogPage loaded = loader.get();
+            return new Loaded(loaded, courseIds(loaded));
+        }, json -> {
+            CatalogPage page = read(json, CatalogPage.class);
+            return page != null ? courseIds(page) : null;
+        });
+        return new SharedPage(cached.json(), cached.courseIds());
+    }
+
+    /**
+     * 课程当前人数，本节点缓存seat-ttl-ms毫秒，未命中的课程由loader批量读取
+     */
+    public Map<Long, Integer> getCurrentStudents(List<Long> courseIds, Function<List<Long>, Map<Long, Integer>> loader) {
+        Map<Long, Integer> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Long id : courseIds) {
+            CachedSeats cached = seats.get(id);
+            if (cached != null && cached.expiresAt() > now) {
+                result.put(id, cached.count());
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, Integer> loaded = loader.apply(missing);
+            long expiresAt = System.currentTimeMillis() + seatTtlMillis;
+            for (Long id : missing) {
+                Integer count = loaded.get(id);
+                seats.put(id, new CachedSeats(count, expiresAt));
+                result.put(id, count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 课程信息（包括附件）被修改后使全部节点的目录缓存失效
+     * 立即清空本节点一级缓存，事务提交后再递增版本号并通知其他节点，避免提交前被重新加载旧数据
+     */
+    public void invalidate() {
+        local.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishInvalidation();
+                }
+            });
+        } else {
+            publishInvalidation();
+        }
+    }
+
+    /**
+     * 收到其他节点（也包括本节点）的失效通知，消息内容为新的版本号
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            advanceVersion(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("课程目录失效通知格式错误: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+        local.clear();
+    }
+
+    /**
+     * 依次查一级缓存、Redis、数据库，返回序列化后的JSON
+     */
+    private CachedJson get(String name, Supplier<Loaded> loader, Function<byte[], List<Long>> idsOf) {
+        long current = currentVersion();
+        String key = KEY_PREFIX + current + ":" + name;
+
+        CachedJson cached = local.get(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        String json = null;
+        if (current >= 0) {
+            try {
+                json = stringRedisTemplate.opsForValue().get(key);
+            } catch (Exception e) {
+                log.warn("读取课程目录缓存失败: {}", e.getMessage());
+            }
+        }
+        if (json != null) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            List<Long> courseIds = idsOf.apply(bytes);
+            if (courseIds != null) {
+                return putLocal(key, bytes, courseIds);
+            }
+        }
+
+        Loaded loaded = loader.get();
+        byte[] bytes = write(loaded.value());
+        cached = putLocal(key, bytes, loaded.courseIds());
+        if (current >= 0) {
+            try {
+                stringRedisTemplate.opsForValue().set(key, new String(bytes, StandardCharsets.UTF_8),
+                        Duration.ofMinutes(redisTtlMinutes));
+            } catch (Exception e) {
+                log.warn("写入课程目录缓存失败: {}", e.getMessage());
+            }
+        }
+        return cached;
+    }
+
+    private CachedJson putLocal(String key, byte[] json, List<Long> courseIds) {
+        CachedJson cached = new CachedJson(json, List.copyOf(courseIds), System.currentTimeMillis() + localTtlSeconds * 1000);
+        local.put(key, cached);
+        return cached;
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化课程目录失败: " + e.getMessage());
+        }
+    }
+
+    private <T> T read(byte[] json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            log.warn("反序列化课程目录缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<Long> courseIds(CatalogPage page) {
+        return page.content().stream().map(CourseDTO::getId).toList();
+    }
+
+    /**
+     * 当前版本号：平时使用失效通知带来的版本号，超过一级缓存有效期后从Redis重新读取，
+     * 错过通知（如Redis重连期间）时旧数据最多保留一个有效期。Redis不可用时返回-1，只使用一级缓存
+     */
+    private long currentVersion() {
+        long now = System.currentTimeMillis();
+        if (version >= 0 && now - versionReadAt < localTtlSeconds * 1000) {
+            return version;
+        }
+        try {
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            advanceVersion(value != null ? Long.parseLong(value) : 0);
+        } catch (Exception e) {
+            log.warn("读取课程目录版本失败: {}", e.getMessage());
+        }
+        versionReadAt = now;
+        return version;
+    }
+
+    private synchronized void advanceVersion(long next) {
+        if (next > version) {
+            version = next;
+        }
+        versionReadAt = System.currentTimeMillis();
+    }
+
+    private void publishInvalidation() {
+        local.clear();
+        try {
+            Long next = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            if (next != null) {
+                advanceVersion(next);
+                stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, String.valueOf(next));
+            }
+        } catch (Exception e) {
+            log.warn("发布课程目录失效通知失败: {}", e.getMessage());
+        }
+    }
+}
@@ -4,17 +4,24 @@ import com.example.backend.entity.Student;
 import com.example.backend.repository.StudentRepository;
 import com.example.backend.dto.CalendarEventDTO;
 import com.example.backend.dto.EnrollmentDTO;
+import com.example.backend.dto.EnrollmentResultDTO;
+import com.example.backend.dto.ScheduleConflictDTO;
 import com.example.backend.entity.Course;
 import com.example.backend.entity.CourseEnrollment;
 import com.example.backend.entity.CourseSchedule;
+import com.example.backend.entity.CourseWaitlist;
 import com.example.backend.repository.CourseEnrollmentRepository;
 import com.example.backend.repository.CourseRepository;
 import com.example.backend.repository.CourseScheduleRepository;
+import com.example.backend.repository.CourseWaitlistRepository;
+import com.example.backend.util.ScheduleSweepLine;
+import com.example.backend.util.TimetableBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -38,73 +45,96 @@ public class CourseEnrollmentService {
     @Autowired
     private NotificationService notificationService;
 
-    @Value("${enrollment.max-courses:10}")
-    private int maxCoursesPerStudent;
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private CourseWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    @Autowired
+    private EnrollmentArchiveService enrollmentArchiveService;
+
+    @Value("${enrollment.batch-max-size:20}")
+    private int maxBatchSize;
+
+    @Value("${enrollment.waitlist.max-promotion-attempts:10}")
+    private int maxPromotionAttempts;
 
     /**
      * 学生选课
      */
     @Transactional
     public EnrollmentDTO enrollCourse(Long courseId, Long studentId, Long userId) {
-        // 检查课程是否存在且状态正常
-        Course course = courseRepository.findById(courseId)
+        // 检查课程是否存在且状态正常（选课高峰时从本地缓存读取）
+        Course course = courseCacheService.getCourse(courseId)
                 .orElseThrow(() -> new RuntimeException("课程不存在"));
 
         if (!"ACTIVE".equals(course.getStatus())) {
             throw new RuntimeException("该课程当前不可选");
         }
+        String windowMessage = checkEnrollWindow(course);
+        if (windowMessage != null) {
+            throw new RuntimeException(windowMessage);
+        }
 
         // 检查是否已选（包括已退课的情况）
         Optional<CourseEnrollment> existingEnrollment = enrollmentRepository.findByCourseIdAndStudentId(courseId, studentId);
 
+        String existingMessage = reenrollMessage(existingEnrollment.orElse(null));
+        if (existingMessage != null) {
+            throw new RuntimeException(existingMessage);
+        }
+        prerequisiteService.checkPrerequisites(courseId, studentId);
+
+        // 检查选课数量和学分上限（重新选回已退课程同样计入）
+        studentLoadService.check(studentLoadService.getLoad(studentId), 1, creditOf(course));
+
         if (existingEnrollment.isPresent()) {
             CourseEnrollment existing = existingEnrollment.get();
-            if ("ENROLLED".equals(existing.getEnrollmentStatus())) {
-                throw new RuntimeException("您已选择该课程");
-            }
             // 如果是已退课状态，重新激活
             if ("DROPPED".equals(existing.getEnrollmentStatus())) {
                 // 先检查时间冲突
-                checkScheduleConflict(courseId, studentId);
+                TimetableBitmap courseBitmap = checkScheduleConflict(courseId, studentId);
+
+                // 占用课程名额
+                if (!seatReservationService.claimSeat(course)) {
+                    throw new RuntimeException("该课程选课人数已满");
+                }
 
                 existing.setEnrollmentStatus("ENROLLED");
                 existing.setEnrolledAt(LocalDateTime.now());
                 existing.setDroppedAt(null);
                 enrollmentRepository.save(existing);
-
-                // 增加课程选课人数
-                if (course.getMaxStudents() > 0) {
-                    courseRepository.incrementCurrentStudents(courseId);
-                }
+                waitlistRepository.deleteByCourseIdAndStudentIdIn(courseId, List.of(studentId));
+                timetableService.onEnrolled(studentId, courseBitmap);
+                studentLoadService.adjust(studentId, 1, creditOf(course));
 
                 // 发送通知
                 notificationService.sendNotification(userId, "选课成功",
                     "您已成功选择课程「" + course.getCourseName() + "」", "ENROLL_SUCCESS", courseId);
 
-                EnrollmentDTO dto = EnrollmentDTO.fromEntity(existing);
-                dto.setCourseCode(course.getCourseCode());
-                dto.setCourseName(course.getCourseName());
-                dto.setTeacherName(course.getTeacherName());
-                dto.setCredit(course.getCredit());
-                return dto;
+                return toDTO(existing, course);
             }
         }
 
-        // 检查选课数量限制
-        long enrolledCount = enrollmentRepository.countByStudentIdAndEnrollmentStatus(studentId, "ENROLLED");
-        if (enrolledCount >= maxCoursesPerStudent) {
-            throw new RuntimeException("选课数量已达上限（最多" + maxCoursesPerStudent + "门）");
-        }
-
         // 检查时间冲突
-        checkScheduleConflict(courseId, studentId);
+        TimetableBitmap courseBitmap = checkScheduleConflict(courseId, studentId);
 
-        // 检查课程容量（乐观锁）
-        if (course.getMaxStudents() > 0) {
-            int updated = courseRepository.incrementCurrentStudents(courseId);
-            if (updated == 0) {
-                throw new RuntimeException("该课程选课人数已满");
-            }
+        // 检查课程容量（db模式为条件UPDATE，redis模式为原子扣减）
+        if (!seatReservationService.claimSeat(course)) {
+            throw new RuntimeException("该课程选课人数已满，可加入候补名单");
         }
 
         // 创建选课记录
@@ -115,13 +145,13 @@ public class CourseEnrollmentService {
         enrollment.setEnrollmentStatus("ENROLLED");
 
         enrollment = enrollmentRepository.save(enrollment);
+        // 直接选上后移出候补，避免递补时再选中该学生
+        waitlistRepository.deleteByCourseIdAndStudentIdIn(courseId, List.of(studentId));
+        timetableService.onEnrolled(studentId, courseBitmap);
+        studentLoadService.adjust(studentId, 1, creditOf(course));
 
         // 构建返回DTO
-        EnrollmentDTO dto = EnrollmentDTO.fromEntity(enrollment);
-        dto.setCourseCode(course.getCourseCode());
-        dto.setCourseName(course.getCourseName());
-        dto.setTeacherName(course.getTeacherName());
-        dto.setCredit(course.getCredit());
+        EnrollmentDTO dto = toDTO(enrollment, course);
 
         // 发送选课成功通知
         notificationService.sendNotification(
@@ -136,50 +166,319 @@ public class CourseEnrollmentService {
     }
 
     /**
-     * 检查选课时间冲突
+     * 批量选课（选课购物车）
+     * 一次性加载学生当前状态，按顺序逐门校验（含购物车内部互相冲突），成功的记录在同一事务中批量写入
      */
-    private void checkScheduleConflict(Long newCourseId, Long studentId) {
-        // 获取新课程的时间安排
-        List<CourseSchedule> newSchedules = scheduleRepository.findByCourseId(newCourseId);
-        if (newSchedules.isEmpty()) {
-            return; // 没有时间安排，不检查冲突
+    @Transactional
+    public List<EnrollmentResultDTO> enrollCourses(List<Long> courseIds, Long studentId, Long userId) {
+        List<Long> ids = courseIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            throw new RuntimeException("课程ID不能为空");
+        }
+        if (ids.size() > maxBatchSize) {
+            throw new RuntimeException("一次最多选择" + maxBatchSize + "门课程");
         }
 
-        // 获取学生已选课程的时间安排
-        List<CourseSchedule> enrolledSchedules = scheduleRepository.findByStudentEnrolled(studentId);
+        Map<Long, Course> courseMap = courseCacheService.getCourses(ids);
+
+        // 学生当前状态：选课记录、已选门数和学分、课表位图
+        Map<Long, CourseEnrollment> existingMap = new HashMap<>();
+        for (CourseEnrollment enrollment : enrollmentRepository.findByStudentIdAndCourseIdIn(studentId, ids)) {
+            existingMap.put(enrollment.getCourseId(), enrollment);
+        }
+        StudentLoadService.Load load = studentLoadService.getLoad(studentId);
+        long addedCount = 0;
+        BigDecimal addedCredits = BigDecimal.ZERO;
+        TimetableBitmap studentBitmap = timetableService.getStudentBitmap(studentId);
+        List<CourseSchedule> enrolledSchedules = null;
+        List<Long> completedCourseIds = null;
+
+        Map<Long, EnrollmentResultDTO> results = new LinkedHashMap<>();
+        Map<Long, TimetableBitmap> accepted = new LinkedHashMap<>();
+        List<CourseEnrollment> toInsert = new ArrayList<>();
+        List<CourseEnrollment> toReactivate = new ArrayList<>();
+
+        for (Long courseId : ids) {
+            Course course = courseMap.get(courseId);
+            if (course == null) {
+                results.put(courseId, EnrollmentResultDTO.failure(courseId, null, "课程不存在"));
+                continue;
+            }
+            String courseName = course.getCourseName();
+            if (!"ACTIVE".equals(course.getStatus())) {
+                results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, "该课程当前不可选"));
+                continue;
+            }
+            String windowMessage = checkEnrollWindow(course);
+            if (windowMessage != null) {
+                results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, windowMessage));
+                continue;
+            }
 
-        for (CourseSchedule newSch : newSchedules) {
-            for (CourseSchedule existSch : enrolledSchedules) {
-                // 同一天
-                if (newSch.getDayOfWeek().equals(existSch.getDayOfWeek())) {
-                    // 检查节次冲突
-                    if (newSch.getSectionStart() != null && existSch.getSectionStart() != null) {
-                        int newStart = newSch.getSectionStart();
-                        int newEnd = newSch.getSectionEnd() != null ? newSch.getSectionEnd() : newStart;
-                        int existStart = existSch.getSectionStart();
-                        int existEnd = existSch.getSectionEnd() != null ? existSch.getSectionEnd() : existStart;
-
-                        // 节次重叠检查
-                        if (!(newEnd < existStart || newStart > existEnd)) {
-                            Course conflictCourse = courseRepository.findById(existSch.getCourseId()).orElse(null);
-                            String conflictName = conflictCourse != null ? conflictCourse.getCourseName() : "未知课程";
-                            String dayName = getDayName(newSch.getDayOfWeek());
-                            throw new RuntimeException("时间冲突：与「" + conflictName + "」在" + dayName +
-                                "第" + existStart + "-" + existEnd + "节冲突");
-                        }
+            CourseEnrollment existing = existingMap.get(courseId);
+            String existingMessage = reenrollMessage(existing);
+            if (existingMessage != null) {
+                results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, existingMessage));
+                continue;
+            }
+            if (prerequisiteService.hasPrerequisites(courseId)) {
+                if (completedCourseIds == null) {
+                    completedCourseIds = enrollmentArchiveService.completedCourseIds(studentId);
+                }
+                String prerequisiteMessage = prerequisiteService.missingMessage(courseId, completedCourseIds);
+                if (prerequisiteMessage != null) {
+                    results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, prerequisiteMessage));
+                    continue;
+                }
+            }
+            String limitMessage = studentLoadService.violation(load, addedCount + 1, addedCredits.add(creditOf(course)));
+            if (limitMessage != null) {
+                results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, limitMessage));
+                continue;
+            }
+
+            TimetableBitmap courseBitmap = courseCacheService.getCourseBitmap(courseId);
+            if (courseBitmap.intersects(studentBitmap)) {
+                String message = null;
+                for (Map.Entry<Long, TimetableBitmap> entry : accepted.entrySet()) {
+                    if (entry.getValue().intersects(courseBitmap)) {
+                        message = "时间冲突：与本次所选「" + courseMap.get(entry.getKey()).getCourseName() + "」冲突";
+                        break;
                     }
-                    // 检查时间冲突（备用）
-                    else if (newSch.getStartTime() != null && existSch.getStartTime() != null) {
-                        if (!(newSch.getEndTime().isBefore(existSch.getStartTime()) ||
-                              newSch.getStartTime().isAfter(existSch.getEndTime()))) {
-                            Course conflictCourse = courseRepository.findById(existSch.getCourseId()).orElse(null);
-                            String conflictName = conflictCourse != null ? conflictCourse.getCourseName() : "未知课程";
-                            throw new RuntimeException("时间冲突：与「" + conflictName + "」时间重叠");
-                        }
+                }
+                if (message == null) {
+                    if (enrolledSchedules == null) {
+                        enrolledSchedules = scheduleRepository.findByStudentEnrolled(studentId);
                     }
+                    message = describeConflict(courseBitmap, enrolledSchedules);
+                }
+                if (message != null) {
+                    results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, message));
+                    continue;
+                }
+            }
+
+            if (!seatReservationService.claimSeat(course)) {
+                results.put(courseId, EnrollmentResultDTO.failure(courseId, courseName, "该课程选课人数已满"));
+                continue;
+            }
+
+            studentBitmap.or(courseBitmap);
+            addedCount++;
+            addedCredits = addedCredits.add(creditOf(course));
+            accepted.put(courseId, courseBitmap);
+            results.put(courseId, null);
+
+            if (existing != null) {
+                existing.setEnrollmentStatus("ENROLLED");
+                existing.setEnrolledAt(LocalDateTime.now());
+                existing.setDroppedAt(null);
+                toReactivate.add(existing);
+            } else {
+                CourseEnrollment enrollment = new CourseEnrollment();
+                enrollment.setCourseId(courseId);
+                enrollment.setStudentId(studentId);
+                enrollment.setUserId(userId);
+                enrollment.setEnrollmentStatus("ENROLLED");
+                enrollment.setEnrolledAt(LocalDateTime.now());
+                toInsert.add(enrollment);
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            enrollmentRepository.saveAll(toReactivate);
+            enrollmentRepository.flush();
+            enrollmentRepository.batchInsert(toInsert);
+            waitlistRepository.deleteByStudentIdAndCourseIdIn(studentId, accepted.keySet());
+
+            TimetableBitmap addedBitmap = new TimetableBitmap();
+            accepted.values().forEach(addedBitmap::or);
+            timetableService.onEnrolled(studentId, addedBitmap);
+            studentLoadService.adjust(studentId, addedCount, addedCredits);
+
+            // 重新读取以获得新记录的ID
+            for (CourseEnrollment enrollment : enrollmentRepository.findByStudentIdAndCourseIdIn(studentId, accepted.keySet())) {
+                Course course = courseMap.get(enrollment.getCourseId());
+                results.put(course.getId(), EnrollmentResultDTO.success(toDTO(enrollment, course)));
+            }
+
+            // 汇总为一条通知
+            List<String> names = accepted.keySet().stream().map(id -> courseMap.get(id).getCourseName()).toList();
+            notificationService.sendNotification(userId, "选课成功",
+                "您已成功选择" + names.size() + "门课程：「" + String.join("」「", names) + "」", "ENROLL_SUCCESS", null);
+        }
+
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * 冲突预览：一次列出待选课程之间、待选课程与已选课程之间的全部时间冲突
+     * 已选课程不作为待选课程参与检查；课程名称批量读取
+     */
+    public List<ScheduleConflictDTO> previewConflicts(List<Long> courseIds, Long studentId) {
+        List<Long> ids = courseIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            throw new RuntimeException("课程ID不能为空");
+        }
+        if (ids.size() > maxBatchSize) {
+            throw new RuntimeException("一次最多检查" + maxBatchSize + "门课程");
+        }
+
+        List<CourseSchedule> enrolledSchedules = scheduleRepository.findByStudentEnrolled(studentId);
+        Set<Long> enrolledCourseIds = new HashSet<>();
+        ScheduleSweepLine sweepLine = new ScheduleSweepLine();
+        for (CourseSchedule schedule : enrolledSchedules) {
+            enrolledCourseIds.add(schedule.getCourseId());
+            sweepLine.add(schedule, false);
+        }
+
+        Set<Long> candidateIds = new HashSet<>(ids);
+        candidateIds.removeAll(enrolledCourseIds);
+        Set<Long> allIds = new HashSet<>(candidateIds);
+        allIds.addAll(enrolledCourseIds);
+        Map<Long, Course> courseMap = courseCacheService.getCourses(allIds);
+
+        for (Long courseId : candidateIds) {
+            if (courseMap.containsKey(courseId)) {
+                for (CourseSchedule schedule : courseCacheService.getSchedules(courseId)) {
+                    sweepLine.add(schedule, true);
+                }
+            }
+        }
+
+        List<ScheduleConflictDTO> conflicts = new ArrayList<>();
+        for (ScheduleSweepLine.Clash clash : sweepLine.findClashes()) {
+            // 以待选课程为主，冲突对象优先显示已选课程
+            CourseSchedule mine = clash.second();
+            CourseSchedule other = clash.first();
+            if (!candidateIds.contains(mine.getCourseId()) || enrolledCourseIds.contains(mine.getCourseId())) {
+                mine = clash.first();
+                other = clash.second();
+            }
+
+            ScheduleConflictDTO dto = new ScheduleConflictDTO();
+            dto.setCourseId(mine.getCourseId());
+            dto.setCourseName(courseName(courseMap, mine.getCourseId()));
+            dto.setConflictCourseId(other.getCourseId());
+            dto.setConflictCourseName(courseName(courseMap, other.getCourseId()));
+            dto.setConflictEnrolled(enrolledCourseIds.contains(other.getCourseId()));
+            dto.setDayOfWeek(clash.dayOfWeek());
+            dto.setDayName(getDayName(clash.dayOfWeek()));
+            dto.setSectionStart(clash.sectionStart());
+            dto.setSectionEnd(clash.sectionEnd());
+            dto.setWeeks(ScheduleSweepLine.weekText(clash.weekMask()));
+            conflicts.add(dto);
+        }
+        return conflicts;
+    }
+
+    private String courseName(Map<Long, Course> courseMap, Long courseId) {
+        Course course = courseMap.get(courseId);
+        return course != null ? course.getCourseName() : "未知课程";
+    }
+
+    /**
+     * 检查课程的选课时间窗口，不在窗口内时返回提示信息
+     * 抽签课程在抽签完成前只能填报志愿，抽签后剩余名额按先到先得选课
+     */
+    private String checkEnrollWindow(Course course) {
+        if ("LOTTERY".equals(course.getEnrollMode())) {
+            return course.getLotteryDrawnAt() == null ? "该课程为抽签选课，请在选课时间内填报志愿" : null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (course.getEnrollStartAt() != null && now.isBefore(course.getEnrollStartAt())) {
+            return "该课程选课尚未开始";
+        }
+        if (course.getEnrollEndAt() != null && !now.isBefore(course.getEnrollEndAt())) {
+            return "该课程选课已结束";
+        }
+        return null;
+    }
+
+    /**
+     * 检查选课时间冲突，返回新课程的占用位图
+     */
+    private TimetableBitmap checkScheduleConflict(Long newCourseId, Long studentId) {
+        return checkScheduleConflict(newCourseId, studentId, null);
+    }
+
+    /**
+     * @param excludeCourseId 不参与检查的已选课程（换课时即将退掉的课程），可为null
+     */
+    private TimetableBitmap checkScheduleConflict(Long newCourseId, Long studentId, Long excludeCourseId) {
+        // 获取新课程的占用位图
+        TimetableBitmap newBitmap = timetableService.getCourseBitmap(newCourseId);
+        if (newBitmap.isEmpty()) {
+            return newBitmap; // 没有时间安排，不检查冲突
+        }
+
+        // 与学生已选课程的位图逐字求交；有排除的课程时用其余已选课程的位图重新合并，
+        // 不能从学生位图中扣掉，否则排除课程与其他课程重叠的格子（历史数据、时间安排修改）也会被清掉
+        TimetableBitmap studentBitmap;
+        if (excludeCourseId == null) {
+            studentBitmap = timetableService.getStudentBitmap(studentId);
+        } else {
+            studentBitmap = new TimetableBitmap();
+            for (Long courseId : enrollmentRepository.findEnrolledCourseIdsByStudentId(studentId)) {
+                if (!excludeCourseId.equals(courseId)) {
+                    studentBitmap.or(timetableService.getCourseBitmap(courseId));
                 }
             }
         }
+        if (!newBitmap.intersects(studentBitmap)) {
+            return newBitmap;
+        }
+
+        // 有冲突时才加载已选课程的时间安排，定位冲突课程
+        List<CourseSchedule> enrolledSchedules = scheduleRepository.findByStudentEnrolled(studentId);
+        List<CourseSchedule> checkedSchedules = excludeCourseId == null ? enrolledSchedules
+                : enrolledSchedules.stream().filter(s -> !excludeCourseId.equals(s.getCourseId())).toList();
+        String conflictMessage = describeConflict(newBitmap, checkedSchedules);
+        if (conflictMessage != null) {
+            throw new RuntimeException(conflictMessage);
+        }
+
+        // 缓存与数据库不一致，按数据库重建
+        timetableService.rebuild(studentId, enrolledSchedules);
+        return newBitmap;
+    }
+
+    /**
+     * 在已选课程的时间安排中找出与新课程冲突的一条，生成提示信息；没有冲突返回null
+     */
+    private String describeConflict(TimetableBitmap newBitmap, List<CourseSchedule> enrolledSchedules) {
+        for (CourseSchedule existSch : enrolledSchedules) {
+            int bit = TimetableBitmap.of(existSch).firstIntersection(newBitmap);
+            if (bit >= 0) {
+                Course conflictCourse = courseCacheService.getCourse(existSch.getCourseId()).orElse(null);
+                String conflictName = conflictCourse != null ? conflictCourse.getCourseName() : "未知课程";
+                String dayName = getDayName(TimetableBitmap.dayOf(bit));
+                int[] sections = TimetableBitmap.sectionRange(existSch);
+                return "时间冲突：与「" + conflictName + "」在第" + TimetableBitmap.weekOf(bit) + "周" +
+                    dayName + "第" + sections[0] + "-" + sections[1] + "节冲突";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 学生已有该课程的选课记录时，只有已退课的记录可以重新激活；已选或已修完时返回提示，否则返回null
+     * （course_id, student_id）唯一，不能再插入新记录
+     */
+    static String reenrollMessage(CourseEnrollment existing) {
+        if (existing == null || "DROPPED".equals(existing.getEnrollmentStatus())) {
+            return null;
+        }
+        return "ENROLLED".equals(existing.getEnrollmentStatus()) ? "您已选择该课程" : "您已修完该课程，不能重复选课";
+    }
+
+    private EnrollmentDTO toDTO(CourseEnrollment enrollment, Course course) {
+        EnrollmentDTO dto = EnrollmentDTO.fromEntity(enrollment);
+        dto.setCourseCode(course.getCourseCode());
+        dto.setCourseName(course.getCourseName());
+        dto.setTeacherName(course.getTeacherName());
+        dto.setCredit(course.getCredit());
+        return dto;
     }
 
     private String getDayName(int dayOfWeek) {
@@ -209,8 +508,145 @@ public class CourseEnrollmentService {
         enrollment.setDroppedAt(LocalDateTime.now());
         enrollmentRepository.save(enrollment);
 
-        // 减少课程选课人数
-        courseRepository.decrementCurrentStudents(enrollment.getCourseId());
+        // 从学生课表位图中移除该课程
+        timetableService.onDropped(studentId);
+        studentLoadService.adjust(studentId, -1,
+                creditOf(courseCacheService.getCourse(enrollment.getCourseId()).orElse(null)).negate());
+
+        releaseDroppedSeat(enrollment.getCourseId());
+    }
+
+    /**
+     * 换课：在同一事务中退掉课程A并选上课程B
+     * 冲突检查时排除课程A，先占用B的名额，成功后才退A，B已满时A保持不变
+     */
+    @Transactional
+    public EnrollmentDTO swapCourse(Long fromCourseId, Long toCourseId, Long studentId, Long userId) {
+        if (fromCourseId.equals(toCourseId)) {
+            throw new RuntimeException("换入和换出的课程不能相同");
+        }
+
+        CourseEnrollment from = enrollmentRepository.findByCourseIdAndStudentId(fromCourseId, studentId)
+                .filter(e -> "ENROLLED".equals(e.getEnrollmentStatus()))
+                .orElseThrow(() -> new RuntimeException("您未选择要退掉的课程"));
+
+        Course course = courseCacheService.getCourse(toCourseId)
+                .orElseThrow(() -> new RuntimeException("课程不存在"));
+        if (!"ACTIVE".equals(course.getStatus())) {
+            throw new RuntimeException("该课程当前不可选");
+        }
+        String windowMessage = checkEnrollWindow(course);
+        if (windowMessage != null) {
+            throw new RuntimeException(windowMessage);
+        }
+
+        // 只有已退课的记录可以重新激活
+        Optional<CourseEnrollment> existing = enrollmentRepository.findByCourseIdAndStudentId(toCourseId, studentId);
+        String existingMessage = reenrollMessage(existing.orElse(null));
+        if (existingMessage != null) {
+            throw new RuntimeException(existingMessage);
+        }
+        prerequisiteService.checkPrerequisites(toCourseId, studentId);
+
+        // 退一门选一门，选课数量不变，只检查学分差额；冲突检查不计入即将退掉的课程
+        Course fromCourse = courseCacheService.getCourse(fromCourseId).orElse(null);
+        BigDecimal creditDelta = creditOf(course).subtract(creditOf(fromCourse));
+        studentLoadService.check(studentLoadService.getLoad(studentId), 0, creditDelta);
+        TimetableBitmap courseBitmap = checkScheduleConflict(toCourseId, studentId, fromCourseId);
+
+        if (!seatReservationService.claimSeat(course)) {
+            throw new RuntimeException("该课程选课人数已满，换课未执行");
+        }
+
+        from.setEnrollmentStatus("DROPPED");
+        from.setDroppedAt(LocalDateTime.now());
+        enrollmentRepository.save(from);
+
+        CourseEnrollment enrollment = existing.orElseGet(CourseEnrollment::new);
+        enrollment.setCourseId(toCourseId);
+        enrollment.setStudentId(studentId);
+        enrollment.setUserId(userId);
+        enrollment.setEnrollmentStatus("ENROLLED");
+        enrollment.setEnrolledAt(LocalDateTime.now());
+        enrollment.setDroppedAt(null);
+        enrollment = enrollmentRepository.save(enrollment);
+        waitlistRepository.deleteByCourseIdAndStudentIdIn(toCourseId, List.of(studentId));
+
+        timetableService.onDropped(studentId);
+        timetableService.onEnrolled(studentId, courseBitmap);
+        studentLoadService.adjust(studentId, 0, creditDelta);
+
+        releaseDroppedSeat(fromCourseId);
+
+        String fromName = fromCourse != null ? fromCourse.getCourseName() : "未知课程";
+        notificationService.sendNotification(userId, "换课成功",
+            "您已将课程「" + fromName + "」换为「" + course.getCourseName() + "」", "ENROLL_SUCCESS", toCourseId);
+
+        return toDTO(enrollment, course);
+    }
+
+    /**
+     * 退课后处理空出的名额：优先转给候补队首，无人递补时才减少课程选课人数
+     */
+    private void releaseDroppedSeat(Long courseId) {
+        Course course = courseRepository.findById(courseId).orElse(null);
+        boolean handedOver = course != null && course.getMaxStudents() > 0 && promoteFromWaitlist(course);
+        if (!handedOver && course != null) {
+            seatReservationService.releaseSeat(course);
+        }
+    }
+
+    /**
+     * 候补递补：把退课空出的名额直接转给候补队首，成功返回true
+     * 队首学生不再满足条件（选课数量已满、时间冲突）时移出候补并通知，继续尝试下一位
+     */
+    private boolean promoteFromWaitlist(Course course) {
+        for (int attempt = 0; attempt < maxPromotionAttempts; attempt++) {
+            Optional<CourseWaitlist> head = waitlistRepository.findFirstByCourseIdOrderByIdAsc(course.getId());
+            if (head.isEmpty()) {
+                return false;
+            }
+            CourseWaitlist entry = head.get();
+            waitlistRepository.delete(entry);
+
+            Long studentId = entry.getStudentId();
+            Optional<CourseEnrollment> existing = enrollmentRepository.findByCourseIdAndStudentId(course.getId(), studentId);
+            if (existing.isPresent() && "ENROLLED".equals(existing.get().getEnrollmentStatus())) {
+                continue;
+            }
+
+            TimetableBitmap courseBitmap;
+            try {
+                // 只有已退课的记录可以重新激活，已修完的课程不能递补
+                String existingMessage = reenrollMessage(existing.orElse(null));
+                if (existingMessage != null) {
+                    throw new RuntimeException(existingMessage);
+                }
+                studentLoadService.check(studentLoadService.getLoad(studentId), 1, creditOf(course));
+                courseBitmap = checkScheduleConflict(course.getId(), studentId);
+            } catch (RuntimeException e) {
+                notificationService.sendNotification(entry.getUserId(), "候补失败",
+                    "课程「" + course.getCourseName() + "」有空余名额，但未能为您递补：" + e.getMessage(),
+                    "WAITLIST_FAILED", course.getId());
+                continue;
+            }
+
+            CourseEnrollment enrollment = existing.orElseGet(CourseEnrollment::new);
+            enrollment.setCourseId(course.getId());
+            enrollment.setStudentId(studentId);
+            enrollment.setUserId(entry.getUserId());
+            enrollment.setEnrollmentStatus("ENROLLED");
+            enrollment.setEnrolledAt(LocalDateTime.now());
+            enrollment.setDroppedAt(null);
+            enrollmentRepository.save(enrollment);
+            timetableService.onEnrolled(studentId, courseBitmap);
+            studentLoadService.adjust(studentId, 1, creditOf(course));
+
+            notificationService.sendNotification(entry.getUserId(), "候补成功",
+                "您已从候补名单递补选上课程「" + course.getCourseName() + "」", "ENROLL_SUCCESS", course.getId());
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -308,4 +744,8 @@ public class CourseEnrollmentService {
 
         return events;
     }
+
+    private static BigDecimal creditOf(Course course) {
+        return course != null && course.getCredit() != null ? course.getCredit() : BigDecimal.ZERO;
+    }
 }
@@ -0,0 +1,196 @@
+package com.example.backend.service;
+
+import com.example.backend.config.RabbitMQConfig;
+import com.example.backend.entity.Course;
+import com.example.backend.es.CourseDocument;
+import com.example.backend.es.CourseEsRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.util.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * 课程关键词搜索
+ * 课程名称、编号、教师和简介索引在ES中，按状态过滤后全文匹配，只取课程ID，再按主键从数据库读取课程；
+ * ES不可用（连接失败、索引不存在等）时才回退到数据库的LIKE查询。
+ * 课程变更时在同一事务中经发件箱投递同步消息，消费者按数据库最新状态写入ES，失败时由消息重试；
+ * 重试用尽仍失败的可通过重建索引修复
+ */
+@Service
+public class CourseSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseSearchService.class);
+
+    private static final int REINDEX_BATCH = 500;
+
+    // 与课程列表一致：按创建时间倒序，相同时按ID倒序
+    private static final Sort ORDER = Sort.by(Sort.Direction.DESC, "createdAtMillis", "courseId");
+
+    @Autowired
+    private CourseEsRepository courseEsRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseCatalogCacheService catalogCacheService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    /**
+     * 按页码搜索课程
+     */
+    public Page<Course> searchCourses(String status, String keyword, Pageable pageable) {
+        try {
+            Page<CourseDocument> hits = courseEsRepository.searchByStatusAndKeyword(status, keyword,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), ORDER));
+            return new PageImpl<>(loadInOrder(hits.getContent()), pageable, hits.getTotalElements());
+        } catch (Exception e) {
+            log.warn("ES课程搜索失败，回退到数据库: {}", e.getMessage());
+        }
+        return courseRepository.searchCourses(status, keyword, pageable);
+    }
+
+    /**
+     * 游标分页搜索课程，after为null时取第一页，fetch为CursorPage.fetch(size)
+     */
+    public List<Course> searchCoursesBefore(String status, String keyword, PageCursor after, Pageable fetch) {
+        try {
+            List<CourseDocument> hits;
+            if (after == null || after.createdAt() == null) {
+                hits = courseEsRepository.searchByStatusAndKeyword(status, keyword,
+                        PageRequest.of(0, fetch.getPageSize(), ORDER)).getContent();
+            } else {
+                long createdAtMillis = after.createdAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                hits = courseEsRepository.searchByStatusAndKeywordBefore(status, keyword, createdAtMillis, after.id(),
+                        PageRequest.of(0, fetch.getPageSize(), ORDER));
+            }
+            return loadInOrder(hits);
+        } catch (Exception e) {
+            log.warn("ES课程搜索失败，回退到数据库: {}", e.getMessage());
+        }
+        return courseRepository.findPageBefore(status, keyword, after != null ? after.createdAt() : null,
+                after != null ? after.id() : null, fetch);
+    }
+
+    /**
+     * 搜索结果总数
+     */
+    public long countCourses(String status, String keyword) {
+        try {
+            return courseEsRepository.searchByStatusAndKeyword(status, keyword, PageRequest.of(0, 1)).getTotalElements();
+        } catch (Exception e) {
+            log.warn("ES课程计数失败，回退到数据库: {}", e.getMessage());
+        }
+        return courseRepository.countCatalog(status, keyword);
+    }
+
+    /**
+     * 课程新增、修改、删除后同步索引（在调用方事务中写入发件箱，提交后投递）
+     */
+    public void syncCourse(Long courseId) {
+        outboxService.enqueue(RabbitMQConfig.COURSE_INDEX_EXCHANGE, RabbitMQConfig.COURSE_INDEX_ROUTING_KEY, courseId);
+    }
+
+    /**
+     * MQ消费者 - 按数据库中的最新状态写入或删除索引，重复投递结果相同；失败时抛出，由容器退避重试
+     */
+    @RabbitListener(queues = RabbitMQConfig.COURSE_INDEX_QUEUE, containerFactory = "courseIndexListenerContainerFactory")
+    public void handleIndex(Long courseId) {
+        try {
+            index(courseId);
+        } catch (RuntimeException e) {
+            log.warn("同步课程索引失败 {}: {}", courseId, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 重建全部课程索引，返回索引的课程数
+     */
+    public int reindexAll() {
+        int count = 0;
+        Page<Course> page;
+        int pageNumber = 0;
+        do {
+            page = courseRepository.findAll(PageRequest.of(pageNumber++, REINDEX_BATCH, Sort.by("id")));
+            List<CourseDocument> documents = page.getContent().stream().map(CourseDocument::fromEntity).toList();
+            if (!documents.isEmpty()) {
+                courseEsRepository.saveAll(documents);
+                count += documents.size();
+            }
+        } while (page.hasNext());
+        catalogCacheService.invalidate();
+        log.info("课程索引重建完成，共{}门课程", count);
+        return count;
+    }
+
+    /**
+     * 启动后索引为空（首次部署或索引被删除）时在后台建立索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIndex() {
+        taskExecutor.execute(() -> {
+            try {
+                if (courseEsRepository.count() == 0) {
+                    reindexAll();
+                }
+            } catch (Exception e) {
+                log.warn("初始化课程索引失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void index(Long courseId) {
+        Optional<Course> course = courseRepository.findById(courseId);
+        if (course.isPresent()) {
+            courseEsRepository.save(CourseDocument.fromEntity(course.get()), RefreshPolicy.WAIT_UNTIL);
+        } else {
+            courseEsRepository.deleteById(courseId.toString(), RefreshPolicy.WAIT_UNTIL);
+        }
+        // 索引可见后再使目录缓存失效一次，丢弃索引更新前缓存的搜索结果
+        catalogCacheService.invalidate();
+    }
+
+    // 按搜索结果的顺序从数据库读取课程，已删除的课程跳过
+    private List<Course> loadInOrder(List<CourseDocument> hits) {
+        List<Long> ids = hits.stream().map(CourseDocument::getCourseId).toList();
+        Map<Long, Course> courses = new HashMap<>();
+        for (Course course : courseRepository.findAllById(ids)) {
+            courses.put(course.getId(), course);
+        }
+        List<Course> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Course course = courses.get(id);
+            if (course != null) {
+                result.add(course);
+            }
+        }
+        return result;
+    }
+}
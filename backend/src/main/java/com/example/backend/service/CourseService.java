@@ -2,20 +2,29 @@ package com.example.backend.service;
 
 import com.example.backend.dto.CourseCreateRequest;
 import com.example.backend.dto.CourseDTO;
+import com.example.backend.dto.CursorPage;
 import com.example.backend.dto.ScheduleDTO;
 import com.example.backend.entity.Course;
 import com.example.backend.entity.CourseSchedule;
 import com.example.backend.repository.CourseAttachmentRepository;
 import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CoursePreferenceRepository;
 import com.example.backend.repository.CourseRepository;
 import com.example.backend.repository.CourseScheduleRepository;
+import com.example.backend.repository.CourseWaitlistRepository;
+import com.example.backend.util.PageCursor;
+import com.example.backend.util.TimetableBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,42 +42,98 @@ public class CourseService {
     @Autowired
     private CourseAttachmentRepository attachmentRepository;
 
-    /**
-     * 获取课程列表（分页）
-     */
-    public Page<CourseDTO> getCourses(String keyword, String status, Long studentId, Pageable pageable) {
-        Page<Course> courses;
+    @Autowired
+    private CourseWaitlistRepository waitlistRepository;
 
-        if (keyword != null && !keyword.isEmpty()) {
-            courses = courseRepository.searchCourses(status != null ? status : "ACTIVE", keyword, pageable);
-        } else {
-            courses = courseRepository.findByStatus(status != null ? status : "ACTIVE", pageable);
-        }
+    @Autowired
+    private CoursePreferenceRepository preferenceRepository;
 
-        // 获取学生已选课程ID列表
-        List<Long> enrolledCourseIds = studentId != null ?
-                enrollmentRepository.findEnrolledCourseIdsByStudentId(studentId) : List.of();
+    @Autowired
+    private SeatReservationService seatReservationService;
 
-        return courses.map(course -> {
-            CourseDTO dto = CourseDTO.fromEntity(course);
-            dto.setEnrolled(enrolledCourseIds.contains(course.getId()));
-            dto.setAttachmentCount((int) attachmentRepository.countByCourseId(course.getId()));
-            return dto;
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    @Autowired
+    private CourseCatalogCacheService catalogCacheService;
+
+    @Autowired
+    private CourseSearchService courseSearchService;
+
+    /**
+     * 获取课程列表（分页）：所有学生共用的序列化课程页，不含当前人数和已选标记，见getCatalogOverlay
+     */
+    public CourseCatalogCacheService.SharedPage getCatalogPage(String keyword, String status, Pageable pageable) {
+        String courseStatus = status != null ? status : "ACTIVE";
+        String query = courseStatus + "|" + pageable.getPageNumber() + "|" + pageable.getPageSize() + "|"
+                + pageable.getSort() + "|" + (keyword != null ? keyword : "");
+        return catalogCacheService.getPage(query, () -> loadCatalogPage(keyword, courseStatus, pageable));
+    }
+
+    /**
+     * 游标分页获取课程列表，按创建时间倒序，翻页深度不影响查询代价；有关键词时由ES搜索，withTotal为true时才统计总数
+     */
+    public CourseCatalogCacheService.SharedPage getCatalogSlice(String keyword, String status, String cursor,
+                                                                int size, boolean withTotal) {
+        String courseStatus = status != null ? status : "ACTIVE";
+        String courseKeyword = keyword != null && !keyword.isEmpty() ? keyword : null;
+        PageCursor after = PageCursor.decode(cursor);
+        String query = "cursor|" + courseStatus + "|" + size + "|" + withTotal + "|"
+                + (after != null ? after.encode() : "") + "|" + (courseKeyword != null ? courseKeyword : "");
+        return catalogCacheService.getPage(query, () -> {
+            List<Course> rows;
+            Long total = null;
+            if (courseKeyword != null) {
+                rows = courseSearchService.searchCoursesBefore(courseStatus, courseKeyword, after, CursorPage.fetch(size));
+                if (withTotal) {
+                    total = courseSearchService.countCourses(courseStatus, courseKeyword);
+                }
+            } else {
+                rows = courseRepository.findPageBefore(courseStatus, null,
+                        after != null ? after.createdAt() : null, after != null ? after.id() : null, CursorPage.fetch(size));
+                if (withTotal) {
+                    total = courseRepository.countCatalog(courseStatus, null);
+                }
+            }
+            CursorPage<Course> page = CursorPage.of(rows, size, c -> new PageCursor(c.getCreatedAt(), c.getId()).encode(),
+                    c -> c, total);
+            return new CourseCatalogCacheService.CatalogPage(toCatalogEntries(page.getContent()), total, null, null, null,
+                    page.getNextCursor());
         });
     }
 
+    /**
+     * 课程列表页的实时数据：各课程当前人数（本节点短暂缓存）和当前学生在本页中已选的课程ID
+     */
+    public Map<String, Object> getCatalogOverlay(List<Long> courseIds, Long studentId) {
+        List<Long> enrolledCourseIds = studentId != null && !courseIds.isEmpty()
+                ? enrollmentRepository.findEnrolledCourseIdsByStudentIdAndCourseIdIn(studentId, courseIds)
+                : List.of();
+        Map<String, Object> overlay = new LinkedHashMap<>();
+        overlay.put("currentStudents", catalogCacheService.getCurrentStudents(courseIds, this::loadCurrentStudents));
+        overlay.put("enrolledCourseIds", enrolledCourseIds);
+        return overlay;
+    }
+
     /**
      * 获取课程详情
      */
     public CourseDTO getCourseDetail(Long courseId, Long studentId) {
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new RuntimeException("课程不存在"));
-
-        CourseDTO dto = CourseDTO.fromEntity(course);
-
-        // 获取时间安排
-        List<CourseSchedule> schedules = scheduleRepository.findByCourseId(courseId);
-        dto.setSchedules(schedules.stream().map(ScheduleDTO::fromEntity).collect(Collectors.toList()));
+        CourseDTO dto = catalogCacheService.getDetail(courseId, () -> {
+            CourseDTO loaded = loadCourseDetail(courseId);
+            loaded.setCurrentStudents(null);
+            return loaded;
+        });
+        dto.setCurrentStudents(catalogCacheService.getCurrentStudents(List.of(courseId), this::loadCurrentStudents).get(courseId));
 
         // 检查是否已选
         if (studentId != null) {
@@ -76,8 +141,6 @@ public class CourseService {
                     courseId, studentId, "ENROLLED"));
         }
 
-        dto.setAttachmentCount((int) attachmentRepository.countByCourseId(courseId));
-
         return dto;
     }
 
@@ -90,6 +153,8 @@ public class CourseService {
         if (courseRepository.existsByCourseCode(request.getCourseCode())) {
             throw new RuntimeException("课程编号已存在");
         }
+        validateEnrollWindow(request);
+        validateSchedules(request);
 
         Course course = new Course();
         course.setCourseCode(request.getCourseCode());
@@ -101,6 +166,9 @@ public class CourseService {
         course.setCourseType(request.getCourseType() != null ? request.getCourseType() : "REQUIRED");
         course.setStartDate(request.getStartDate());
         course.setEndDate(request.getEndDate());
+        course.setEnrollStartAt(request.getEnrollStartAt());
+        course.setEnrollEndAt(request.getEnrollEndAt());
+        course.setEnrollMode(request.getEnrollMode() != null ? request.getEnrollMode() : "FCFS");
         course.setCoverImage(request.getCoverImage());
         course.setCreatedBy(createdBy);
         course.setStatus("ACTIVE");
@@ -116,8 +184,10 @@ public class CourseService {
                 scheduleRepository.save(schedule);
             }
         }
+        catalogCacheService.invalidate();
+        courseSearchService.syncCourse(course.getId());
 
-        return getCourseDetail(course.getId(), null);
+        return loadCourseDetail(course.getId());
     }
 
     /**
@@ -134,6 +204,11 @@ public class CourseService {
             throw new RuntimeException("课程编号已存在");
         }
 
+        validateEnrollWindow(request);
+        validateSchedules(request);
+        int oldMaxStudents = course.getMaxStudents() != null ? course.getMaxStudents() : 0;
+        boolean creditChanged = StudentLoadService.toCents(course.getCredit()) != StudentLoadService.toCents(request.getCredit());
+
         course.setCourseCode(request.getCourseCode());
         course.setCourseName(request.getCourseName());
         course.setDescription(request.getDescription());
@@ -143,12 +218,29 @@ public class CourseService {
         course.setCourseType(request.getCourseType());
         course.setStartDate(request.getStartDate());
         course.setEndDate(request.getEndDate());
+        course.setEnrollStartAt(request.getEnrollStartAt());
+        course.setEnrollEndAt(request.getEnrollEndAt());
+        course.setEnrollMode(request.getEnrollMode() != null ? request.getEnrollMode() : "FCFS");
         course.setCoverImage(request.getCoverImage());
 
         courseRepository.save(course);
+        courseCacheService.evict(courseId);
+        catalogCacheService.invalidate();
+        courseSearchService.syncCourse(courseId);
+
+        // 同步调整Redis中的剩余名额或名额分片
+        seatReservationService.adjustCapacity(course, oldMaxStudents);
+
+        // 学分变化时已选学生的学分合计失效
+        if (creditChanged) {
+            studentLoadService.evict(enrollmentRepository.findEnrolledStudentIdsByCourseId(courseId));
+        }
 
         // 更新时间安排：先删除旧的，再添加新的
         if (request.getSchedules() != null) {
+            // 已选学生的课表位图失效
+            timetableService.evictCourseStudents(courseId);
+
             scheduleRepository.deleteByCourseId(courseId);
             for (ScheduleDTO scheduleDTO : request.getSchedules()) {
                 CourseSchedule schedule = scheduleDTO.toEntity();
@@ -158,7 +250,7 @@ public class CourseService {
             }
         }
 
-        return getCourseDetail(courseId, null);
+        return loadCourseDetail(courseId);
     }
 
     /**
@@ -176,20 +268,140 @@ public class CourseService {
             throw new RuntimeException("该课程还有" + enrolledCount + "名学生选课，无法删除");
         }
 
-        // 删除时间安排
+        // 删除时间安排、候补名单、抽签志愿和先修关系
         scheduleRepository.deleteByCourseId(courseId);
+        prerequisiteService.removeCourse(courseId);
+        waitlistRepository.deleteByCourseId(courseId);
+        preferenceRepository.deleteByCourseId(courseId);
 
         // 删除课程（附件需要单独处理）
         courseRepository.deleteById(courseId);
+        courseCacheService.evict(courseId);
+        catalogCacheService.invalidate();
+        courseSearchService.syncCourse(courseId);
     }
 
     /**
      * 更新课程状态
      */
+    @Transactional
     public void updateCourseStatus(Long courseId, String status) {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("课程不存在"));
+        // 归档课程的选课记录已移出主表，不能再恢复为可选
+        if ("ARCHIVED".equals(course.getStatus()) || "ARCHIVED".equals(status)) {
+            throw new RuntimeException("课程归档由系统在结课后自动完成，不能手动修改");
+        }
         course.setStatus(status);
         courseRepository.save(course);
+        courseCacheService.evict(courseId);
+        catalogCacheService.invalidate();
+        courseSearchService.syncCourse(courseId);
+    }
+
+    /**
+     * 加载一页课程，有关键词时由ES搜索，SQL条数与每页大小无关
+     */
+    private CourseCatalogCacheService.CatalogPage loadCatalogPage(String keyword, String status, Pageable pageable) {
+        Page<Course> courses;
+
+        if (keyword != null && !keyword.isEmpty()) {
+            courses = courseSearchService.searchCourses(status, keyword, pageable);
+        } else {
+            courses = courseRepository.findByStatus(status, pageable);
+        }
+
+        return new CourseCatalogCacheService.CatalogPage(toCatalogEntries(courses.getContent()), courses.getTotalElements(),
+                courses.getTotalPages(), courses.getNumber(), courses.getSize(), null);
+    }
+
+    /**
+     * 转换为目录缓存中的课程：整页一次性补充附件数量，不含当前人数
+     */
+    private List<CourseDTO> toCatalogEntries(List<Course> courses) {
+        List<Long> courseIds = courses.stream().map(Course::getId).toList();
+        Map<Long, Integer> attachmentCounts = new HashMap<>();
+        if (!courseIds.isEmpty()) {
+            for (Object[] row : attachmentRepository.countGroupByCourseIdIn(courseIds)) {
+                attachmentCounts.put((Long) row[0], ((Long) row[1]).intValue());
+            }
+        }
+
+        List<CourseDTO> content = new ArrayList<>(courseIds.size());
+        for (Course course : courses) {
+            CourseDTO dto = CourseDTO.fromEntity(course);
+            dto.setCurrentStudents(null);
+            dto.setAttachmentCount(attachmentCounts.getOrDefault(course.getId(), 0));
+            content.add(dto);
+        }
+        return content;
+    }
+
+    private CourseDTO loadCourseDetail(Long courseId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("课程不存在"));
+
+        CourseDTO dto = CourseDTO.fromEntity(course);
+
+        // 获取时间安排
+        List<CourseSchedule> schedules = scheduleRepository.findByCourseId(courseId);
+        dto.setSchedules(schedules.stream().map(ScheduleDTO::fromEntity).collect(Collectors.toList()));
+
+        dto.setAttachmentCount((int) attachmentRepository.countByCourseId(courseId));
+
+        return dto;
+    }
+
+    /**
+     * 读取当前人数：redis模式由剩余名额推算，Redis中没有的课程和db模式读取courses.current_students
+     */
+    private Map<Long, Integer> loadCurrentStudents(List<Long> courseIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        if (seatReservationService.isRedisMode()) {
+            Map<Long, Long> remaining = seatReservationService.getRemainingSeats(courseIds);
+            Map<Long, Course> courses = courseCacheService.getCourses(remaining.keySet());
+            for (Long courseId : courseIds) {
+                Long left = remaining.get(courseId);
+                Course course = courses.get(courseId);
+                if (left != null && course != null && course.getMaxStudents() != null && course.getMaxStudents() > 0) {
+                    counts.put(courseId, (int) Math.max(0, course.getMaxStudents() - left));
+                } else {
+                    missing.add(courseId);
+                }
+            }
+        } else {
+            missing.addAll(courseIds);
+        }
+        if (!missing.isEmpty()) {
+            for (Object[] row : courseRepository.findCurrentStudentsByIdIn(missing)) {
+                counts.put((Long) row[0], (Integer) row[1]);
+            }
+        }
+        return counts;
+    }
+
+    private void validateEnrollWindow(CourseCreateRequest request) {
+        if (request.getEnrollStartAt() != null && request.getEnrollEndAt() != null
+                && !request.getEnrollEndAt().isAfter(request.getEnrollStartAt())) {
+            throw new RuntimeException("选课结束时间必须晚于开始时间");
+        }
+        if ("LOTTERY".equals(request.getEnrollMode()) && request.getEnrollEndAt() == null) {
+            throw new RuntimeException("抽签选课必须设置选课结束时间");
+        }
+    }
+
+    // 课表位图只覆盖第1-WEEKS周，超出范围的周次无法参与冲突检测
+    private void validateSchedules(CourseCreateRequest request) {
+        if (request.getSchedules() == null) {
+            return;
+        }
+        for (ScheduleDTO schedule : request.getSchedules()) {
+            int weekStart = schedule.getWeekStart() != null ? schedule.getWeekStart() : 1;
+            int weekEnd = schedule.getWeekEnd() != null ? schedule.getWeekEnd() : TimetableBitmap.WEEKS;
+            if (weekStart < 1 || weekEnd > TimetableBitmap.WEEKS || weekStart > weekEnd) {
+                throw new RuntimeException("上课周次必须在第1-" + TimetableBitmap.WEEKS + "周之间，且开始周不能晚于结束周");
+            }
+        }
     }
 }
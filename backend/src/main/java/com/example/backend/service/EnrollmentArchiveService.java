@@ -0,0 +1,220 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.EnrollmentDTO;
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.entity.CourseEnrollmentArchive;
+import com.example.backend.repository.CourseEnrollmentArchiveRepository;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseWaitlistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 学期结束后的选课记录归档
+ * 结课超过一定天数的课程先标记为ARCHIVED（不再可选），再把它的选课记录按段移入course_enrollment_archive，
+ * 每段一个短事务；主表只保留当前学期的记录，热点查询扫描的数据量不随学期累积。
+ * 中途失败时课程已是ARCHIVED但主表仍有记录，下次执行会继续搬移。
+ * 成绩单和先修检查通过本类同时读取主表和归档表
+ */
+@Service
+public class EnrollmentArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentArchiveService.class);
+
+    private static final String LOCK_KEY = "enrollment:archive:lock";
+    private static final List<String> TRANSCRIPT_STATUSES = List.of("ENROLLED", "COMPLETED");
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseEnrollmentArchiveRepository archiveRepository;
+
+    @Autowired
+    private CourseWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private CourseCatalogCacheService catalogCacheService;
+
+    @Autowired
+    private CourseSearchService courseSearchService;
+
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 结课多少天后归档
+    @Value("${enrollment.archive.after-days:30}")
+    private int afterDays;
+
+    @Value("${enrollment.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    /**
+     * 定时归档
+     */
+    @Scheduled(cron = "${enrollment.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        try {
+            archive();
+        } catch (Exception e) {
+            log.warn("选课记录归档失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行一轮归档（多节点下用Redis锁保证只有一个节点执行）
+     */
+    public Map<String, Object> archive() {
+        String owner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, 1, TimeUnit.HOURS);
+        if (!Boolean.TRUE.equals(locked)) {
+            throw new RuntimeException("选课记录归档正在其他节点执行");
+        }
+        try {
+            return archiveClosedCourses();
+        } finally {
+            if (owner.equals(stringRedisTemplate.opsForValue().get(LOCK_KEY))) {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        }
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * 成绩单：主表和归档表中已选、已修完的全部课程
+     */
+    public List<EnrollmentDTO> getTranscript(Long studentId) {
+        List<EnrollmentDTO> result = new ArrayList<>();
+        for (CourseEnrollment enrollment : enrollmentRepository.findByStudentIdAndEnrollmentStatusIn(studentId, TRANSCRIPT_STATUSES)) {
+            result.add(EnrollmentDTO.fromEntity(enrollment));
+        }
+        for (CourseEnrollmentArchive archived : archiveRepository.findByStudentIdAndEnrollmentStatusIn(studentId, TRANSCRIPT_STATUSES)) {
+            result.add(EnrollmentDTO.fromArchive(archived));
+        }
+
+        Map<Long, Course> courses = courseCacheService.getCourses(result.stream().map(EnrollmentDTO::getCourseId).distinct().toList());
+        for (EnrollmentDTO dto : result) {
+            Course course = courses.get(dto.getCourseId());
+            if (course != null) {
+                dto.setCourseCode(course.getCourseCode());
+                dto.setCourseName(course.getCourseName());
+                dto.setTeacherName(course.getTeacherName());
+                dto.setCredit(course.getCredit());
+            }
+        }
+        result.sort(Comparator.comparing(EnrollmentDTO::getEnrolledAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+
+    /**
+     * 学生已修完的课程（主表和归档表）
+     */
+    public List<Long> completedCourseIds(Long studentId) {
+        List<Long> ids = new ArrayList<>(enrollmentRepository.findCompletedCourseIdsByStudentId(studentId));
+        ids.addAll(archiveRepository.findCompletedCourseIdsByStudentId(studentId));
+        return ids;
+    }
+
+    /**
+     * 批量读取归档表中学生已修完的课程，主表部分由调用方随选课记录一起读取
+     */
+    public Map<Long, List<Long>> archivedCompletedCourseIds(Collection<Long> studentIds) {
+        Map<Long, List<Long>> result = new HashMap<>();
+        if (studentIds.isEmpty()) {
+            return result;
+        }
+        for (Object[] row : archiveRepository.findCompletedRowsByStudentIdIn(studentIds)) {
+            result.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return result;
+    }
+
+    private Map<String, Object> archiveClosedCourses() {
+        long start = System.currentTimeMillis();
+        LocalDate cutoff = LocalDate.now().minusDays(afterDays);
+        List<Long> courseIds = courseRepository.findIdsToArchive(cutoff);
+        long moved = 0;
+        for (Long courseId : courseIds) {
+            moved += archiveCourse(courseId);
+        }
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("cutoff", cutoff);
+        run.put("courses", courseIds.size());
+        run.put("archived", moved);
+        run.put("totalMs", System.currentTimeMillis() - start);
+        run.put("finishedAt", LocalDateTime.now());
+        lastRun = run;
+        if (!courseIds.isEmpty()) {
+            log.info("选课记录归档完成：{}门课程，{}条记录", courseIds.size(), moved);
+        }
+        return run;
+    }
+
+    private long archiveCourse(Long courseId) {
+        // 先下架课程，搬移期间不会再有新的选课记录
+        transactionTemplate.executeWithoutResult(status -> {
+            courseRepository.markArchived(courseId);
+            waitlistRepository.deleteByCourseId(courseId);
+            courseSearchService.syncCourse(courseId);
+        });
+        courseCacheService.evict(courseId);
+        catalogCacheService.invalidate();
+
+        long moved = 0;
+        Set<Long> students = new HashSet<>();
+        while (true) {
+            List<Object[]> rows = enrollmentRepository.findIdRowsByCourseId(courseId, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                ids.add((Long) row[0]);
+                students.add((Long) row[1]);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            Integer count = transactionTemplate.execute(status -> enrollmentRepository.moveToArchive(ids, now));
+            moved += count != null ? count : 0;
+        }
+
+        // 已结课的课程不再占用学生的课表和选课数量
+        timetableService.evictStudents(students);
+        studentLoadService.evict(students);
+        return moved;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.backend.service;
+
+import com.example.backend.config.RabbitMQConfig;
+import com.example.backend.dto.EnrollmentDTO;
+import com.example.backend.dto.EnrollmentRequestMessage;
+import com.example.backend.dto.EnrollmentTicket;
+import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步排队选课
+ * 请求按课程ID分区投递到RabbitMQ，立即返回票据；消费者处理后通过WebSocket推送结果，也可轮询票据。
+ * 处理失败的消息重投一次，重投仍失败或无法解析的消息转入死信队列
+ */
+@Service
+public class EnrollmentQueueService implements RabbitListenerConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentQueueService.class);
+
+    private static final String TICKET_KEY_PREFIX = "enrollment:ticket:";
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private CourseEnrollmentService enrollmentService;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${enrollment.async.partitions:4}")
+    private int partitions;
+
+    @Value("${enrollment.async.ticket-ttl-minutes:30}")
+    private long ticketTtlMinutes;
+
+    /**
+     * 提交选课请求，返回票据
+     */
+    public EnrollmentTicket submit(Long courseId, Long studentId, Long userId) {
+        EnrollmentTicket ticket = new EnrollmentTicket();
+        ticket.setTicketId(UUID.randomUUID().toString().replace("-", ""));
+        ticket.setUserId(userId);
+        ticket.setCourseId(courseId);
+        ticket.setStatus("QUEUED");
+        ticket.setMessage("排队中");
+        ticket.setCreatedAt(System.currentTimeMillis());
+        saveTicket(ticket);
+
+        EnrollmentRequestMessage message = new EnrollmentRequestMessage();
+        message.setTicketId(ticket.getTicketId());
+        message.setCourseId(courseId);
+        message.setStudentId(studentId);
+        message.setUserId(userId);
+
+        rabbitTemplate.convertAndSend(
+            RabbitMQConfig.ENROLLMENT_EXCHANGE,
+            RabbitMQConfig.ENROLLMENT_ROUTING_KEY_PREFIX + partitionOf(courseId),
+            message
+        );
+
+        return ticket;
+    }
+
+    /**
+     * 查询票据（只能查询自己的）
+     */
+    public EnrollmentTicket getTicket(String ticketId, Long userId) {
+        Object value = redisTemplate.opsForValue().get(TICKET_KEY_PREFIX + ticketId);
+        if (!(value instanceof EnrollmentTicket ticket)) {
+            throw new RuntimeException("选课票据不存在或已过期");
+        }
+        if (!ticket.getUserId().equals(userId)) {
+            throw new RuntimeException("无权查看此选课票据");
+        }
+        return ticket;
+    }
+
+    /**
+     * 为每个分区注册一个单线程消费者，保证同一课程的请求串行处理
+     */
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (int i = 0; i < partitions; i++) {
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("enrollment-partition-" + i);
+            endpoint.setQueueNames(RabbitMQConfig.ENROLLMENT_QUEUE_PREFIX + i);
+            endpoint.setConcurrency("1");
+            endpoint.setMessageListener(this::onMessage);
+            registrar.registerEndpoint(endpoint);
+        }
+    }
+
+    private void onMessage(Message amqpMessage) {
+        EnrollmentRequestMessage message;
+        try {
+            message = objectMapper.readValue(amqpMessage.getBody(), EnrollmentRequestMessage.class);
+        } catch (Exception e) {
+            log.error("无法解析选课请求消息，转入死信队列: {}", e.getMessage());
+            throw new AmqpRejectAndDontRequeueException("无法解析选课请求消息", e);
+        }
+        boolean redelivered = Boolean.TRUE.equals(amqpMessage.getMessageProperties().getRedelivered());
+        try {
+            handleEnrollment(message, redelivered);
+        } catch (Exception e) {
+            if (redelivered) {
+                log.error("选课请求{}重投后仍处理失败，转入死信队列: {}", message.getTicketId(), e.getMessage());
+                throw new AmqpRejectAndDontRequeueException("选课请求处理失败", e);
+            }
+            log.warn("选课请求{}处理失败，等待重投: {}", message.getTicketId(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * MQ消费者 - 处理选课请求
+     * @param redelivered 消息是否为重投：上次可能已选课成功但票据未写入，已有选课记录时直接视为成功
+     */
+    public void handleEnrollment(EnrollmentRequestMessage message, boolean redelivered) {
+        EnrollmentTicket ticket = new EnrollmentTicket();
+        ticket.setTicketId(message.getTicketId());
+        ticket.setUserId(message.getUserId());
+        ticket.setCourseId(message.getCourseId());
+
+        Object stored = redisTemplate.opsForValue().get(TICKET_KEY_PREFIX + message.getTicketId());
+        if (stored instanceof EnrollmentTicket existing) {
+            // 消息重投时直接返回已处理的结果
+            if (!"QUEUED".equals(existing.getStatus())) {
+                return;
+            }
+            ticket.setCreatedAt(existing.getCreatedAt());
+        }
+
+        Optional<CourseEnrollment> enrolled = redelivered
+                ? enrollmentRepository.findByCourseIdAndStudentId(message.getCourseId(), message.getStudentId())
+                        .filter(e -> "ENROLLED".equals(e.getEnrollmentStatus()))
+                : Optional.empty();
+        if (enrolled.isPresent()) {
+            ticket.setStatus("SUCCESS");
+            ticket.setMessage("选课成功");
+            ticket.setEnrollmentId(enrolled.get().getId());
+        } else {
+            try {
+                EnrollmentDTO dto = enrollmentService.enrollCourse(
+                        message.getCourseId(), message.getStudentId(), message.getUserId());
+                ticket.setStatus("SUCCESS");
+                ticket.setMessage("选课成功");
+                ticket.setEnrollmentId(dto.getId());
+            } catch (Exception e) {
+                ticket.setStatus("FAILED");
+                ticket.setMessage(e.getMessage() != null ? e.getMessage() : "选课失败");
+            }
+        }
+        ticket.setFinishedAt(System.currentTimeMillis());
+        saveTicket(ticket);
+
+        // 通过WebSocket推送给用户
+        messagingTemplate.convertAndSendToUser(
+            message.getUserId().toString(),
+            "/queue/enrollments",
+            ticket
+        );
+    }
+
+    private int partitionOf(Long courseId) {
+        return (int) Math.floorMod(courseId, (long) partitions);
+    }
+
+    private void saveTicket(EnrollmentTicket ticket) {
+        redisTemplate.opsForValue().set(TICKET_KEY_PREFIX + ticket.getTicketId(), ticket,
+                ticketTtlMinutes, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 选课/退课请求幂等
+ * 客户端通过Idempotency-Key请求头标识一次操作，首次请求的响应保存在Redis中，
+ * 相同key的重试直接返回保存的响应，不再访问数据库
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String KEY_ATTR = "idempotencyRedisKey";
+    public static final String BODY_HASH_ATTR = "idempotencyBodyHash";
+
+    private static final String KEY_PREFIX = "enrollment:idem:";
+    private static final String PENDING = "PENDING";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${enrollment.idempotency.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    // 首次请求处理中的占位时长，节点宕机时占位自动失效
+    @Value("${enrollment.idempotency.pending-seconds:30}")
+    private long pendingSeconds;
+
+    // 本节点统计：带key的请求数、直接返回已保存响应数、处理中被拒绝数、保存响应数
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+
+    /**
+     * 已保存的响应；pending表示首次请求仍在处理中
+     */
+    public record StoredResponse(boolean pending, int status, String body) {
+    }
+
+    /**
+     * 按用户、请求方法、路径和请求体隔离，避免不同操作误用同一个key时返回其他操作的响应
+     */
+    public String redisKey(Long userId, String method, String uri, String bodyHash, String idempotencyKey) {
+        String raw = method + " " + uri + " " + bodyHash + " " + idempotencyKey;
+        return KEY_PREFIX + userId + ":" + DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 开始处理：首次请求占位并返回null，重复请求返回已保存的响应；Redis不可用时按首次请求处理
+     */
+    public StoredResponse begin(String redisKey) {
+        requests.increment();
+        try {
+            for (int i = 0; i < 2; i++) {
+                Boolean claimed = stringRedisTemplate.opsForValue()
+                        .setIfAbsent(redisKey, PENDING, pendingSeconds, TimeUnit.SECONDS);
+                if (Boolean.TRUE.equals(claimed)) {
+                    return null;
+                }
+                String value = stringRedisTemplate.opsForValue().get(redisKey);
+                if (value == null) {
+                    continue; // 占位恰好过期，重新抢占
+                }
+                if (PENDING.equals(value)) {
+                    inFlight.increment();
+                    return new StoredResponse(true, 0, null);
+                }
+                int split = value.indexOf('\n');
+                replayed.increment();
+                return new StoredResponse(false, Integer.parseInt(value.substring(0, split)), value.substring(split + 1));
+            }
+        } catch (Exception e) {
+            log.warn("读取幂等记录失败，按首次请求处理: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 请求处理完成：业务结果（2xx/4xx）保存下来，服务端错误和限流则删除占位，允许重试
+     */
+    public void complete(String redisKey, int status, String body) {
+        try {
+            if (status >= 500 || status == 429) {
+                stringRedisTemplate.delete(redisKey);
+                return;
+            }
+            stringRedisTemplate.opsForValue().set(redisKey, status + "\n" + body, ttlMinutes, TimeUnit.MINUTES);
+            stored.increment();
+        } catch (Exception e) {
+            log.warn("保存幂等响应失败: {}", e.getMessage());
+        }
+    }
+
+    public void abort(String redisKey) {
+        try {
+            stringRedisTemplate.delete(redisKey);
+        } catch (Exception e) {
+            log.warn("删除幂等占位失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 去重命中统计（本节点，自启动以来）
+     */
+    public Map<String, Object> getStats() {
+        long total = requests.sum();
+        long hits = replayed.sum() + inFlight.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", total);
+        stats.put("replayed", replayed.sum());
+        stats.put("inFlightRejected", inFlight.sum());
+        stats.put("stored", stored.sum());
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,394 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.NotificationMessage;
+import com.example.backend.dto.PreferenceDTO;
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.entity.CoursePreference;
+import com.example.backend.entity.CourseSchedule;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CoursePreferenceRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseScheduleRepository;
+import com.example.backend.util.Chunks;
+import com.example.backend.util.LotteryAllocator;
+import com.example.backend.util.TimetableBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抽签选课
+ * 选课时间内学生只提交志愿（普通插入），选课结束后由批处理任务统一抽签分配，
+ * 分配在内存中完成（见LotteryAllocator），结果用JDBC批量写入选课记录
+ */
+@Service
+public class LotteryService {
+
+    private static final Logger log = LoggerFactory.getLogger(LotteryService.class);
+
+    private static final String LOCK_KEY = "enrollment:lottery:lock";
+
+    @Autowired
+    private CoursePreferenceRepository preferenceRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseScheduleRepository scheduleRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    @Autowired
+    private EnrollmentArchiveService enrollmentArchiveService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${enrollment.max-courses:10}")
+    private int maxCoursesPerStudent;
+
+    @Value("${enrollment.lottery.max-preferences:10}")
+    private int maxPreferences;
+
+    // 分配时的并行度，0表示按CPU核数
+    @Value("${enrollment.lottery.parallelism:0}")
+    private int parallelism;
+
+    /**
+     * 提交志愿（覆盖之前提交的、尚未抽签的志愿），顺序即志愿优先级
+     */
+    @Transactional
+    public List<PreferenceDTO> submitPreferences(List<Long> courseIds, Long studentId, Long userId) {
+        List<Long> ids = courseIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > maxPreferences) {
+            throw new RuntimeException("最多填报" + maxPreferences + "个志愿");
+        }
+
+        Map<Long, Course> courseMap = courseCacheService.getCourses(ids);
+        Map<Long, CourseEnrollment> existing = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (CourseEnrollment enrollment : enrollmentRepository.findByStudentIdAndCourseIdIn(studentId, ids)) {
+                existing.put(enrollment.getCourseId(), enrollment);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> completedCourseIds = null;
+        for (Long courseId : ids) {
+            Course course = courseMap.get(courseId);
+            if (course == null) {
+                throw new RuntimeException("课程不存在");
+            }
+            // 已有非退课记录的课程抽签时无法写入选课记录
+            String reenrollMessage = CourseEnrollmentService.reenrollMessage(existing.get(courseId));
+            if (reenrollMessage != null) {
+                throw new RuntimeException("「" + course.getCourseName() + "」" + reenrollMessage);
+            }
+            if (!"LOTTERY".equals(course.getEnrollMode()) || !"ACTIVE".equals(course.getStatus())) {
+                throw new RuntimeException("「" + course.getCourseName() + "」不是抽签选课课程");
+            }
+            if (course.getLotteryDrawnAt() != null
+                    || course.getEnrollStartAt() != null && now.isBefore(course.getEnrollStartAt())
+                    || course.getEnrollEndAt() != null && !now.isBefore(course.getEnrollEndAt())) {
+                throw new RuntimeException("「" + course.getCourseName() + "」不在志愿填报时间内");
+            }
+            if (prerequisiteService.hasPrerequisites(courseId)) {
+                if (completedCourseIds == null) {
+                    completedCourseIds = enrollmentArchiveService.completedCourseIds(studentId);
+                }
+                String message = prerequisiteService.missingMessage(courseId, completedCourseIds);
+                if (message != null) {
+                    throw new RuntimeException("「" + course.getCourseName() + "」" + message);
+                }
+            }
+        }
+
+        // 只替换尚未抽签的志愿，已出结果的保留
+        List<Long> pendingCourseIds = preferenceRepository.findByStudentIdOrderByPreferenceRankAsc(studentId).stream()
+                .filter(p -> "PENDING".equals(p.getStatus()))
+                .map(CoursePreference::getCourseId)
+                .toList();
+        if (!pendingCourseIds.isEmpty()) {
+            preferenceRepository.deleteByStudentIdAndCourseIdIn(studentId, pendingCourseIds);
+        }
+
+        List<CoursePreference> preferences = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            CoursePreference preference = new CoursePreference();
+            preference.setStudentId(studentId);
+            preference.setUserId(userId);
+            preference.setCourseId(ids.get(i));
+            preference.setPreferenceRank(i + 1);
+            preferences.add(preference);
+        }
+        preferenceRepository.saveAll(preferences);
+
+        return getMyPreferences(studentId);
+    }
+
+    /**
+     * 我的志愿及抽签结果
+     */
+    public List<PreferenceDTO> getMyPreferences(Long studentId) {
+        List<CoursePreference> preferences = preferenceRepository.findByStudentIdOrderByPreferenceRankAsc(studentId);
+        Map<Long, Course> courseMap = courseCacheService.getCourses(
+                preferences.stream().map(CoursePreference::getCourseId).toList());
+
+        List<PreferenceDTO> result = new ArrayList<>();
+        for (CoursePreference preference : preferences) {
+            PreferenceDTO dto = new PreferenceDTO();
+            dto.setCourseId(preference.getCourseId());
+            Course course = courseMap.get(preference.getCourseId());
+            dto.setCourseName(course != null ? course.getCourseName() : "未知课程");
+            dto.setRank(preference.getPreferenceRank());
+            dto.setStatus(preference.getStatus());
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 定时检查选课已结束的抽签课程并执行抽签
+     */
+    @Scheduled(fixedDelayString = "${enrollment.lottery.check-interval:60000}")
+    public void drawDueLotteries() {
+        try {
+            if (!courseRepository.findLotteryDue(LocalDateTime.now()).isEmpty()) {
+                runLottery();
+            }
+        } catch (Exception e) {
+            log.error("抽签选课执行失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 对所有到期的抽签课程统一抽签（多节点下用Redis锁保证只有一个节点执行）
+     */
+    public Map<String, Object> runLottery() {
+        String owner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, 10, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            throw new RuntimeException("抽签正在其他节点执行");
+        }
+        try {
+            return transactionTemplate.execute(status -> draw());
+        } finally {
+            if (owner.equals(stringRedisTemplate.opsForValue().get(LOCK_KEY))) {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        }
+    }
+
+    private Map<String, Object> draw() {
+        long start = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Course> courses = courseRepository.findLotteryDue(LocalDateTime.now());
+        stats.put("courses", courses.size());
+        if (courses.isEmpty()) {
+            return stats;
+        }
+        Map<Long, Course> lotteryCourses = new HashMap<>();
+        courses.forEach(course -> lotteryCourses.put(course.getId(), course));
+
+        // 1. 志愿
+        List<LotteryAllocator.Preference> preferences = new ArrayList<>();
+        Map<Long, Long> userIds = new HashMap<>();
+        for (Object[] row : preferenceRepository.findPendingRows(lotteryCourses.keySet())) {
+            long studentId = (Long) row[1];
+            userIds.put(studentId, (Long) row[2]);
+            preferences.add(new LotteryAllocator.Preference((Long) row[0], studentId, (Long) row[3], (Integer) row[4]));
+        }
+
+        // 2. 学生已有的选课记录
+        Map<Long, Integer> enrolledCounts = new HashMap<>();
+        Map<Long, List<Long>> enrolledCourses = new HashMap<>();
+        Map<Long, List<Long>> completedCourses = new HashMap<>();
+        Map<Long, Map<Long, Long>> droppedRows = new HashMap<>();
+        // 学生已有非退课记录的课程（已选、已修完等），不能再插入或重新激活
+        Map<Long, Set<Long>> blockedCourses = new HashMap<>();
+        Set<Long> relatedCourseIds = new HashSet<>(lotteryCourses.keySet());
+        for (List<Long> chunk : Chunks.of(new ArrayList<>(userIds.keySet()))) {
+            for (Object[] row : enrollmentRepository.findStatusRowsByStudentIdIn(chunk)) {
+                Long enrollmentId = (Long) row[0];
+                Long studentId = (Long) row[1];
+                Long courseId = (Long) row[2];
+                if (!"DROPPED".equals(row[3])) {
+                    blockedCourses.computeIfAbsent(studentId, k -> new HashSet<>()).add(courseId);
+                }
+                if ("ENROLLED".equals(row[3])) {
+                    enrolledCounts.merge(studentId, 1, Integer::sum);
+                    enrolledCourses.computeIfAbsent(studentId, k -> new ArrayList<>()).add(courseId);
+                    relatedCourseIds.add(courseId);
+                } else if ("COMPLETED".equals(row[3])) {
+                    completedCourses.computeIfAbsent(studentId, k -> new ArrayList<>()).add(courseId);
+                } else if ("DROPPED".equals(row[3]) && lotteryCourses.containsKey(courseId)) {
+                    droppedRows.computeIfAbsent(studentId, k -> new HashMap<>()).put(courseId, enrollmentId);
+                }
+            }
+        }
+
+        // 3. 课程位图和剩余名额
+        Map<Long, TimetableBitmap> courseBitmaps = new HashMap<>();
+        for (List<Long> chunk : Chunks.of(new ArrayList<>(relatedCourseIds))) {
+            for (CourseSchedule schedule : scheduleRepository.findByCourseIdIn(chunk)) {
+                courseBitmaps.computeIfAbsent(schedule.getCourseId(), k -> new TimetableBitmap()).add(schedule);
+            }
+        }
+        Map<Long, Long> enrolledPerCourse = new HashMap<>();
+        for (Object[] row : enrollmentRepository.countEnrolledGroupByCourseId(lotteryCourses.keySet())) {
+            enrolledPerCourse.put((Long) row[0], (Long) row[1]);
+        }
+        Map<Long, Integer> remainingSeats = new HashMap<>();
+        for (Course course : courses) {
+            int max = course.getMaxStudents() != null ? course.getMaxStudents() : 0;
+            remainingSeats.put(course.getId(), max <= 0 ? Integer.MAX_VALUE
+                    : (int) Math.max(0, max - enrolledPerCourse.getOrDefault(course.getId(), 0L)));
+        }
+
+        // 4. 学生状态与随机签号
+        Map<Long, Course> relatedCourses = courseCacheService.getCourses(relatedCourseIds);
+        Map<Long, Long> courseCredits = new HashMap<>();
+        relatedCourses.forEach((courseId, course) -> courseCredits.put(courseId, StudentLoadService.toCents(course.getCredit())));
+        long maxCreditCents = studentLoadService.maxCreditCents();
+        Random random = new Random();
+        Map<Long, LotteryAllocator.StudentState> students = new HashMap<>();
+        for (Long studentId : userIds.keySet()) {
+            TimetableBitmap bitmap = new TimetableBitmap();
+            long enrolledCredits = 0;
+            for (Long courseId : enrolledCourses.getOrDefault(studentId, List.of())) {
+                enrolledCredits += courseCredits.getOrDefault(courseId, 0L);
+                TimetableBitmap courseBitmap = courseBitmaps.get(courseId);
+                if (courseBitmap != null) {
+                    bitmap.or(courseBitmap);
+                }
+            }
+            int remaining = maxCoursesPerStudent - enrolledCounts.getOrDefault(studentId, 0);
+            long remainingCredits = maxCreditCents == Long.MAX_VALUE ? Long.MAX_VALUE : maxCreditCents - enrolledCredits;
+            students.put(studentId, new LotteryAllocator.StudentState(studentId, random.nextLong(), remaining,
+                    remainingCredits, bitmap));
+        }
+        // 已有非退课记录的课程不再参与分配
+        preferences.removeIf(p -> blockedCourses.getOrDefault(p.studentId(), Set.of()).contains(p.courseId()));
+        // 填报后才新增的先修要求同样生效，往届修完的课程在归档表中
+        if (lotteryCourses.keySet().stream().anyMatch(prerequisiteService::hasPrerequisites)) {
+            for (List<Long> chunk : Chunks.of(new ArrayList<>(userIds.keySet()))) {
+                enrollmentArchiveService.archivedCompletedCourseIds(chunk).forEach((studentId, courseIds) ->
+                        completedCourses.computeIfAbsent(studentId, k -> new ArrayList<>()).addAll(courseIds));
+            }
+        }
+        preferences.removeIf(p -> prerequisiteService.hasPrerequisites(p.courseId())
+                && prerequisiteService.missingMessage(p.courseId(),
+                        completedCourses.getOrDefault(p.studentId(), List.of())) != null);
+
+        // 5. 内存中分配
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        List<LotteryAllocator.Preference> accepted;
+        try {
+            accepted = new LotteryAllocator(remainingSeats, courseBitmaps, courseCredits, pool).allocate(students, preferences);
+        } finally {
+            pool.shutdown();
+        }
+        long allocatedAt = System.currentTimeMillis();
+
+        // 6. 批量写入
+        LocalDateTime now = LocalDateTime.now();
+        List<CourseEnrollment> toInsert = new ArrayList<>();
+        List<Long> toReactivate = new ArrayList<>();
+        List<Long> acceptedIds = new ArrayList<>(accepted.size());
+        Map<Long, List<String>> allocatedNames = new HashMap<>();
+        for (LotteryAllocator.Preference preference : accepted) {
+            acceptedIds.add(preference.id());
+            allocatedNames.computeIfAbsent(preference.studentId(), k -> new ArrayList<>())
+                    .add(lotteryCourses.get(preference.courseId()).getCourseName());
+
+            Long droppedId = droppedRows.getOrDefault(preference.studentId(), Map.of()).get(preference.courseId());
+            if (droppedId != null) {
+                toReactivate.add(droppedId);
+                continue;
+            }
+            CourseEnrollment enrollment = new CourseEnrollment();
+            enrollment.setCourseId(preference.courseId());
+            enrollment.setStudentId(preference.studentId());
+            enrollment.setUserId(userIds.get(preference.studentId()));
+            enrollment.setEnrollmentStatus("ENROLLED");
+            enrollment.setEnrolledAt(now);
+            toInsert.add(enrollment);
+        }
+        enrollmentRepository.batchInsert(toInsert);
+        enrollmentRepository.batchReactivate(toReactivate);
+        for (List<Long> chunk : Chunks.of(acceptedIds)) {
+            preferenceRepository.markAllocated(chunk);
+        }
+        preferenceRepository.markRejected(lotteryCourses.keySet());
+
+        for (Course course : courses) {
+            course.setLotteryDrawnAt(now);
+            seatReservationService.resync(course);
+            courseCacheService.evict(course.getId());
+        }
+        timetableService.evictStudents(allocatedNames.keySet());
+        studentLoadService.evict(allocatedNames.keySet());
+        notifyResults(students.keySet(), allocatedNames, userIds);
+
+        stats.put("students", students.size());
+        stats.put("preferences", preferences.size());
+        stats.put("allocated", accepted.size());
+        stats.put("allocateMs", allocatedAt - start);
+        stats.put("totalMs", System.currentTimeMillis() - start);
+        log.info("抽签选课完成: {}", stats);
+        return stats;
+    }
+
+    /**
+     * 抽签结果通知与选课记录在同一事务中批量写入发件箱
+     */
+    private void notifyResults(Collection<Long> studentIds, Map<Long, List<String>> allocatedNames, Map<Long, Long> userIds) {
+        List<NotificationMessage> messages = new ArrayList<>(studentIds.size());
+        for (Long studentId : studentIds) {
+            List<String> names = allocatedNames.get(studentId);
+            NotificationMessage message = new NotificationMessage();
+            message.setUserId(userIds.get(studentId));
+            message.setTitle("抽签结果");
+            message.setContent(names != null
+                    ? "您已中签" + names.size() + "门课程：「" + String.join("」「", names) + "」"
+                    : "很遗憾，您填报的志愿均未中签，可在剩余名额中继续选课");
+            message.setType("LOTTERY_RESULT");
+            messages.add(message);
+        }
+        notificationService.sendNotifications(messages);
+    }
+}
@@ -1,35 +1,47 @@
 package com.example.backend.service;
 
 import com.example.backend.config.RabbitMQConfig;
+import com.example.backend.dto.CursorPage;
 import com.example.backend.dto.NotificationDTO;
 import com.example.backend.dto.NotificationMessage;
 import com.example.backend.entity.Notification;
 import com.example.backend.repository.NotificationRepository;
+import com.example.backend.util.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Service
 public class NotificationService {
 
+    private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
+
     @Autowired
     private NotificationRepository notificationRepository;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OutboxService outboxService;
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
     /**
-     * 发送通知（异步通过MQ）
+     * 发送通知（写入发件箱，调用方事务提交后再经MQ异步投递）
      */
     public void sendNotification(Long userId, String title, String content, String type, Long relatedId) {
         NotificationMessage message = new NotificationMessage();
@@ -39,26 +51,97 @@ public class NotificationService {
         message.setType(type);
         message.setRelatedId(relatedId);
 
-        rabbitTemplate.convertAndSend(
-            RabbitMQConfig.NOTIFICATION_EXCHANGE,
-            RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
-            message
-        );
+        outboxService.enqueue(RabbitMQConfig.NOTIFICATION_EXCHANGE, RabbitMQConfig.NOTIFICATION_ROUTING_KEY, message);
+    }
+
+    /**
+     * 批量发送内容各不相同的通知（发件箱批量写入）
+     */
+    public void sendNotifications(List<NotificationMessage> messages) {
+        outboxService.enqueueAll(RabbitMQConfig.NOTIFICATION_EXCHANGE, RabbitMQConfig.NOTIFICATION_ROUTING_KEY, messages);
+    }
+
+    /**
+     * 发送同一内容的批量通知（一条MQ消息，消费者批量落库）
+     */
+    public void sendBatchNotification(List<Long> userIds, String title, String content, String type, Long relatedId) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        NotificationMessage message = new NotificationMessage();
+        message.setUserIds(new ArrayList<>(userIds));
+        message.setTitle(title);
+        message.setContent(content);
+        message.setType(type);
+        message.setRelatedId(relatedId);
+
+        outboxService.enqueue(RabbitMQConfig.NOTIFICATION_EXCHANGE, RabbitMQConfig.NOTIFICATION_BATCH_ROUTING_KEY, message);
+    }
+
+    /**
+     * MQ消费者 - 处理批量通知
+     * 发件箱至少投递一次，按消息ID跳过已经写入过的用户
+     */
+    @RabbitListener(queues = RabbitMQConfig.NOTIFICATION_BATCH_QUEUE)
+    public void handleBatchNotification(NotificationMessage message,
+                                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
+        Set<Long> delivered = messageId != null
+                ? new HashSet<>(notificationRepository.findUserIdsByMessageId(messageId)) : Set.of();
+        List<Notification> notifications = new ArrayList<>();
+        for (Long userId : message.getUserIds()) {
+            if (delivered.contains(userId)) {
+                continue;
+            }
+            Notification notification = new Notification();
+            notification.setUserId(userId);
+            notification.setTitle(message.getTitle());
+            notification.setContent(message.getContent());
+            notification.setType(message.getType());
+            notification.setRelatedId(message.getRelatedId());
+            notification.setMessageId(messageId);
+            notifications.add(notification);
+        }
+        if (notifications.isEmpty()) {
+            log.debug("重复的批量通知消息{}，已跳过", messageId);
+            return;
+        }
+        notificationRepository.saveAll(notifications);
+
+        for (Notification notification : notifications) {
+            messagingTemplate.convertAndSendToUser(
+                notification.getUserId().toString(),
+                "/queue/notifications",
+                NotificationDTO.fromEntity(notification)
+            );
+        }
     }
 
     /**
      * MQ消费者 - 处理通知
+     * 发件箱至少投递一次，同一消息ID只写入和推送一次
      */
     @RabbitListener(queues = RabbitMQConfig.NOTIFICATION_QUEUE)
-    public void handleNotification(NotificationMessage message) {
-        // 1. 保存到数据库
+    public void handleNotification(NotificationMessage message,
+                                   @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
+        if (messageId != null && notificationRepository.existsByMessageIdAndUserId(messageId, message.getUserId())) {
+            log.debug("重复的通知消息{}，已跳过", messageId);
+            return;
+        }
+
+        // 1. 保存到数据库（并发重复投递由唯一索引拦截）
         Notification notification = new Notification();
         notification.setUserId(message.getUserId());
         notification.setTitle(message.getTitle());
         notification.setContent(message.getContent());
         notification.setType(message.getType());
         notification.setRelatedId(message.getRelatedId());
-        notificationRepository.save(notification);
+        notification.setMessageId(messageId);
+        try {
+            notificationRepository.save(notification);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("重复的通知消息{}，已跳过", messageId);
+            return;
+        }
 
         // 2. 通过WebSocket推送给用户
         NotificationDTO dto = NotificationDTO.fromEntity(notification);
@@ -78,6 +161,17 @@ public class NotificationService {
                 .map(NotificationDTO::fromEntity);
     }
 
+    /**
+     * 游标分页获取通知（不统计总数，withTotal为true时才额外统计）
+     */
+    public CursorPage<NotificationDTO> getNotifications(Long userId, String cursor, int size, boolean withTotal) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Notification> rows = notificationRepository.findPageBefore(userId,
+                after != null ? after.createdAt() : null, after != null ? after.id() : null, CursorPage.fetch(size));
+        return CursorPage.of(rows, size, n -> new PageCursor(n.getCreatedAt(), n.getId()).encode(),
+                NotificationDTO::fromEntity, withTotal ? notificationRepository.countByUserId(userId) : null);
+    }
+
     @Transactional
     public void markAsRead(Long notificationId, Long userId) {
         Notification notification = notificationRepository.findById(notificationId)
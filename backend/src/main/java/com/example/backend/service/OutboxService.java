@@ -0,0 +1,284 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.OutboxEvent;
+import com.example.backend.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事务发件箱
+ * 业务方在自己的事务中调用enqueue写入outbox_events，事务回滚则消息一并消失；
+ * 提交后由单线程中继按批读取待投递的消息发到RabbitMQ，等待publisher confirm后批量标记为已投递。
+ * 投递是至少一次：确认超时的消息会重发，消息ID固定为outbox-{id}，消费者按消息ID去重
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    private static final String LOCK_KEY = "enrollment:outbox:lock";
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${enrollment.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${enrollment.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${enrollment.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${enrollment.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private final ExecutorService relayExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean relayScheduled = new AtomicBoolean();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * 写入一条待投递消息（在调用方事务中执行，提交后触发投递）
+     */
+    public void enqueue(String exchange, String routingKey, Object payload) {
+        outboxEventRepository.save(toEvent(exchange, routingKey, payload));
+        enqueued.increment();
+        relayAfterCommit();
+    }
+
+    /**
+     * 批量写入发往同一路由的消息
+     */
+    public void enqueueAll(String exchange, String routingKey, List<?> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> events = new ArrayList<>(payloads.size());
+        for (Object payload : payloads) {
+            events.add(toEvent(exchange, routingKey, payload));
+        }
+        outboxEventRepository.batchInsert(events);
+        enqueued.add(events.size());
+        relayAfterCommit();
+    }
+
+    /**
+     * 兜底轮询：进程重启前未投递、确认超时待重试的消息
+     */
+    @Scheduled(fixedDelayString = "${enrollment.outbox.poll-interval:5000}")
+    public void poll() {
+        triggerRelay();
+    }
+
+    /**
+     * 清理已投递的历史消息
+     */
+    @Scheduled(fixedDelayString = "${enrollment.outbox.cleanup-interval:3600000}")
+    public void cleanup() {
+        try {
+            int deleted = outboxEventRepository.deleteSentBefore(LocalDateTime.now().minusHours(retentionHours));
+            if (deleted > 0) {
+                log.info("清理已投递的发件箱消息{}条", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("清理发件箱失败: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enqueued", enqueued.sum());
+        stats.put("published", published.sum());
+        stats.put("failed", failed.sum());
+        stats.put("pending", outboxEventRepository.countByStatus("PENDING"));
+        stats.put("dead", outboxEventRepository.countByStatus("FAILED"));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relayExecutor.shutdown();
+    }
+
+    private OutboxEvent toEvent(String exchange, String routingKey, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setExchange(exchange);
+        event.setRoutingKey(routingKey);
+        event.setPayloadType(payload.getClass().getName());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("消息序列化失败: " + e.getMessage(), e);
+        }
+        return event;
+    }
+
+    private void relayAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    triggerRelay();
+                }
+            });
+        } else {
+            triggerRelay();
+        }
+    }
+
+    // 多次触发合并为一次，由中继线程把到期消息全部投完
+    private void triggerRelay() {
+        if (relayScheduled.compareAndSet(false, true)) {
+            relayExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        relayScheduled.set(false);
+        String owner = UUID.randomUUID().toString();
+        if (!tryLock(owner)) {
+            return;
+        }
+        try {
+            while (relayBatch() >= batchSize) {
+                extendLock();
+            }
+        } catch (Exception e) {
+            log.warn("发件箱投递失败: {}", e.getMessage());
+        } finally {
+            unlock(owner);
+        }
+    }
+
+    /**
+     * 投递一批消息，返回本批读取的条数；整批都未确认（broker不可用）时返回0，等下次轮询再试
+     */
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findDue(LocalDateTime.now(), PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<OutboxEvent, CorrelationData> sent = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+            try {
+                rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), toMessage(event), correlation);
+                sent.put(event, correlation);
+            } catch (Exception e) {
+                fail(event, e.getMessage());
+            }
+        }
+
+        // 整批发出后统一等待确认
+        long deadline = System.currentTimeMillis() + confirmTimeoutMs;
+        List<Long> acked = new ArrayList<>();
+        for (Map.Entry<OutboxEvent, CorrelationData> entry : sent.entrySet()) {
+            try {
+                long wait = Math.max(1, deadline - System.currentTimeMillis());
+                CorrelationData.Confirm confirm = entry.getValue().getFuture().get(wait, TimeUnit.MILLISECONDS);
+                if (confirm.isAck()) {
+                    acked.add(entry.getKey().getId());
+                } else {
+                    fail(entry.getKey(), "broker拒绝: " + confirm.getReason());
+                }
+            } catch (Exception e) {
+                fail(entry.getKey(), "等待确认超时");
+            }
+        }
+        if (!acked.isEmpty()) {
+            outboxEventRepository.markSent(acked, LocalDateTime.now());
+            published.add(acked.size());
+        }
+        return acked.isEmpty() ? 0 : events.size();
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setMessageId("outbox-" + event.getId());
+        properties.setHeader(TYPE_ID_HEADER, event.getPayloadType());
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private void fail(OutboxEvent event, String error) {
+        failed.increment();
+        // 指数退避：1s, 2s, 4s ... 最长5分钟
+        long delaySeconds = Math.min(300, 1L << Math.min(event.getAttempts(), 8));
+        String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        outboxEventRepository.markFailed(event.getId(), message, LocalDateTime.now().plusSeconds(delaySeconds), maxAttempts);
+        if (event.getAttempts() + 1 >= maxAttempts) {
+            log.error("发件箱消息{}投递失败{}次，不再重试: {}", event.getId(), maxAttempts, error);
+        }
+    }
+
+    // 多节点部署时只允许一个节点投递，避免重复发送；Redis不可用时降级为各节点各自投递
+    private boolean tryLock(String owner) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, 30, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("获取发件箱投递锁失败，直接投递: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    private void extendLock() {
+        try {
+            stringRedisTemplate.expire(LOCK_KEY, 30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("延长发件箱投递锁失败: {}", e.getMessage());
+        }
+    }
+
+    private void unlock(String owner) {
+        try {
+            if (owner.equals(stringRedisTemplate.opsForValue().get(LOCK_KEY))) {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        } catch (Exception e) {
+            log.warn("释放发件箱投递锁失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CoursePrerequisite;
+import com.example.backend.repository.CoursePrerequisiteRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.util.PrerequisiteGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 课程先修关系
+ * 全部先修关系在内存中构建为有向无环图并预先计算传递闭包，选课时只需一次位运算；
+ * 没有先修要求的课程不查询学生的已修课程。
+ * 本节点修改后增量更新图并递增Redis中的版本号，其他节点定时比对版本号后重新加载
+ */
+@Service
+public class PrerequisiteService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrerequisiteService.class);
+
+    private static final String VERSION_KEY = "enrollment:prereq:version";
+
+    @Autowired
+    private CoursePrerequisiteRepository prerequisiteRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentArchiveService enrollmentArchiveService;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 写时复制：读取方不加锁
+    private volatile PrerequisiteGraph graph;
+    private volatile String loadedVersion;
+
+    /**
+     * 检查学生是否已修完课程的全部（直接和间接）先修课程，未修完时抛出异常
+     */
+    public void checkPrerequisites(Long courseId, Long studentId) {
+        String message = missingMessage(courseId, studentId);
+        if (message != null) {
+            throw new RuntimeException(message);
+        }
+    }
+
+    /**
+     * 未修完先修课程时返回提示，否则返回null
+     */
+    public String missingMessage(Long courseId, Long studentId) {
+        PrerequisiteGraph current = graph();
+        if (!current.hasPrerequisites(courseId)) {
+            return null;
+        }
+        List<Long> completed = enrollmentArchiveService.completedCourseIds(studentId);
+        return describeMissing(current.missing(courseId, current.toBits(completed)));
+    }
+
+    /**
+     * 批量检查用：已知学生已修完的课程时直接在内存中判断
+     */
+    public String missingMessage(Long courseId, Collection<Long> completedCourseIds) {
+        PrerequisiteGraph current = graph();
+        if (!current.hasPrerequisites(courseId)) {
+            return null;
+        }
+        return describeMissing(current.missing(courseId, current.toBits(completedCourseIds)));
+    }
+
+    public boolean hasPrerequisites(Long courseId) {
+        return graph().hasPrerequisites(courseId);
+    }
+
+    /**
+     * 课程的直接先修课程和全部先修课程
+     */
+    public Map<String, Object> getPrerequisites(Long courseId) {
+        PrerequisiteGraph current = graph();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("direct", describe(current.directPrerequisites(courseId)));
+        result.put("all", describe(current.allPrerequisites(courseId)));
+        return result;
+    }
+
+    /**
+     * 添加先修关系：选修courseId前需修完prerequisiteId
+     */
+    @Transactional
+    public void addPrerequisite(Long courseId, Long prerequisiteId) {
+        if (courseId.equals(prerequisiteId)) {
+            throw new RuntimeException("课程不能以自身为先修课程");
+        }
+        if (!courseRepository.existsById(courseId) || !courseRepository.existsById(prerequisiteId)) {
+            throw new RuntimeException("课程不存在");
+        }
+        if (prerequisiteRepository.existsByCourseIdAndPrerequisiteId(courseId, prerequisiteId)) {
+            throw new RuntimeException("先修关系已存在");
+        }
+        if (!graph().copy().addEdge(courseId, prerequisiteId)) {
+            throw new RuntimeException("添加后先修关系会形成循环");
+        }
+
+        CoursePrerequisite prerequisite = new CoursePrerequisite();
+        prerequisite.setCourseId(courseId);
+        prerequisite.setPrerequisiteId(prerequisiteId);
+        prerequisiteRepository.save(prerequisite);
+
+        afterCommit(g -> g.addEdge(courseId, prerequisiteId));
+    }
+
+    @Transactional
+    public void removePrerequisite(Long courseId, Long prerequisiteId) {
+        if (prerequisiteRepository.deleteByCourseIdAndPrerequisiteId(courseId, prerequisiteId) == 0) {
+            throw new RuntimeException("先修关系不存在");
+        }
+        afterCommit(g -> g.removeEdge(courseId, prerequisiteId));
+    }
+
+    /**
+     * 课程删除时清除相关的先修关系
+     */
+    public void removeCourse(Long courseId) {
+        prerequisiteRepository.deleteByCourse(courseId);
+        afterCommit(g -> g.removeCourse(courseId));
+    }
+
+    /**
+     * 其他节点修改了先修关系时重新加载
+     */
+    @Scheduled(fixedDelayString = "${enrollment.prerequisite.refresh-interval:10000}")
+    public void refresh() {
+        if (graph == null) {
+            return;
+        }
+        try {
+            if (!Objects.equals(readVersion(), loadedVersion)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("检查先修关系版本失败: {}", e.getMessage());
+        }
+    }
+
+    private PrerequisiteGraph graph() {
+        PrerequisiteGraph current = graph;
+        if (current == null) {
+            synchronized (this) {
+                if (graph == null) {
+                    reload();
+                }
+                current = graph;
+            }
+        }
+        return current;
+    }
+
+    private synchronized void reload() {
+        // 先读版本号再读数据库，期间的修改最多导致下一次多加载一遍
+        String version = null;
+        try {
+            version = readVersion();
+        } catch (Exception e) {
+            log.warn("读取先修关系版本失败: {}", e.getMessage());
+        }
+        List<PrerequisiteGraph.Edge> edges = new ArrayList<>();
+        for (Object[] row : prerequisiteRepository.findAllRows()) {
+            edges.add(new PrerequisiteGraph.Edge((Long) row[0], (Long) row[1]));
+        }
+        List<PrerequisiteGraph.Edge> rejected = new ArrayList<>();
+        graph = new PrerequisiteGraph(edges, rejected);
+        loadedVersion = version;
+        if (!rejected.isEmpty()) {
+            log.warn("先修关系存在循环，已忽略: {}", rejected);
+        }
+        log.info("先修关系加载完成，共{}条", edges.size() - rejected.size());
+    }
+
+    // 提交后在副本上应用修改再发布，并通知其他节点
+    private void afterCommit(Consumer<PrerequisiteGraph> change) {
+        Runnable apply = () -> {
+            synchronized (this) {
+                if (graph != null) {
+                    PrerequisiteGraph next = graph.copy();
+                    change.accept(next);
+                    graph = next;
+                }
+                bumpVersion();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void bumpVersion() {
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            // 只有本节点的修改时无需重新加载；期间有其他节点修改则保留旧版本号，等定时任务重新加载
+            if (version != null && loadedVersion != null && version == Long.parseLong(loadedVersion) + 1) {
+                loadedVersion = String.valueOf(version);
+            }
+        } catch (Exception e) {
+            log.warn("更新先修关系版本失败: {}", e.getMessage());
+        }
+    }
+
+    private String readVersion() {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+        return version != null ? version : "0";
+    }
+
+    private String describeMissing(List<Long> missing) {
+        if (missing.isEmpty()) {
+            return null;
+        }
+        Map<Long, Course> courses = courseCacheService.getCourses(missing);
+        List<String> names = new ArrayList<>();
+        for (Long id : missing) {
+            Course course = courses.get(id);
+            names.add(course != null ? course.getCourseName() : String.valueOf(id));
+        }
+        return "需先修完课程：" + String.join("、", names);
+    }
+
+    private List<Map<String, Object>> describe(List<Long> courseIds) {
+        Map<Long, Course> courses = courseCacheService.getCourses(courseIds);
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Long id : courseIds) {
+            Course course = courses.get(id);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("courseId", id);
+            item.put("courseCode", course != null ? course.getCourseCode() : null);
+            item.put("courseName", course != null ? course.getCourseName() : null);
+            items.add(item);
+        }
+        return items;
+    }
+}
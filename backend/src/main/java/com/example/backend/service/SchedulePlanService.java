@@ -0,0 +1,176 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.SchedulePlanDTO;
+import com.example.backend.entity.Course;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.util.SchedulePlanner;
+import com.example.backend.util.TimetableBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 排课方案（只读）：根据意向课程列表给出互不冲突的选课组合，学生不必反复选课/退课试排
+ * 结果按（意向课程、排序方式、剩余门数和学分、已选课程占用的时间）的哈希缓存在本节点；
+ * 已选课程的位图和门数、学分分别来自TimetableService和StudentLoadService的缓存，命中时不查询数据库
+ */
+@Service
+public class SchedulePlanService {
+
+    private record CachedPlans(Map<String, Object> result, long expiresAt) {
+    }
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private StudentLoadService studentLoadService;
+
+    @Value("${enrollment.max-courses:10}")
+    private int maxCoursesPerStudent;
+
+    @Value("${enrollment.plan.max-wishlist:20}")
+    private int maxWishlist;
+
+    @Value("${enrollment.plan.max-results:20}")
+    private int maxResults;
+
+    @Value("${enrollment.plan.cache-seconds:60}")
+    private long cacheSeconds;
+
+    @Value("${enrollment.plan.cache-size:2000}")
+    private int cacheSize;
+
+    private final Map<String, CachedPlans> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedPlans> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    /**
+     * @param sort credits-按学分，freeDays-按空闲天数
+     */
+    public Map<String, Object> plan(List<Long> courseIds, String sort, Integer limit, Long studentId) {
+        List<Long> ids = courseIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (ids.isEmpty()) {
+            throw new RuntimeException("课程ID不能为空");
+        }
+        if (ids.size() > Math.min(maxWishlist, SchedulePlanner.MAX_CANDIDATES)) {
+            throw new RuntimeException("意向课程最多" + Math.min(maxWishlist, SchedulePlanner.MAX_CANDIDATES) + "门");
+        }
+        SchedulePlanner.Rank rank = "freeDays".equals(sort) ? SchedulePlanner.Rank.FREE_DAYS : SchedulePlanner.Rank.CREDITS;
+        int topK = limit == null || limit <= 0 ? 10 : Math.min(limit, maxResults);
+
+        // 已选课程占用的时间、门数和学分（均读缓存）
+        TimetableBitmap base = timetableService.getStudentBitmap(studentId);
+        StudentLoadService.Load load = studentLoadService.getLoad(studentId);
+        int remaining = (int) (maxCoursesPerStudent - load.count());
+        long maxCreditCents = studentLoadService.maxCreditCents();
+        long remainingCreditCents = maxCreditCents == Long.MAX_VALUE ? Long.MAX_VALUE
+                : maxCreditCents - StudentLoadService.toCents(load.credits());
+
+        // 已选的意向课程有时间安排时必然与位图冲突，只有没有时间安排的课程需要按选课记录排除
+        Map<Long, Course> courseMap = courseCacheService.getCourses(ids);
+        Map<Long, TimetableBitmap> bitmaps = new HashMap<>();
+        List<Long> unscheduled = new ArrayList<>();
+        for (Long courseId : ids) {
+            if (courseMap.containsKey(courseId)) {
+                TimetableBitmap bitmap = courseCacheService.getCourseBitmap(courseId);
+                bitmaps.put(courseId, bitmap);
+                if (bitmap.isEmpty()) {
+                    unscheduled.add(courseId);
+                }
+            }
+        }
+        Set<Long> enrolledIds = unscheduled.isEmpty() ? Set.of()
+                : new HashSet<>(enrollmentRepository.findEnrolledCourseIdsByStudentIdAndCourseIdIn(studentId, unscheduled));
+
+        String key = cacheKey(ids + "|" + new TreeSet<>(enrolledIds) + "|" + rank + "|" + topK + "|" + remaining + "|" + remainingCreditCents, base);
+        CachedPlans cached = cache.get(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.result();
+        }
+
+        List<SchedulePlanner.Candidate> candidates = new ArrayList<>();
+        List<Map<String, Object>> excluded = new ArrayList<>();
+        for (Long courseId : ids) {
+            Course course = courseMap.get(courseId);
+            String reason = null;
+            TimetableBitmap bitmap = null;
+            if (course == null) {
+                reason = "课程不存在";
+            } else if (!"ACTIVE".equals(course.getStatus())) {
+                reason = "课程当前不可选";
+            } else if (enrolledIds.contains(courseId)) {
+                reason = "已选该课程";
+            } else if (StudentLoadService.toCents(course.getCredit()) > remainingCreditCents) {
+                reason = "超出剩余学分";
+            } else {
+                bitmap = bitmaps.get(courseId);
+                if (bitmap.intersects(base)) {
+                    reason = "已选该课程或与已选课程时间冲突";
+                }
+            }
+            if (reason != null) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("courseId", courseId);
+                item.put("courseName", course != null ? course.getCourseName() : null);
+                item.put("reason", reason);
+                excluded.add(item);
+                continue;
+            }
+            double credits = course.getCredit() != null ? course.getCredit().doubleValue() : 0;
+            candidates.add(new SchedulePlanner.Candidate(courseId, credits, bitmap, bitmap.dayMask()));
+        }
+
+        double remainingCredits = remainingCreditCents == Long.MAX_VALUE ? Double.POSITIVE_INFINITY
+                : remainingCreditCents / 100.0;
+        List<SchedulePlanner.Plan> plans = new SchedulePlanner(candidates, base.dayMask(), remaining, remainingCredits,
+                rank, topK).plan(ForkJoinPool.commonPool());
+
+        List<SchedulePlanDTO> dtos = new ArrayList<>();
+        for (SchedulePlanner.Plan plan : plans) {
+            SchedulePlanDTO dto = new SchedulePlanDTO();
+            dto.setCourseIds(plan.courseIds());
+            dto.setCourseNames(plan.courseIds().stream().map(id -> courseMap.get(id).getCourseName()).toList());
+            dto.setTotalCredit(plan.courseIds().stream()
+                    .map(id -> courseMap.get(id).getCredit() != null ? courseMap.get(id).getCredit() : BigDecimal.ZERO)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+            dto.setFreeDays(plan.freeDays());
+            dtos.add(dto);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("plans", dtos);
+        result.put("excluded", excluded);
+        result.put("remainingCourses", Math.max(remaining, 0));
+        if (remainingCreditCents != Long.MAX_VALUE) {
+            result.put("remainingCredits", BigDecimal.valueOf(Math.max(remainingCreditCents, 0), 2));
+        }
+        cache.put(key, new CachedPlans(result, System.currentTimeMillis() + cacheSeconds * 1000));
+        return result;
+    }
+
+    // 已选课程占用时间相同的学生（如同班同学）共用缓存
+    private static String cacheKey(String params, TimetableBitmap base) {
+        byte[] prefix = params.getBytes(StandardCharsets.UTF_8);
+        byte[] bitmap = base.toBytes();
+        byte[] raw = Arrays.copyOf(prefix, prefix.length + bitmap.length);
+        System.arraycopy(bitmap, 0, raw, prefix.length, bitmap.length);
+        return DigestUtils.md5DigestAsHex(raw);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseRepositoryCustom.CountFix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * courses.current_students对账
+ * 按主键分段扫描课程，每段用一条分组统计得到真实已选人数，与current_students比对后批量修正；
+ * 每段在独立的短事务中执行，修正时在UPDATE语句内重新统计，不会用对账期间过时的人数覆盖并发选课
+ * 启用名额分片的课程人数由分片汇总回写，不限人数的课程选课时不维护current_students（改为限制人数时重新统计），都不在此处修正
+ */
+@Service
+public class SeatCountReconcileService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatCountReconcileService.class);
+
+    private static final String LOCK_KEY = "enrollment:reconcile:lock";
+    private static final long LOCK_MINUTES = 10;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${enrollment.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    // 累计指标（当前节点）
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder drifted = new LongAdder();
+    private final LongAdder repaired = new LongAdder();
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelayString = "${enrollment.reconcile.interval:300000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("选课人数对账失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行一轮对账（多节点下用Redis锁保证只有一个节点执行）
+     * 其他节点正在对账时直接跳过，返回结果中skipped为true
+     */
+    public Map<String, Object> reconcile() {
+        String owner = UUID.randomUUID().toString();
+        if (!tryLock(owner)) {
+            log.debug("选课人数对账正在其他节点执行，本节点跳过");
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("skipped", true);
+            return result;
+        }
+        try {
+            return runChunks();
+        } finally {
+            unlock(owner);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.sum());
+        stats.put("scanned", scanned.sum());
+        stats.put("drifted", drifted.sum());
+        stats.put("repaired", repaired.sum());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    private Map<String, Object> runChunks() {
+        long start = System.currentTimeMillis();
+        long courses = 0;
+        long driftedCourses = 0;
+        long totalDrift = 0;
+        int maxDrift = 0;
+        int fixed = 0;
+        List<Map<String, Object>> samples = new ArrayList<>();
+
+        long afterId = 0;
+        while (true) {
+            List<Object[]> rows = courseRepository.findCountRowsAfter(afterId, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            courses += rows.size();
+            extendLock();
+
+            List<CountFix> fixes = diff(rows);
+            if (fixes.isEmpty()) {
+                continue;
+            }
+            driftedCourses += fixes.size();
+            for (CountFix fix : fixes) {
+                int drift = Math.abs(fix.actual() - Math.max(fix.expected(), 0));
+                totalDrift += drift;
+                maxDrift = Math.max(maxDrift, drift);
+                if (samples.size() < 20) {
+                    Map<String, Object> sample = new LinkedHashMap<>();
+                    sample.put("courseId", fix.courseId());
+                    sample.put("currentStudents", fix.expected() < 0 ? null : fix.expected());
+                    sample.put("enrolled", fix.actual());
+                    samples.add(sample);
+                }
+            }
+            Integer updated = transactionTemplate.execute(status -> courseRepository.batchFixCurrentStudents(fixes));
+            fixed += updated != null ? updated : 0;
+            drifted.add(fixes.size());
+            fixes.forEach(fix -> courseCacheService.evict(fix.courseId()));
+        }
+
+        runs.increment();
+        scanned.add(courses);
+        repaired.add(fixed);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("skipped", false);
+        result.put("finishedAt", LocalDateTime.now());
+        result.put("courses", courses);
+        result.put("drifted", driftedCourses);
+        result.put("repaired", fixed);
+        result.put("totalDrift", totalDrift);
+        result.put("maxDrift", maxDrift);
+        result.put("samples", samples);
+        result.put("totalMs", System.currentTimeMillis() - start);
+        lastRun = result;
+        if (driftedCourses > 0) {
+            log.warn("选课人数对账：{}门课程中{}门人数不一致，已修正{}门", courses, driftedCourses, fixed);
+        }
+        return result;
+    }
+
+    private boolean tryLock(String owner) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, owner, LOCK_MINUTES, TimeUnit.MINUTES));
+        } catch (Exception e) {
+            log.warn("获取对账锁失败，直接对账: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    // 每处理一段课程续期一次，课程很多时整轮对账超过锁的有效期也不会被其他节点重复执行
+    private void extendLock() {
+        try {
+            stringRedisTemplate.expire(LOCK_KEY, LOCK_MINUTES, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            log.warn("延长对账锁失败: {}", e.getMessage());
+        }
+    }
+
+    private void unlock(String owner) {
+        try {
+            if (owner.equals(stringRedisTemplate.opsForValue().get(LOCK_KEY))) {
+                stringRedisTemplate.delete(LOCK_KEY);
+            }
+        } catch (Exception e) {
+            log.warn("释放对账锁失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用一条分组统计得到本段课程的真实已选人数，返回需要修正的课程
+     */
+    private List<CountFix> diff(List<Object[]> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((Long) row[0]);
+        }
+        Map<Long, Long> enrolled = new HashMap<>();
+        for (Object[] row : enrollmentRepository.countEnrolledGroupByCourseId(ids)) {
+            enrolled.put((Long) row[0], (Long) row[1]);
+        }
+
+        List<CountFix> fixes = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long courseId = (Long) row[0];
+            Integer current = (Integer) row[1];
+            Integer shards = (Integer) row[2];
+            Integer max = (Integer) row[3];
+            if (shards != null && shards > 0 || max == null || max <= 0) {
+                continue;
+            }
+            int actual = enrolled.getOrDefault(courseId, 0L).intValue();
+            if (current == null || current != actual) {
+                fixes.add(new CountFix(courseId, current != null ? current : -1, actual));
+            }
+        }
+        return fixes;
+    }
+}
@@ -0,0 +1,491 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Course;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 选课名额预占服务
+ * db模式：直接对courses行做条件UPDATE（原有逻辑）；启用了名额分片的课程改为占用分片行
+ * redis模式：剩余名额保存在Redis中，用Lua脚本原子扣减，current_students由定时任务回写MySQL；
+ * 已在Redis扣减但数据库事务尚未结束的名额记在在途计数中，按数据库重新初始化剩余名额时一并扣除，
+ * 提交后才标记课程待回写，避免回写时统计不到尚未可见的选课记录
+ */
+@Service
+public class SeatReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatReservationService.class);
+
+    private static final String SEAT_KEY_PREFIX = "enrollment:seats:";
+    private static final String DIRTY_KEY = "enrollment:seats:dirty";
+    // 在途名额：pending为已扣减未结束的名额数，committed为累计提交数（初始化时据此扣除统计期间提交的名额）
+    private static final String FLIGHT_KEY_PREFIX = "enrollment:seats:flight:";
+
+    // 预占ARGV[1]个名额并记为在途，不足时一个也不占。返回值：-1 未初始化，0 名额不足，1 预占成功
+    private static final DefaultRedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if not v then return -1 end " +
+            "if tonumber(v) < tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('DECRBY', KEYS[1], ARGV[1]) " +
+            "redis.call('HINCRBY', KEYS[2], 'pending', ARGV[1]) " +
+            "return 1", Long.class);
+
+    // 预占的事务已提交：移出在途，计入累计提交数，标记课程待回写
+    private static final DefaultRedisScript<Long> COMMIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HINCRBY', KEYS[1], 'pending', -tonumber(ARGV[2])) < 0 then " +
+            "redis.call('HSET', KEYS[1], 'pending', 0) end " +
+            "redis.call('HINCRBY', KEYS[1], 'committed', ARGV[2]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // 预占的事务已回滚：移出在途并归还名额（key已被删除时由下次初始化重新统计）
+    private static final DefaultRedisScript<Long> ROLLBACK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HINCRBY', KEYS[2], 'pending', -tonumber(ARGV[1])) < 0 then " +
+            "redis.call('HSET', KEYS[2], 'pending', 0) end " +
+            "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('INCRBY', KEYS[1], ARGV[1]) end " +
+            "return 1", Long.class);
+
+    // 按数据库已选人数重新初始化：ARGV[1]容量，ARGV[2]已选人数，ARGV[3]统计前读到的累计提交数，ARGV[4]为1时仅在key不存在时写入；
+    // 再扣除在途名额和统计期间新提交的名额（统计前已提交的可能被重复扣除，只会少放不会超卖）
+    private static final DefaultRedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>(
+            "if ARGV[4] == '1' and redis.call('EXISTS', KEYS[1]) == 1 then return -1 end " +
+            "local pending = math.max(0, tonumber(redis.call('HGET', KEYS[2], 'pending') or '0')) " +
+            "local committed = tonumber(redis.call('HGET', KEYS[2], 'committed') or '0') " +
+            "local remaining = tonumber(ARGV[1]) - tonumber(ARGV[2]) - pending - math.max(0, committed - tonumber(ARGV[3])) " +
+            "if remaining < 0 then remaining = 0 end " +
+            "redis.call('SET', KEYS[1], remaining) " +
+            "return remaining", Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('INCRBY', KEYS[1], ARGV[2]) end " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // 仅当key存在时按差值调整（课程容量被修改）
+    private static final DefaultRedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "return redis.call('INCRBY', KEYS[1], ARGV[1])", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private SeatShardService seatShardService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${enrollment.seat-mode:db}")
+    private String seatMode;
+
+    @Value("${enrollment.seat-sync-batch:200}")
+    private int syncBatchSize;
+
+    public boolean isRedisMode() {
+        return "redis".equalsIgnoreCase(seatMode);
+    }
+
+    /**
+     * 预占一个名额，失败返回false；不限人数的课程直接返回true
+     * 必须在事务内调用，事务回滚时自动归还Redis名额
+     */
+    public boolean claimSeat(Course course) {
+        if (course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+            return true;
+        }
+        if (!isRedisMode()) {
+            return claimDbSeat(course);
+        }
+        return claimRedisSeats(course, 1);
+    }
+
+    /**
+     * 一次预占多个名额（按班级批量选课），名额不足时返回false；不限人数的课程直接返回true
+     * 必须在事务内调用，返回false时调用方必须回滚事务（分片模式下可能已占用了部分分片）
+     */
+    public boolean claimSeats(Course course, int count) {
+        if (count <= 0 || course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+            return true;
+        }
+        if (isRedisMode()) {
+            return claimRedisSeats(course, count);
+        }
+        // 按最新的分片状态占用，不依赖调用方读到的课程
+        Long courseId = course.getId();
+        Integer shards = courseRepository.findSeatShardsById(courseId);
+        int slots = shards != null ? shards : 0;
+        if (slots == 0) {
+            return courseRepository.incrementCurrentStudentsBy(courseId, count) > 0;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!seatShardService.claim(courseId, slots)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 归还一个名额（退课）；与claimSeat对称，不限人数的课程不做处理
+     */
+    public void releaseSeat(Course course) {
+        if (course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+            return;
+        }
+        Long courseId = course.getId();
+        if (!isRedisMode()) {
+            if (seatShardService.isSharded(course)) {
+                seatShardService.release(course);
+            } else {
+                courseRepository.decrementCurrentStudents(courseId);
+            }
+            return;
+        }
+
+        // 事务提交后再归还，避免回滚后名额被多放出去
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseRedisSeat(courseId, 1);
+                }
+            });
+        } else {
+            releaseRedisSeat(courseId, 1);
+        }
+    }
+
+    /**
+     * 课程容量变更时同步调整剩余名额
+     */
+    public void adjustCapacity(Course course, int oldMax) {
+        Long courseId = course.getId();
+        int newMax = course.getMaxStudents();
+        if (oldMax == newMax) {
+            return;
+        }
+        if (!isRedisMode()) {
+            if (seatShardService.isSharded(course)) {
+                if (newMax > 0) {
+                    seatShardService.rebuild(course);
+                } else {
+                    seatShardService.disableSharding(courseId);
+                }
+            } else if (oldMax <= 0 && newMax > 0) {
+                // 不限人数期间未维护current_students，开始限制前按数据库重新统计
+                resync(course);
+            }
+            return;
+        }
+        if (oldMax <= 0 || newMax <= 0) {
+            // 限制与不限制之间切换，下次选课时按数据库重新初始化
+            stringRedisTemplate.delete(SEAT_KEY_PREFIX + courseId);
+            return;
+        }
+        stringRedisTemplate.execute(ADJUST_SCRIPT, List.of(SEAT_KEY_PREFIX + courseId),
+                String.valueOf(newMax - oldMax));
+    }
+
+    /**
+     * 按数据库中的已选人数初始化剩余名额（仅在key不存在时写入）
+     */
+    public void initSeats(Course course) {
+        seedSeats(course, true);
+    }
+
+    /**
+     * 批量写入选课记录后（如抽签），按数据库中的已选人数重新同步名额
+     */
+    public void resync(Course course) {
+        Long courseId = course.getId();
+        if (isRedisMode()) {
+            // 提交后删除剩余名额，下次选课时按数据库重新初始化
+            Runnable reset = () -> {
+                stringRedisTemplate.delete(SEAT_KEY_PREFIX + courseId);
+                stringRedisTemplate.opsForSet().add(DIRTY_KEY, courseId.toString());
+            };
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        reset.run();
+                    }
+                });
+            } else {
+                reset.run();
+            }
+            return;
+        }
+        if (seatShardService.isSharded(course)) {
+            seatShardService.rebuild(course);
+            return;
+        }
+        long enrolled = enrollmentRepository.countByCourseIdAndEnrollmentStatus(courseId, "ENROLLED");
+        courseRepository.updateCurrentStudents(courseId, (int) enrolled);
+    }
+
+    /**
+     * 选课开放前预热剩余名额（仅redis模式，已存在的key不重复统计）
+     */
+    public void warmSeats(Course course) {
+        if (!isRedisMode() || course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+            return;
+        }
+        if (getRemainingSeats(course.getId()) == null) {
+            initSeats(course);
+        }
+    }
+
+    /**
+     * 课程是否还有空余名额（仅用于提示，不做预占）
+     */
+    public boolean hasAvailableSeat(Course course) {
+        if (course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+            return true;
+        }
+        if (!isRedisMode()) {
+            return course.getCurrentStudents() < course.getMaxStudents();
+        }
+        Long remaining = getRemainingSeats(course.getId());
+        if (remaining == null) {
+            initSeats(course);
+            remaining = getRemainingSeats(course.getId());
+        }
+        return remaining != null && remaining > 0;
+    }
+
+    /**
+     * 获取Redis中的剩余名额，未初始化返回null
+     */
+    public Long getRemainingSeats(Long courseId) {
+        String value = stringRedisTemplate.opsForValue().get(SEAT_KEY_PREFIX + courseId);
+        return value != null ? Long.parseLong(value) : null;
+    }
+
+    /**
+     * 批量获取Redis中的剩余名额，未初始化的课程不在结果中
+     */
+    public Map<Long, Long> getRemainingSeats(List<Long> courseIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (courseIds.isEmpty()) {
+            return result;
+        }
+        List<String> values = stringRedisTemplate.opsForValue()
+                .multiGet(courseIds.stream().map(id -> SEAT_KEY_PREFIX + id).toList());
+        for (int i = 0; values != null && i < courseIds.size(); i++) {
+            if (values.get(i) != null) {
+                result.put(courseIds.get(i), Long.parseLong(values.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将Redis中有变动的课程人数回写到courses.current_students
+     */
+    @Scheduled(fixedDelayString = "${enrollment.seat-sync-interval:2000}")
+    public void syncCurrentStudents() {
+        if (!isRedisMode()) {
+            return;
+        }
+        Set<String> dirty;
+        try {
+            // 只读取不弹出，每门课程回写前才移出集合，失败时放回，下次继续回写
+            dirty = stringRedisTemplate.opsForSet().distinctRandomMembers(DIRTY_KEY, syncBatchSize);
+        } catch (Exception e) {
+            log.warn("读取待回写课程失败: {}", e.getMessage());
+            return;
+        }
+        if (dirty == null) {
+            return;
+        }
+        for (String id : dirty) {
+            try {
+                // 先移出再统计，统计期间又有变动的课程会被重新标记，不会漏掉
+                stringRedisTemplate.opsForSet().remove(DIRTY_KEY, id);
+                Long courseId = Long.valueOf(id);
+                long enrolled = enrollmentRepository.countByCourseIdAndEnrollmentStatus(courseId, "ENROLLED");
+                courseRepository.updateCurrentStudents(courseId, (int) enrolled);
+            } catch (Exception e) {
+                log.warn("课程{}选课人数回写失败: {}", id, e.getMessage());
+                try {
+                    stringRedisTemplate.opsForSet().add(DIRTY_KEY, id);
+                } catch (Exception ignored) {
+                    // Redis不可用时放弃，课程下次变动时会重新标记
+                }
+            }
+        }
+    }
+
+    /**
+     * 对账：比较Redis中已占名额与数据库中的已选人数
+     * @param repair 是否以数据库为准重置Redis
+     */
+    public List<Map<String, Object>> reconcile(boolean repair) {
+        List<Map<String, Object>> drifts = new ArrayList<>();
+        if (!isRedisMode()) {
+            return drifts;
+        }
+
+        for (Course course : courseRepository.findByStatus("ACTIVE")) {
+            if (course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+                continue;
+            }
+            Long remaining = getRemainingSeats(course.getId());
+            if (remaining == null) {
+                continue;
+            }
+            // 在途名额尚未写入数据库，不算作不一致
+            long redisCount = course.getMaxStudents() - remaining - pendingSeats(course.getId());
+            long dbCount = enrollmentRepository.countByCourseIdAndEnrollmentStatus(course.getId(), "ENROLLED");
+            if (redisCount != dbCount) {
+                Map<String, Object> drift = new HashMap<>();
+                drift.put("courseId", course.getId());
+                drift.put("courseName", course.getCourseName());
+                drift.put("redisCount", redisCount);
+                drift.put("dbCount", dbCount);
+                drifts.add(drift);
+
+                if (repair) {
+                    seedSeats(course, false);
+                    stringRedisTemplate.opsForSet().add(DIRTY_KEY, course.getId().toString());
+                }
+            }
+        }
+
+        if (!drifts.isEmpty()) {
+            log.warn("选课名额对账发现{}门课程不一致", drifts.size());
+        }
+        return drifts;
+    }
+
+    private boolean claimDbSeat(Course course) {
+        Long courseId = course.getId();
+        boolean sharded = seatShardService.isSharded(course);
+        if (sharded) {
+            if (seatShardService.claim(course)) {
+                return true;
+            }
+        } else {
+            seatShardService.recordAttempt(courseId);
+            if (courseRepository.incrementCurrentStudents(courseId) > 0) {
+                return true;
+            }
+        }
+
+        // 读取课程（或课程缓存）后分片被启用或关闭，按最新状态重试一次
+        Integer shards = courseRepository.findSeatShardsById(courseId);
+        int current = shards != null ? shards : 0;
+        if (current > 0 && (!sharded || current != course.getSeatShards())) {
+            return seatShardService.claim(courseId, current);
+        }
+        if (current == 0 && sharded) {
+            return courseRepository.incrementCurrentStudents(courseId) > 0;
+        }
+        return false;
+    }
+
+    private boolean claimRedisSeats(Course course, int count) {
+        Long courseId = course.getId();
+        Long result = executeClaim(courseId, count);
+        if (result != null && result == -1) {
+            initSeats(course);
+            result = executeClaim(courseId, count);
+        }
+        if (result == null || result != 1) {
+            return false;
+        }
+
+        // 事务结束后移出在途：提交则标记待回写，回滚则归还名额，保证Redis与MySQL最终一致
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        completeRedisClaim(courseId, count);
+                    } else {
+                        rollbackRedisClaim(courseId, count);
+                    }
+                }
+            });
+        } else {
+            completeRedisClaim(courseId, count);
+        }
+        return true;
+    }
+
+    private Long executeClaim(Long courseId, int count) {
+        return stringRedisTemplate.execute(CLAIM_SCRIPT,
+                List.of(SEAT_KEY_PREFIX + courseId, FLIGHT_KEY_PREFIX + courseId), String.valueOf(count));
+    }
+
+    private void completeRedisClaim(Long courseId, int count) {
+        try {
+            stringRedisTemplate.execute(COMMIT_SCRIPT,
+                    List.of(FLIGHT_KEY_PREFIX + courseId, DIRTY_KEY), courseId.toString(), String.valueOf(count));
+        } catch (Exception e) {
+            log.error("结束在途选课名额失败 courseId={}: {}", courseId, e.getMessage());
+        }
+    }
+
+    private void rollbackRedisClaim(Long courseId, int count) {
+        try {
+            stringRedisTemplate.execute(ROLLBACK_SCRIPT,
+                    List.of(SEAT_KEY_PREFIX + courseId, FLIGHT_KEY_PREFIX + courseId), String.valueOf(count));
+        } catch (Exception e) {
+            log.error("归还选课名额失败 courseId={}: {}", courseId, e.getMessage());
+        }
+    }
+
+    // 先读累计提交数再统计数据库，统计期间提交的名额由脚本扣除；
+    // 统计在独立的只读事务中执行，调用方事务的快照可能早于读取累计提交数的时刻
+    private void seedSeats(Course course, boolean onlyIfAbsent) {
+        Long courseId = course.getId();
+        Object committed = stringRedisTemplate.opsForHash().get(FLIGHT_KEY_PREFIX + courseId, "committed");
+        TransactionTemplate counter = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        counter.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        counter.setReadOnly(true);
+        Long enrolled = counter.execute(status -> enrollmentRepository.countByCourseIdAndEnrollmentStatus(courseId, "ENROLLED"));
+        stringRedisTemplate.execute(SEED_SCRIPT, List.of(SEAT_KEY_PREFIX + courseId, FLIGHT_KEY_PREFIX + courseId),
+                String.valueOf(course.getMaxStudents()), String.valueOf(enrolled),
+                committed != null ? committed.toString() : "0", onlyIfAbsent ? "1" : "0");
+    }
+
+    private long pendingSeats(Long courseId) {
+        Object pending = stringRedisTemplate.opsForHash().get(FLIGHT_KEY_PREFIX + courseId, "pending");
+        return pending != null ? Math.max(0, Long.parseLong(pending.toString())) : 0;
+    }
+
+    private void releaseRedisSeat(Long courseId, int count) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT,
+                    List.of(SEAT_KEY_PREFIX + courseId, DIRTY_KEY), courseId.toString(), String.valueOf(count));
+        } catch (Exception e) {
+            log.error("归还选课名额失败 courseId={}: {}", courseId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseSeatShard;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseSeatShardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 名额分片计数
+ * 热门课程的名额拆分到N行course_seat_shards中，选课时从随机分片开始用SKIP LOCKED逐个尝试加锁，
+ * 并发事务分散到不同的行锁上，且从不等待其他事务持有的分片锁，不会互相死锁；
+ * courses.current_students由定时任务按分片汇总回写
+ */
+@Service
+public class SeatShardService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatShardService.class);
+
+    public static final int MAX_SLOTS = 64;
+
+    // 未满的分片全部被其他事务锁住时，最多重试的轮数和每轮间隔
+    private static final int BUSY_ROUNDS = 50;
+    private static final long BUSY_PAUSE_MILLIS = 2;
+
+    @Autowired
+    private CourseSeatShardRepository shardRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 自动分片阈值：一个统计周期内单门课程的选课尝试次数，0表示不自动分片
+    @Value("${enrollment.seat-shards.auto-threshold:0}")
+    private long autoThreshold;
+
+    @Value("${enrollment.seat-shards.default-slots:8}")
+    private int defaultSlots;
+
+    // 未分片课程在本节点上的选课尝试次数，每个统计周期清零
+    private final Map<Long, LongAdder> attempts = new ConcurrentHashMap<>();
+
+    public boolean isSharded(Course course) {
+        return course.getSeatShards() != null && course.getSeatShards() > 0;
+    }
+
+    /**
+     * 预占一个名额，所有分片都满才算失败
+     * 必须在事务内调用
+     */
+    public boolean claim(Course course) {
+        return claim(course.getId(), course.getSeatShards());
+    }
+
+    /**
+     * 跳过其他事务锁住的分片；未满的分片都被锁住时稍等后重新尝试，这些事务提交后分片可能已满
+     */
+    public boolean claim(Long courseId, int slots) {
+        for (int round = 0; round < BUSY_ROUNDS; round++) {
+            int start = ThreadLocalRandom.current().nextInt(slots);
+            for (int i = 0; i < slots; i++) {
+                List<Long> shard = shardRepository.lockFreeSlot(courseId, (start + i) % slots);
+                if (!shard.isEmpty() && shardRepository.claimShard(shard.get(0)) > 0) {
+                    return true;
+                }
+            }
+            if (shardRepository.countFreeByCourseId(courseId) == 0) {
+                return false;
+            }
+            pause();
+        }
+        throw new RuntimeException("当前选课人数过多，请稍后再试");
+    }
+
+    /**
+     * 归还一个名额到任意一个有占用的分片
+     */
+    public void release(Course course) {
+        int slots = course.getSeatShards();
+        for (int round = 0; round < BUSY_ROUNDS; round++) {
+            int start = ThreadLocalRandom.current().nextInt(slots);
+            for (int i = 0; i < slots; i++) {
+                List<Long> shard = shardRepository.lockUsedSlot(course.getId(), (start + i) % slots);
+                if (!shard.isEmpty() && shardRepository.releaseShard(shard.get(0)) > 0) {
+                    return;
+                }
+            }
+            if (shardRepository.countUsedByCourseId(course.getId()) == 0) {
+                return;
+            }
+            pause();
+        }
+        throw new RuntimeException("当前选课人数过多，请稍后再试");
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(BUSY_PAUSE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("选课被中断", e);
+        }
+    }
+
+    /**
+     * 记录一次未分片课程的选课尝试，用于自动分片判断
+     */
+    public void recordAttempt(Long courseId) {
+        if (autoThreshold > 0) {
+            attempts.computeIfAbsent(courseId, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 为课程启用名额分片，已有分片时按新的分片数重新分配
+     * 先锁住课程行，等正在按courses行占名额的事务提交后再统计已选人数
+     */
+    @Transactional
+    public Course enableSharding(Long courseId, int slots) {
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new RuntimeException("分片数必须在1到" + MAX_SLOTS + "之间");
+        }
+        Course course = courseRepository.findByIdForUpdate(courseId)
+                .orElseThrow(() -> new RuntimeException("课程不存在"));
+        if (course.getMaxStudents() == null || course.getMaxStudents() <= 0) {
+            throw new RuntimeException("不限人数的课程无需分片");
+        }
+
+        course.setSeatShards(slots);
+        courseRepository.save(course);
+        rebuild(course);
+        log.info("课程{}已启用名额分片，分片数{}", courseId, slots);
+        return course;
+    }
+
+    /**
+     * 关闭名额分片：先删除分片（等待正在占分片的事务提交），再把已选人数回写courses
+     */
+    @Transactional
+    public Course disableSharding(Long courseId) {
+        Course course = courseRepository.findByIdForUpdate(courseId)
+                .orElseThrow(() -> new RuntimeException("课程不存在"));
+        if (!isSharded(course)) {
+            return course;
+        }
+
+        shardRepository.deleteByCourseId(courseId);
+        long enrolled = enrollmentRepository.countByCourseIdAndEnrollmentStatus(courseId, "ENROLLED");
+        course.setSeatShards(0);
+        course.setCurrentStudents((int) enrolled);
+        courseRepository.save(course);
+        log.info("课程{}已关闭名额分片", courseId);
+        return course;
+    }
+
+    /**
+     * 按课程容量和当前已选人数重新生成分片
+     * 容量和已选人数都尽量平均分到各分片，余数依次分给前面的分片
+     */
+    @Transactional
+    public void rebuild(Course course) {
+        int slots = course.getSeatShards();
+        int capacity = course.getMaxStudents();
+        long enrolled = enrollmentRepository.countByCourseIdAndEnrollmentStatus(course.getId(), "ENROLLED");
+
+        shardRepository.deleteByCourseId(course.getId());
+
+        List<CourseSeatShard> shards = new ArrayList<>(slots);
+        long remainingUsed = enrolled;
+        for (int slot = 0; slot < slots; slot++) {
+            int slotCapacity = capacity / slots + (slot < capacity % slots ? 1 : 0);
+            long slotUsed = Math.min(slotCapacity, (remainingUsed + (slots - slot) - 1) / (slots - slot));
+            // 容量缩小到已选人数以下时，超出的部分记在最后一个分片上，保证汇总准确
+            if (slot == slots - 1) {
+                slotUsed = remainingUsed;
+            }
+            remainingUsed -= slotUsed;
+
+            CourseSeatShard shard = new CourseSeatShard();
+            shard.setCourseId(course.getId());
+            shard.setSlot(slot);
+            shard.setCapacity(slotCapacity);
+            shard.setUsed((int) slotUsed);
+            shards.add(shard);
+        }
+        shardRepository.saveAll(shards);
+    }
+
+    /**
+     * 定时汇总各分片已占名额写回courses.current_students，并按选课尝试频率自动启用分片
+     */
+    @Scheduled(fixedDelayString = "${enrollment.seat-shards.sync-interval:2000}")
+    public void syncShardedCourses() {
+        try {
+            for (Course course : courseRepository.findBySeatShardsGreaterThan(0)) {
+                long used = shardRepository.sumUsedByCourseId(course.getId());
+                if (course.getCurrentStudents() == null || course.getCurrentStudents() != used) {
+                    courseRepository.updateCurrentStudents(course.getId(), (int) used);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("分片选课人数回写失败: {}", e.getMessage());
+        }
+
+        if (autoThreshold <= 0 || attempts.isEmpty()) {
+            return;
+        }
+        for (Long courseId : new ArrayList<>(attempts.keySet())) {
+            LongAdder counter = attempts.remove(courseId);
+            if (counter == null || counter.sum() < autoThreshold) {
+                continue;
+            }
+            try {
+                Course course = courseRepository.findById(courseId).orElse(null);
+                if (course != null && !isSharded(course)
+                        && course.getMaxStudents() != null && course.getMaxStudents() > 0) {
+                    log.info("课程{}选课请求过于集中（{}次），自动启用名额分片", courseId, counter.sum());
+                    transactionTemplate.executeWithoutResult(status -> enableSharding(courseId, defaultSlots));
+                }
+            } catch (Exception e) {
+                log.warn("课程{}自动启用名额分片失败: {}", courseId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.backend.service;
+
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 学生选课负荷：已选门数和已选学分合计
+ * 缓存在Redis哈希中，未命中时用一条聚合查询重建；
+ * 选课/退课/换课在事务内先登记一次进行中的写入，事务结束后撤销登记、递增版本号，提交时再把变化量累加到已有的缓存上；
+ * 重建前先读版本号，写回时版本号已变或仍有进行中的写入，说明查询结果可能不含或已含这些写入，丢弃不写，
+ * 因此缓存只会在没有并发写入时建立，之后的变化量都不包含在其中；
+ * 批量写入和课程学分变化时直接删除缓存并递增版本号；
+ * 学分以“学分×100”的整数保存，避免浮点误差
+ */
+@Service
+public class StudentLoadService {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentLoadService.class);
+
+    private static final String KEY_PREFIX = "enrollment:load:";
+    private static final String VERSION_PREFIX = "enrollment:load:ver:";
+    private static final String PENDING_PREFIX = "enrollment:load:pending:";
+    private static final int CHUNK_SIZE = 1000;
+
+    // 仅当版本号与查询前读到的一致且没有进行中的写入时写入重建结果，
+    // KEYS[1]为负荷key，KEYS[2]为版本号key，KEYS[3]为进行中写入数key
+    private static final String INIT_LUA =
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[4] then return 0 end " +
+            "if tonumber(redis.call('GET', KEYS[3]) or '0') > 0 then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'count', ARGV[1], 'credits', ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return 1";
+    private static final DefaultRedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>(INIT_LUA, Long.class);
+
+    // 登记一次进行中的写入，KEYS[1]为进行中写入数key，ARGV[1]为过期秒数（节点宕机未撤销时兜底）
+    private static final String BEGIN_LUA =
+            "redis.call('INCR', KEYS[1]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1";
+    private static final DefaultRedisScript<Long> BEGIN_SCRIPT = new DefaultRedisScript<>(BEGIN_LUA, Long.class);
+
+    // 撤销登记并递增版本号，已提交时把变化量累加到已有的缓存上（缓存不存在时不建立）
+    // KEYS同INIT，ARGV[1]为是否已提交，ARGV[2]为门数变化，ARGV[3]为学分变化（×100），ARGV[4]为版本号过期秒数
+    private static final String FINISH_LUA =
+            "if redis.call('DECR', KEYS[3]) <= 0 then redis.call('DEL', KEYS[3]) end " +
+            "redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[4]) " +
+            "if ARGV[1] == '1' and redis.call('EXISTS', KEYS[1]) == 1 then " +
+            "  redis.call('HINCRBY', KEYS[1], 'count', ARGV[2]) " +
+            "  redis.call('HINCRBY', KEYS[1], 'credits', ARGV[3]) " +
+            "  return 1 " +
+            "end " +
+            "return 0";
+    private static final DefaultRedisScript<Long> FINISH_SCRIPT = new DefaultRedisScript<>(FINISH_LUA, Long.class);
+
+    /**
+     * 已选门数与学分合计
+     */
+    public record Load(long count, BigDecimal credits) {
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Value("${enrollment.max-courses:10}")
+    private int maxCoursesPerStudent;
+
+    // 学分上限，0表示不限制
+    @Value("${enrollment.max-credits:0}")
+    private BigDecimal maxCredits;
+
+    @Value("${enrollment.load-cache-minutes:120}")
+    private long cacheMinutes;
+
+    public Load getLoad(Long studentId) {
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(key(studentId), List.of("count", "credits"));
+            if (values.get(0) != null && values.get(1) != null) {
+                return new Load(Long.parseLong((String) values.get(0)), fromCents(Long.parseLong((String) values.get(1))));
+            }
+        } catch (Exception e) {
+            log.warn("读取选课负荷缓存失败: {}", e.getMessage());
+        }
+
+        String version = null;
+        try {
+            version = Objects.requireNonNullElse(stringRedisTemplate.opsForValue().get(versionKey(studentId)), "0");
+        } catch (Exception e) {
+            log.warn("读取选课负荷版本失败: {}", e.getMessage());
+        }
+        Load load = loadFromDb(studentId);
+        if (version == null) {
+            return load;
+        }
+        try {
+            stringRedisTemplate.execute(INIT_SCRIPT, List.of(key(studentId), versionKey(studentId), pendingKey(studentId)),
+                    String.valueOf(load.count()), String.valueOf(toCents(load.credits())),
+                    String.valueOf(cacheMinutes * 60_000), version);
+        } catch (Exception e) {
+            log.warn("写入选课负荷缓存失败: {}", e.getMessage());
+        }
+        return load;
+    }
+
+    /**
+     * 在当前负荷上再增加若干门课程/学分时是否超出上限，超出时抛出异常
+     */
+    public void check(Load load, long addCount, BigDecimal addCredits) {
+        String message = violation(load, addCount, addCredits);
+        if (message != null) {
+            throw new RuntimeException(message);
+        }
+    }
+
+    /**
+     * 超出上限时返回提示，否则返回null
+     */
+    public String violation(Load load, long addCount, BigDecimal addCredits) {
+        if (load.count() + addCount > maxCoursesPerStudent) {
+            return "选课数量已达上限（最多" + maxCoursesPerStudent + "门）";
+        }
+        if (maxCredits.signum() > 0 && load.credits().add(addCredits).compareTo(maxCredits) > 0) {
+            return "学分超出上限（最多" + maxCredits.stripTrailingZeros().toPlainString() + "学分，已选"
+                    + load.credits().stripTrailingZeros().toPlainString() + "学分）";
+        }
+        return null;
+    }
+
+    /**
+     * 学分上限（学分×100），不限制时为Long.MAX_VALUE
+     */
+    public long maxCreditCents() {
+        return maxCredits.signum() > 0 ? toCents(maxCredits) : Long.MAX_VALUE;
+    }
+
+    /**
+     * 选课/退课/换课后按变化量更新缓存，必须在写入选课记录的事务内调用：
+     * 立即登记进行中的写入，事务结束后撤销登记，提交时累加变化量
+     * @param deltaCount 已选门数变化
+     * @param deltaCredits 已选学分变化
+     */
+    public void adjust(Long studentId, long deltaCount, BigDecimal deltaCredits) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictNow(List.of(studentId));
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(BEGIN_SCRIPT, List.of(pendingKey(studentId)), String.valueOf(cacheMinutes * 60));
+        } catch (Exception e) {
+            log.warn("登记选课负荷写入失败，提交后清除缓存: {}", e.getMessage());
+            evict(studentId);
+            return;
+        }
+        List<String> keys = List.of(key(studentId), versionKey(studentId), pendingKey(studentId));
+        String count = String.valueOf(deltaCount);
+        String cents = String.valueOf(toCents(deltaCredits));
+        String versionTtl = String.valueOf(cacheMinutes * 60);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                String committed = status == STATUS_COMMITTED ? "1" : "0";
+                try {
+                    stringRedisTemplate.execute(FINISH_SCRIPT, keys, committed, count, cents, versionTtl);
+                } catch (Exception e) {
+                    log.warn("更新选课负荷缓存失败: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 清除缓存（事务提交后执行），下次读取时重建
+     */
+    public void evict(Long studentId) {
+        afterCommit(() -> evictNow(List.of(studentId)));
+    }
+
+    /**
+     * 批量写入选课记录或课程学分变化后清除（事务提交后执行）
+     */
+    public void evict(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(studentIds);
+        afterCommit(() -> evictNow(ids));
+    }
+
+    /**
+     * 恢复：按学生分段，用分组聚合重新计算全部学生的负荷并覆盖缓存，
+     * 与读取时重建一样先读版本号，期间有写入提交的学生不覆盖
+     * @return 处理的学生数
+     */
+    public int rebuildAll() {
+        int total = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = studentRepository.findIdsAfter(afterId, PageRequest.of(0, CHUNK_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+
+            List<String> versions = stringRedisTemplate.opsForValue().multiGet(ids.stream().map(this::versionKey).toList());
+            Map<Long, Load> loads = new HashMap<>();
+            for (Object[] row : enrollmentRepository.sumLoadGroupByStudentIdIn(ids)) {
+                loads.put((Long) row[0], new Load((Long) row[1], toDecimal(row[2])));
+            }
+            String ttl = String.valueOf(cacheMinutes * 60_000);
+            byte[] script = INIT_LUA.getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    Long studentId = ids.get(i);
+                    Load load = loads.getOrDefault(studentId, new Load(0, BigDecimal.ZERO));
+                    String version = versions != null && versions.get(i) != null ? versions.get(i) : "0";
+                    connection.scriptingCommands().eval(script, ReturnType.INTEGER, 3,
+                            bytes(key(studentId)), bytes(versionKey(studentId)), bytes(pendingKey(studentId)),
+                            bytes(String.valueOf(load.count())), bytes(String.valueOf(toCents(load.credits()))),
+                            bytes(ttl), bytes(version));
+                }
+                return null;
+            });
+            total += ids.size();
+        }
+        log.info("选课负荷缓存重建完成，共{}名学生", total);
+        return total;
+    }
+
+    private Load loadFromDb(Long studentId) {
+        List<Object[]> rows = enrollmentRepository.sumLoadByStudentId(studentId);
+        if (rows.isEmpty()) {
+            return new Load(0, BigDecimal.ZERO);
+        }
+        Object[] row = rows.get(0);
+        return new Load((Long) row[0], toDecimal(row[1]));
+    }
+
+    // 删除缓存并递增版本号，使提交前开始的重建不再写回
+    private void evictNow(List<Long> studentIds) {
+        long versionTtl = cacheMinutes * 60;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long studentId : studentIds) {
+                    byte[] rawVersionKey = bytes(versionKey(studentId));
+                    connection.keyCommands().del(bytes(key(studentId)));
+                    connection.stringCommands().incr(rawVersionKey);
+                    connection.keyCommands().expire(rawVersionKey, versionTtl);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("清除选课负荷缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String key(Long studentId) {
+        return KEY_PREFIX + studentId;
+    }
+
+    private String versionKey(Long studentId) {
+        return VERSION_PREFIX + studentId;
+    }
+
+    private String pendingKey(Long studentId) {
+        return PENDING_PREFIX + studentId;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static long toCents(BigDecimal credits) {
+        return credits == null ? 0 : credits.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+}
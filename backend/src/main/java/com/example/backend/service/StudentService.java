@@ -1,5 +1,6 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.CursorPage;
 import com.example.backend.dto.StudentDTO;
 import com.example.backend.entity.ClassInfo;
 import com.example.backend.entity.Student;
@@ -7,6 +8,7 @@ import com.example.backend.entity.User;
 import com.example.backend.repository.ClassInfoRepository;
 import com.example.backend.repository.StudentRepository;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.util.PageCursor;
 import com.example.backend.util.PasswordUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -157,6 +159,21 @@ public class StudentService {
     }
 
     // 批量转换
+    /**
+     * 游标分页获取学生列表，按id排序，className、keyword为空时不过滤（不统计总数，withTotal为true时才额外统计）
+     */
+    public CursorPage<StudentDTO> getStudentPage(String className, String keyword, String cursor, int size,
+                                                 boolean withTotal, boolean includePassword) {
+        String classFilter = className != null && !className.trim().isEmpty() ? className : null;
+        String keywordFilter = keyword != null && !keyword.trim().isEmpty() ? keyword : null;
+        PageCursor after = PageCursor.decode(cursor);
+        List<Student> rows = studentRepository.findPageAfter(after != null ? after.id() : 0L,
+                classFilter, keywordFilter, CursorPage.fetch(size));
+        return CursorPage.of(rows, size, s -> new PageCursor(null, s.getId()).encode(),
+                s -> toStudentDTO(s, includePassword),
+                withTotal ? studentRepository.countPage(classFilter, keywordFilter) : null);
+    }
+
     public List<StudentDTO> toStudentDTOList(List<Student> students, boolean includePassword) {
         List<StudentDTO> dtoList = new ArrayList<>();
         for (Student student : students) {
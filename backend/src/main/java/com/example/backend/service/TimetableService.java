@@ -0,0 +1,194 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.CourseSchedule;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseScheduleRepository;
+import com.example.backend.util.TimetableBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 学生课表位图缓存
+ * 位图按学生缓存在Redis中，选课提交后用BITOP增量合并，退课提交后删除，未命中时从数据库重建
+ */
+@Service
+public class TimetableService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimetableService.class);
+
+    // 仅当学生位图已缓存时才做增量合并，否则等下次读取时重建
+    private static final byte[] MERGE_SCRIPT = (
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('SET', KEYS[2], ARGV[1], 'PX', 10000) " +
+            "redis.call('BITOP', ARGV[2], KEYS[1], KEYS[1], KEYS[2]) " +
+            "redis.call('DEL', KEYS[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CourseScheduleRepository scheduleRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseCacheService courseCacheService;
+
+    @Value("${enrollment.timetable-cache-minutes:120}")
+    private long cacheMinutes;
+
+    /**
+     * 课程的占用位图（读本地课程缓存）
+     */
+    public TimetableBitmap getCourseBitmap(Long courseId) {
+        return courseCacheService.getCourseBitmap(courseId);
+    }
+
+    /**
+     * 学生已选课程的占用位图（优先读缓存）
+     */
+    public TimetableBitmap getStudentBitmap(Long studentId) {
+        try {
+            byte[] cached = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                    connection.stringCommands().get(rawKey(studentId)));
+            TimetableBitmap bitmap = TimetableBitmap.fromBytes(cached);
+            if (bitmap != null) {
+                return bitmap;
+            }
+        } catch (Exception e) {
+            log.warn("读取课表位图缓存失败: {}", e.getMessage());
+        }
+        return rebuild(studentId, scheduleRepository.findByStudentEnrolled(studentId));
+    }
+
+    /**
+     * 用已加载的时间安排重建学生位图并写入缓存
+     */
+    public TimetableBitmap rebuild(Long studentId, List<CourseSchedule> enrolledSchedules) {
+        TimetableBitmap bitmap = TimetableBitmap.of(enrolledSchedules);
+        try {
+            byte[] bytes = bitmap.toBytes();
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().setEx(rawKey(studentId), cacheMinutes * 60, bytes));
+        } catch (Exception e) {
+            log.warn("写入课表位图缓存失败: {}", e.getMessage());
+        }
+        return bitmap;
+    }
+
+    /**
+     * 选课成功后合并课程位图（事务提交后执行）
+     */
+    public void onEnrolled(Long studentId, TimetableBitmap courseBitmap) {
+        if (courseBitmap.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> merge(studentId, courseBitmap.toBytes(), "OR"));
+    }
+
+    /**
+     * 退课后清除学生位图（事务提交后执行），下次读取时按剩余课程重建
+     * 不能按位清除退选课程：管理员修改时间安排或按班级批量选课后，已选课程之间可能重叠，
+     * 清除的位可能仍被其他课程占用
+     */
+    public void onDropped(Long studentId) {
+        afterCommit(() -> evictStudent(studentId));
+    }
+
+    public void evictStudent(Long studentId) {
+        try {
+            stringRedisTemplate.delete(key(studentId));
+        } catch (Exception e) {
+            log.warn("清除课表位图缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 批量清除学生位图（事务提交后执行）
+     */
+    public void evictStudents(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = studentIds.stream().map(this::key).toList();
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.delete(keys);
+            } catch (Exception e) {
+                log.warn("清除课表位图缓存失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 课程时间安排变更后，清除所有已选该课程学生的位图
+     */
+    public void evictCourseStudents(Long courseId) {
+        List<Long> studentIds = enrollmentRepository.findEnrolledStudentIdsByCourseId(courseId);
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.delete(studentIds.stream().map(this::key).toList());
+            } catch (Exception e) {
+                log.warn("清除课表位图缓存失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void merge(Long studentId, byte[] operand, String op) {
+        try {
+            byte[][] keysAndArgs = {
+                    rawKey(studentId),
+                    (key(studentId) + ":tmp").getBytes(StandardCharsets.UTF_8),
+                    operand,
+                    op.getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(cacheMinutes * 60_000).getBytes(StandardCharsets.UTF_8)
+            };
+            stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.scriptingCommands().eval(MERGE_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs));
+        } catch (Exception e) {
+            // 增量更新失败时直接删除，下次读取时重建
+            log.warn("更新课表位图缓存失败: {}", e.getMessage());
+            evictStudent(studentId);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // 使用hash tag保证临时key与位图key落在同一个slot
+    private String key(Long studentId) {
+        return "enrollment:timetable:{" + studentId + "}";
+    }
+
+    private byte[] rawKey(Long studentId) {
+        return key(studentId).getBytes(StandardCharsets.UTF_8);
+    }
+}
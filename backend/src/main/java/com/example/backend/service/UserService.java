@@ -1,5 +1,6 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.CursorPage;
 import com.example.backend.dto.RegisterRequest;
 import com.example.backend.dto.UpdatePasswordRequest;
 import com.example.backend.dto.UpdateProfileRequest;
@@ -8,6 +9,7 @@ import com.example.backend.entity.Student;
 import com.example.backend.entity.User;
 import com.example.backend.repository.StudentRepository;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.util.PageCursor;
 import com.example.backend.util.PasswordUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -152,6 +154,17 @@ public class UserService {
     }
 
     // 获取所有用户列表
+    /**
+     * 游标分页获取用户列表，按注册时间倒序（不统计总数，withTotal为true时才额外统计）
+     */
+    public CursorPage<UserInfo> getUserPage(String cursor, int size, boolean withTotal) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<User> rows = userRepository.findPageBefore(after != null ? after.createdAt() : null,
+                after != null ? after.id() : null, CursorPage.fetch(size));
+        return CursorPage.of(rows, size, u -> new PageCursor(u.getCreatedAt(), u.getId()).encode(),
+                this::toUserInfo, withTotal ? userRepository.count() : null);
+    }
+
     public List<UserInfo> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(this::toUserInfo)
@@ -0,0 +1,112 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.WaitlistDTO;
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseWaitlist;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseWaitlistRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 候补名单
+ * 按课程先进先出，自增ID即排队顺序；退课时由 CourseEnrollmentService 在同一事务中递补队首
+ */
+@Service
+public class WaitlistService {
+
+    @Autowired
+    private CourseWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private PrerequisiteService prerequisiteService;
+
+    /**
+     * 加入候补，返回当前排队位置
+     */
+    @Transactional
+    public WaitlistDTO join(Long courseId, Long studentId, Long userId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("课程不存在"));
+
+        if (!"ACTIVE".equals(course.getStatus())) {
+            throw new RuntimeException("该课程当前不可选");
+        }
+        if ("LOTTERY".equals(course.getEnrollMode()) && course.getLotteryDrawnAt() == null) {
+            throw new RuntimeException("该课程为抽签选课，抽签结束后才能候补");
+        }
+        if (enrollmentRepository.existsByCourseIdAndStudentIdAndEnrollmentStatus(courseId, studentId, "ENROLLED")) {
+            throw new RuntimeException("您已选择该课程");
+        }
+        prerequisiteService.checkPrerequisites(courseId, studentId);
+        if (waitlistRepository.existsByCourseIdAndStudentId(courseId, studentId)) {
+            throw new RuntimeException("您已在该课程的候补名单中");
+        }
+        if (seatReservationService.hasAvailableSeat(course)) {
+            throw new RuntimeException("该课程仍有名额，请直接选课");
+        }
+
+        CourseWaitlist entry = new CourseWaitlist();
+        entry.setCourseId(courseId);
+        entry.setStudentId(studentId);
+        entry.setUserId(userId);
+        entry = waitlistRepository.save(entry);
+
+        return toDTO(entry, course);
+    }
+
+    /**
+     * 退出候补
+     */
+    @Transactional
+    public void leave(Long courseId, Long studentId) {
+        CourseWaitlist entry = waitlistRepository.findByCourseIdAndStudentId(courseId, studentId)
+                .orElseThrow(() -> new RuntimeException("您不在该课程的候补名单中"));
+        waitlistRepository.delete(entry);
+    }
+
+    /**
+     * 我的候补及排队位置
+     */
+    public List<WaitlistDTO> getMyWaitlist(Long studentId) {
+        List<CourseWaitlist> entries = waitlistRepository.findByStudentIdOrderByIdAsc(studentId);
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Course> courseMap = new HashMap<>();
+        courseRepository.findAllById(entries.stream().map(CourseWaitlist::getCourseId).toList())
+                .forEach(course -> courseMap.put(course.getId(), course));
+
+        List<WaitlistDTO> result = new ArrayList<>();
+        for (CourseWaitlist entry : entries) {
+            result.add(toDTO(entry, courseMap.get(entry.getCourseId())));
+        }
+        return result;
+    }
+
+    private WaitlistDTO toDTO(CourseWaitlist entry, Course course) {
+        WaitlistDTO dto = new WaitlistDTO();
+        dto.setCourseId(entry.getCourseId());
+        dto.setCourseName(course != null ? course.getCourseName() : null);
+        dto.setPosition(waitlistRepository.countByCourseIdAndIdLessThan(entry.getCourseId(), entry.getId()) + 1);
+        dto.setJoinedAt(entry.getCreatedAt());
+        return dto;
+    }
+}
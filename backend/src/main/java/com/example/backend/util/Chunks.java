@@ -0,0 +1,33 @@
+package com.example.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按固定大小切分列表，批量IN查询时每条SQL最多带一段ID
+ */
+public final class Chunks {
+
+    public static final int DEFAULT_SIZE = 1000;
+
+    private Chunks() {
+    }
+
+    public static <T> List<List<T>> of(List<T> list) {
+        return of(list, DEFAULT_SIZE);
+    }
+
+    /**
+     * 返回的每一段都是原列表的视图，原列表在使用期间不能修改
+     */
+    public static <T> List<List<T>> of(List<T> list, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("分段大小必须大于0: " + size);
+        }
+        List<List<T>> chunks = new ArrayList<>((list.size() + size - 1) / size);
+        for (int i = 0; i < list.size(); i += size) {
+            chunks.add(list.subList(i, Math.min(list.size(), i + size)));
+        }
+        return chunks;
+    }
+}
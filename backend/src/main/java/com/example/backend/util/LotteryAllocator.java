@@ -0,0 +1,185 @@
+package com.example.backend.util;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 抽签选课分配
+ * 每个学生抽一个随机签号，按志愿轮次分配：第r轮只处理每个学生的第r个志愿，
+ * 同一门课的申请者按签号排序后依次录取，直到名额用完；录取时检查选课数量上限、学分上限和时间冲突。
+ * 同一轮中每个学生只出现在一门课程里，因此各课程可以用fork/join并行处理，互不影响
+ */
+public class LotteryAllocator {
+
+    private static final int COURSES_PER_TASK = 16;
+
+    /**
+     * 一条志愿
+     */
+    public record Preference(long id, long studentId, long courseId, int rank) {
+    }
+
+    /**
+     * 学生当前状态：剩余可选门数、剩余可选学分（学分×100）、已占用的课表位图
+     */
+    public static class StudentState {
+        private final long studentId;
+        private final long ticket;
+        private int remaining;
+        private long remainingCredits;
+        private final TimetableBitmap bitmap;
+        private final List<Preference> preferences = new ArrayList<>();
+        private int next;
+
+        public StudentState(long studentId, long ticket, int remaining, TimetableBitmap bitmap) {
+            this(studentId, ticket, remaining, Long.MAX_VALUE, bitmap);
+        }
+
+        public StudentState(long studentId, long ticket, int remaining, long remainingCredits, TimetableBitmap bitmap) {
+            this.studentId = studentId;
+            this.ticket = ticket;
+            this.remaining = remaining;
+            this.remainingCredits = remainingCredits;
+            this.bitmap = bitmap;
+        }
+
+        public long getStudentId() {
+            return studentId;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        public long getRemainingCredits() {
+            return remainingCredits;
+        }
+    }
+
+    private final Map<Long, int[]> seats = new HashMap<>();
+    private final Map<Long, TimetableBitmap> courseBitmaps;
+    private final Map<Long, Long> courseCredits;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param remainingSeats 各课程剩余名额，不在其中的课程视为不可分配；Integer.MAX_VALUE表示不限
+     * @param courseBitmaps 各课程占用位图，没有时间安排的课程可以不提供
+     */
+    public LotteryAllocator(Map<Long, Integer> remainingSeats, Map<Long, TimetableBitmap> courseBitmaps, ForkJoinPool pool) {
+        this(remainingSeats, courseBitmaps, Map.of(), pool);
+    }
+
+    /**
+     * @param courseCredits 各课程学分（学分×100），不在其中的课程按0学分计
+     */
+    public LotteryAllocator(Map<Long, Integer> remainingSeats, Map<Long, TimetableBitmap> courseBitmaps,
+                            Map<Long, Long> courseCredits, ForkJoinPool pool) {
+        remainingSeats.forEach((courseId, count) -> seats.put(courseId, new int[]{count}));
+        this.courseBitmaps = courseBitmaps;
+        this.courseCredits = courseCredits;
+        this.pool = pool;
+    }
+
+    /**
+     * 分配名额，返回被录取的志愿
+     * @param students 参与抽签的学生（按学生ID），会被就地修改
+     */
+    public List<Preference> allocate(Map<Long, StudentState> students, List<Preference> preferences) {
+        for (Preference preference : preferences) {
+            StudentState student = students.get(preference.studentId());
+            if (student != null) {
+                student.preferences.add(preference);
+            }
+        }
+        int rounds = 0;
+        for (StudentState student : students.values()) {
+            student.preferences.sort(Comparator.comparingInt(Preference::rank));
+            rounds = Math.max(rounds, student.preferences.size());
+        }
+
+        List<Preference> accepted = Collections.synchronizedList(new ArrayList<>());
+        for (int round = 0; round < rounds; round++) {
+            // 本轮按课程分组：每个学生取下一个志愿
+            Map<Long, List<StudentState>> applicants = new HashMap<>();
+            for (StudentState student : students.values()) {
+                if (student.remaining > 0 && student.next < student.preferences.size()) {
+                    long courseId = student.preferences.get(student.next).courseId();
+                    applicants.computeIfAbsent(courseId, k -> new ArrayList<>()).add(student);
+                }
+            }
+            if (applicants.isEmpty()) {
+                break;
+            }
+
+            List<Map.Entry<Long, List<StudentState>>> groups = new ArrayList<>(applicants.entrySet());
+            pool.invoke(new RoundTask(groups, 0, groups.size(), accepted));
+
+            for (List<StudentState> group : applicants.values()) {
+                for (StudentState student : group) {
+                    student.next++;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private void allocateCourse(long courseId, List<StudentState> group, List<Preference> accepted) {
+        int[] seat = seats.get(courseId);
+        if (seat == null || seat[0] <= 0) {
+            return;
+        }
+        TimetableBitmap courseBitmap = courseBitmaps.get(courseId);
+        long credits = courseCredits.getOrDefault(courseId, 0L);
+        group.sort(Comparator.comparingLong(student -> student.ticket));
+
+        for (StudentState student : group) {
+            if (seat[0] <= 0) {
+                break;
+            }
+            if (credits > student.remainingCredits) {
+                continue;
+            }
+            if (courseBitmap != null && courseBitmap.intersects(student.bitmap)) {
+                continue;
+            }
+            if (courseBitmap != null) {
+                student.bitmap.or(courseBitmap);
+            }
+            student.remaining--;
+            student.remainingCredits -= credits;
+            if (seat[0] != Integer.MAX_VALUE) {
+                seat[0]--;
+            }
+            accepted.add(student.preferences.get(student.next));
+        }
+    }
+
+    private class RoundTask extends RecursiveAction {
+        private final List<Map.Entry<Long, List<StudentState>>> groups;
+        private final int from;
+        private final int to;
+        private final List<Preference> accepted;
+
+        RoundTask(List<Map.Entry<Long, List<StudentState>>> groups, int from, int to, List<Preference> accepted) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.accepted = accepted;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= COURSES_PER_TASK) {
+                List<Preference> local = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    allocateCourse(groups.get(i).getKey(), groups.get(i).getValue(), local);
+                }
+                accepted.addAll(local);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RoundTask(groups, from, mid, accepted), new RoundTask(groups, mid, to, accepted));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页（keyset）的游标：上一页最后一条记录的(createdAt, id)，编码为URL安全的Base64
+ * 下一页只查询排在它之后的记录，走(createdAt, id)复合索引，翻页深度不影响查询代价。
+ * 没有创建时间的表只按id分页，createdAt为null
+ */
+public record PageCursor(LocalDateTime createdAt, long id) {
+
+    /**
+     * 解析请求中的游标，空字符串表示第一页，返回null
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf('|');
+            long id = Long.parseLong(raw.substring(split + 1));
+            LocalDateTime createdAt = split > 0 ? LocalDateTime.parse(raw.substring(0, split)) : null;
+            return new PageCursor(createdAt, id);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    public String encode() {
+        String raw = (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.backend.util;
+
+import java.util.*;
+
+/**
+ * 课程先修关系图（有向无环）
+ * 每门课程对应一个稠密编号，传递闭包（全部直接和间接先修课程）用BitSet保存，
+ * 选课时只需把学生已修完课程的位集合与闭包做一次差集。
+ * 增删先修关系时只重算受影响课程（该课程及所有依赖它的课程）的闭包。
+ * 非线程安全：由调用方以写时复制的方式发布（见copy）
+ */
+public class PrerequisiteGraph {
+
+    /**
+     * 一条先修关系：courseId要求先修完prerequisiteId
+     */
+    public record Edge(long courseId, long prerequisiteId) {
+    }
+
+    private final Map<Long, Integer> index = new HashMap<>();
+    private final List<Long> courseIds = new ArrayList<>();
+    // 直接先修、直接后续（依赖本课程的课程）、传递闭包，按编号
+    private final List<BitSet> direct = new ArrayList<>();
+    private final List<BitSet> dependents = new ArrayList<>();
+    private final List<BitSet> closure = new ArrayList<>();
+
+    public PrerequisiteGraph() {
+    }
+
+    /**
+     * 按给定关系构建，会形成环的关系被跳过并放入rejected
+     */
+    public PrerequisiteGraph(Collection<Edge> edges, List<Edge> rejected) {
+        for (Edge edge : edges) {
+            if (!addEdge(edge.courseId(), edge.prerequisiteId())) {
+                rejected.add(edge);
+            }
+        }
+    }
+
+    public PrerequisiteGraph copy() {
+        PrerequisiteGraph copy = new PrerequisiteGraph();
+        copy.index.putAll(index);
+        copy.courseIds.addAll(courseIds);
+        direct.forEach(bits -> copy.direct.add((BitSet) bits.clone()));
+        dependents.forEach(bits -> copy.dependents.add((BitSet) bits.clone()));
+        closure.forEach(bits -> copy.closure.add((BitSet) bits.clone()));
+        return copy;
+    }
+
+    /**
+     * 添加先修关系，会形成环（含自环）时不做修改并返回false
+     */
+    public boolean addEdge(long courseId, long prerequisiteId) {
+        if (courseId == prerequisiteId) {
+            return false;
+        }
+        int course = indexOf(courseId);
+        int prerequisite = indexOf(prerequisiteId);
+        if (closure.get(prerequisite).get(course)) {
+            return false;
+        }
+        if (direct.get(course).get(prerequisite)) {
+            return true;
+        }
+        direct.get(course).set(prerequisite);
+        dependents.get(prerequisite).set(course);
+
+        // 本课程及依赖它的课程都新增：先修课程本身及其闭包
+        BitSet added = (BitSet) closure.get(prerequisite).clone();
+        added.set(prerequisite);
+        BitSet affected = affected(course);
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            closure.get(i).or(added);
+        }
+        return true;
+    }
+
+    /**
+     * 删除先修关系，不存在时返回false
+     */
+    public boolean removeEdge(long courseId, long prerequisiteId) {
+        Integer course = index.get(courseId);
+        Integer prerequisite = index.get(prerequisiteId);
+        if (course == null || prerequisite == null || !direct.get(course).get(prerequisite)) {
+            return false;
+        }
+        direct.get(course).clear(prerequisite);
+        dependents.get(prerequisite).clear(course);
+        recompute(affected(course));
+        return true;
+    }
+
+    /**
+     * 删除课程相关的全部先修关系（课程被删除时）
+     */
+    public void removeCourse(long courseId) {
+        Integer course = index.get(courseId);
+        if (course == null) {
+            return;
+        }
+        BitSet affected = affected(course);
+        BitSet prerequisites = direct.get(course);
+        for (int i = prerequisites.nextSetBit(0); i >= 0; i = prerequisites.nextSetBit(i + 1)) {
+            dependents.get(i).clear(course);
+        }
+        prerequisites.clear();
+        BitSet followers = dependents.get(course);
+        for (int i = followers.nextSetBit(0); i >= 0; i = followers.nextSetBit(i + 1)) {
+            direct.get(i).clear(course);
+        }
+        followers.clear();
+        recompute(affected);
+    }
+
+    public boolean hasPrerequisites(long courseId) {
+        Integer course = index.get(courseId);
+        return course != null && !closure.get(course).isEmpty();
+    }
+
+    /**
+     * 直接先修课程
+     */
+    public List<Long> directPrerequisites(long courseId) {
+        Integer course = index.get(courseId);
+        return course == null ? List.of() : toIds(direct.get(course));
+    }
+
+    /**
+     * 全部（直接和间接）先修课程
+     */
+    public List<Long> allPrerequisites(long courseId) {
+        Integer course = index.get(courseId);
+        return course == null ? List.of() : toIds(closure.get(course));
+    }
+
+    /**
+     * 尚未修完的先修课程
+     * @param completed 已修完的课程（见toBits）
+     */
+    public List<Long> missing(long courseId, BitSet completed) {
+        Integer course = index.get(courseId);
+        if (course == null) {
+            return List.of();
+        }
+        BitSet missing = (BitSet) closure.get(course).clone();
+        missing.andNot(completed);
+        return toIds(missing);
+    }
+
+    /**
+     * 课程ID集合转为位集合，图中没有的课程与先修检查无关，直接忽略
+     */
+    public BitSet toBits(Collection<Long> ids) {
+        BitSet bits = new BitSet(courseIds.size());
+        for (Long id : ids) {
+            Integer i = index.get(id);
+            if (i != null) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    public int edgeCount() {
+        int count = 0;
+        for (BitSet bits : direct) {
+            count += bits.cardinality();
+        }
+        return count;
+    }
+
+    private int indexOf(long courseId) {
+        Integer i = index.get(courseId);
+        if (i != null) {
+            return i;
+        }
+        int next = courseIds.size();
+        index.put(courseId, next);
+        courseIds.add(courseId);
+        direct.add(new BitSet());
+        dependents.add(new BitSet());
+        closure.add(new BitSet());
+        return next;
+    }
+
+    // 课程本身及全部直接或间接依赖它的课程
+    private BitSet affected(int course) {
+        BitSet affected = new BitSet();
+        Deque<Integer> stack = new ArrayDeque<>();
+        affected.set(course);
+        stack.push(course);
+        while (!stack.isEmpty()) {
+            BitSet next = dependents.get(stack.pop());
+            for (int i = next.nextSetBit(0); i >= 0; i = next.nextSetBit(i + 1)) {
+                if (!affected.get(i)) {
+                    affected.set(i);
+                    stack.push(i);
+                }
+            }
+        }
+        return affected;
+    }
+
+    // 按拓扑顺序重算受影响课程的闭包，不受影响的先修课程闭包保持不变
+    private void recompute(BitSet affected) {
+        Map<Integer, Integer> pending = new HashMap<>();
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            BitSet inside = (BitSet) direct.get(i).clone();
+            inside.and(affected);
+            pending.put(i, inside.cardinality());
+            if (inside.isEmpty()) {
+                ready.add(i);
+            }
+        }
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            BitSet bits = new BitSet();
+            BitSet prerequisites = direct.get(i);
+            for (int p = prerequisites.nextSetBit(0); p >= 0; p = prerequisites.nextSetBit(p + 1)) {
+                bits.or(closure.get(p));
+                bits.set(p);
+            }
+            closure.set(i, bits);
+
+            BitSet followers = dependents.get(i);
+            for (int f = followers.nextSetBit(0); f >= 0; f = followers.nextSetBit(f + 1)) {
+                if (affected.get(f) && pending.merge(f, -1, Integer::sum) == 0) {
+                    ready.add(f);
+                }
+            }
+        }
+    }
+
+    private List<Long> toIds(BitSet bits) {
+        List<Long> ids = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            ids.add(courseIds.get(i));
+        }
+        return ids;
+    }
+}
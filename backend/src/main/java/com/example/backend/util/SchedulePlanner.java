@@ -0,0 +1,248 @@
+package com.example.backend.util;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 排课方案枚举：从意向课程中找出所有互不冲突、不超过剩余门数和学分且无法再加课的组合，按学分或空闲天数取前K个
+ * 候选课程两两之间的冲突预先用位图求交算成int掩码，回溯时只做整数运算；
+ * 按学分排序时用剩余课程学分之和、按空闲天数排序时用当前空闲天数做上界剪枝。
+ * 回溯树的前几层用fork/join拆分，每个子任务各自保留前K个结果，最后合并
+ */
+public class SchedulePlanner {
+
+    public static final int MAX_CANDIDATES = 30;
+
+    // 只统计周一到周五的空闲天数
+    private static final int WEEKDAY_MASK = 0b11111;
+    private static final int WEEKDAYS = 5;
+    private static final int FORK_MIN_REMAINING = 8;
+    private static final int FORK_DEPTH = 4;
+    // 学分为小数，比较上限时容忍浮点累加误差
+    private static final double CREDIT_EPSILON = 1e-6;
+
+    public enum Rank { CREDITS, FREE_DAYS }
+
+    /**
+     * 候选课程
+     * @param dayMask 上课的星期，第0位为周一
+     */
+    public record Candidate(long courseId, double credits, TimetableBitmap bitmap, int dayMask) {
+    }
+
+    /**
+     * 一个排课方案（只包含本次意向课程，不含已选课程）
+     */
+    public record Plan(List<Long> courseIds, double credits, int freeDays) {
+    }
+
+    private final Candidate[] candidates;
+    private final int[] conflicts;
+    private final double[] suffixCredits;
+    private final int baseDayMask;
+    private final int maxCourses;
+    private final double maxCredits;
+    private final Rank rank;
+    private final int topK;
+    private final Comparator<Plan> order;
+
+    /**
+     * @param candidates 候选课程，已与已选课程冲突的课程应事先剔除
+     * @param baseDayMask 已选课程占用的星期
+     * @param maxCourses 本次最多还能选的门数
+     */
+    public SchedulePlanner(List<Candidate> candidates, int baseDayMask, int maxCourses, Rank rank, int topK) {
+        this(candidates, baseDayMask, maxCourses, Double.POSITIVE_INFINITY, rank, topK);
+    }
+
+    /**
+     * @param maxCredits 本次最多还能选的学分，不限制时为Double.POSITIVE_INFINITY
+     */
+    public SchedulePlanner(List<Candidate> candidates, int baseDayMask, int maxCourses, double maxCredits,
+                           Rank rank, int topK) {
+        if (candidates.size() > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("候选课程过多: " + candidates.size());
+        }
+        // 学分高的课程排在前面，按学分排序时剪枝更早生效
+        this.candidates = candidates.stream()
+                .sorted(Comparator.comparingDouble(Candidate::credits).reversed().thenComparingLong(Candidate::courseId))
+                .toArray(Candidate[]::new);
+        int n = this.candidates.length;
+        this.conflicts = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (this.candidates[i].bitmap().intersects(this.candidates[j].bitmap())) {
+                    conflicts[i] |= 1 << j;
+                    conflicts[j] |= 1 << i;
+                }
+            }
+        }
+        this.suffixCredits = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            suffixCredits[i] = suffixCredits[i + 1] + this.candidates[i].credits();
+        }
+        this.baseDayMask = baseDayMask;
+        this.maxCourses = maxCourses;
+        this.maxCredits = maxCredits;
+        this.rank = rank;
+        this.topK = topK;
+
+        Comparator<Plan> byCredits = Comparator.comparingDouble(Plan::credits).reversed();
+        Comparator<Plan> byFreeDays = Comparator.comparingInt(Plan::freeDays).reversed();
+        Comparator<Plan> primary = rank == Rank.CREDITS ? byCredits.thenComparing(byFreeDays) : byFreeDays.thenComparing(byCredits);
+        this.order = primary.thenComparing(Plan::courseIds, SchedulePlanner::compareIds);
+    }
+
+    public List<Plan> plan(ForkJoinPool pool) {
+        if (candidates.length == 0 || maxCourses <= 0 || topK <= 0) {
+            return List.of();
+        }
+        TopK result = pool.invoke(new SearchTask(0, 0, 0, 0, 0.0, 0));
+        return result.sorted();
+    }
+
+    public static int freeDays(int dayMask) {
+        return WEEKDAYS - Integer.bitCount(dayMask & WEEKDAY_MASK);
+    }
+
+    private class SearchTask extends RecursiveTask<TopK> {
+        private final int index;
+        private final int chosen;
+        private final int dayMask;
+        private final int count;
+        private final double credits;
+        private final int depth;
+
+        SearchTask(int index, int chosen, int dayMask, int count, double credits, int depth) {
+            this.index = index;
+            this.chosen = chosen;
+            this.dayMask = dayMask;
+            this.count = count;
+            this.credits = credits;
+            this.depth = depth;
+        }
+
+        @Override
+        protected TopK compute() {
+            TopK top = new TopK();
+            if (depth < FORK_DEPTH && candidates.length - index >= FORK_MIN_REMAINING) {
+                SearchTask include = null;
+                if (canAdd(index, chosen, count, credits)) {
+                    include = new SearchTask(index + 1, chosen | 1 << index, dayMask | candidates[index].dayMask(),
+                            count + 1, credits + candidates[index].credits(), depth + 1);
+                    include.fork();
+                }
+                top.merge(new SearchTask(index + 1, chosen, dayMask, count, credits, depth + 1).compute());
+                if (include != null) {
+                    top.merge(include.join());
+                }
+            } else {
+                search(top, index, chosen, dayMask, count, credits);
+            }
+            return top;
+        }
+    }
+
+    private void search(TopK top, int i, int chosen, int dayMask, int count, double credits) {
+        if (prune(top, i, dayMask, credits)) {
+            return;
+        }
+        if (i == candidates.length || count == maxCourses) {
+            if (count > 0 && isMaximal(chosen, count, credits)) {
+                top.offer(toPlan(chosen, dayMask, credits));
+            }
+            return;
+        }
+        if (canAdd(i, chosen, count, credits)) {
+            search(top, i + 1, chosen | 1 << i, dayMask | candidates[i].dayMask(), count + 1, credits + candidates[i].credits());
+        }
+        search(top, i + 1, chosen, dayMask, count, credits);
+    }
+
+    private boolean prune(TopK top, int i, int dayMask, double credits) {
+        Plan worst = top.worstIfFull();
+        if (worst == null) {
+            return false;
+        }
+        if (rank == Rank.CREDITS) {
+            return Math.min(credits + suffixCredits[i], maxCredits) < worst.credits();
+        }
+        // 加课只会减少空闲天数
+        return freeDays(baseDayMask | dayMask) < worst.freeDays();
+    }
+
+    private boolean canAdd(int i, int chosen, int count, double credits) {
+        return count < maxCourses && (chosen & conflicts[i]) == 0 && fitsCredits(credits, i);
+    }
+
+    private boolean fitsCredits(double credits, int i) {
+        return credits + candidates[i].credits() <= maxCredits + CREDIT_EPSILON;
+    }
+
+    /**
+     * 还能再加入任何一门候选课程的组合不作为方案返回
+     */
+    private boolean isMaximal(int chosen, int count, double credits) {
+        if (count >= maxCourses) {
+            return true;
+        }
+        for (int j = 0; j < candidates.length; j++) {
+            if ((chosen & 1 << j) == 0 && (chosen & conflicts[j]) == 0 && fitsCredits(credits, j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Plan toPlan(int chosen, int dayMask, double credits) {
+        List<Long> ids = new ArrayList<>(Integer.bitCount(chosen));
+        for (int j = 0; j < candidates.length; j++) {
+            if ((chosen & 1 << j) != 0) {
+                ids.add(candidates[j].courseId());
+            }
+        }
+        Collections.sort(ids);
+        return new Plan(ids, credits, freeDays(baseDayMask | dayMask));
+    }
+
+    private static int compareIds(List<Long> a, List<Long> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int c = Long.compare(a.get(i), b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    /**
+     * 前K个方案，堆顶为当前最差的方案
+     */
+    private class TopK {
+        private final PriorityQueue<Plan> heap = new PriorityQueue<>(order.reversed());
+
+        void offer(Plan plan) {
+            if (heap.size() < topK) {
+                heap.add(plan);
+            } else if (order.compare(plan, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(plan);
+            }
+        }
+
+        Plan worstIfFull() {
+            return heap.size() < topK ? null : heap.peek();
+        }
+
+        void merge(TopK other) {
+            other.heap.forEach(this::offer);
+        }
+
+        List<Plan> sorted() {
+            List<Plan> plans = new ArrayList<>(heap);
+            plans.sort(order);
+            return plans;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.backend.util;
+
+import com.example.backend.entity.CourseSchedule;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 按星期分组的节次扫描线，一次找出所有时间冲突
+ * 每条时间安排是某天上的一个节次区间[start, end]，按起始节排序后扫描，
+ * 只与仍未结束的区间比较；节次重叠后再用周次掩码判断单双周和起止周是否重叠
+ */
+public class ScheduleSweepLine {
+
+    /**
+     * 一处冲突：两条时间安排在同一天重叠的节次和周次
+     */
+    public record Clash(CourseSchedule first, CourseSchedule second, int dayOfWeek,
+                        int sectionStart, int sectionEnd, int weekMask) {
+    }
+
+    private record Interval(CourseSchedule schedule, int start, int end, int weekMask, boolean candidate) {
+    }
+
+    // 下标为星期几（1-7），0不使用
+    private final List<List<Interval>> days = new ArrayList<>(TimetableBitmap.DAYS + 1);
+
+    public ScheduleSweepLine() {
+        for (int day = 0; day <= TimetableBitmap.DAYS; day++) {
+            days.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * 加入一条时间安排
+     * @param candidate 是否为待选课程；两条都不是待选课程的冲突不报告
+     */
+    public void add(CourseSchedule schedule, boolean candidate) {
+        Integer day = schedule.getDayOfWeek();
+        int[] sections = TimetableBitmap.sectionRange(schedule);
+        if (day == null || day < 1 || day > TimetableBitmap.DAYS || sections == null) {
+            return;
+        }
+        int weekMask = weekMask(schedule);
+        if (weekMask == 0) {
+            return;
+        }
+        days.get(day).add(new Interval(schedule, sections[0], sections[1], weekMask, candidate));
+    }
+
+    public List<Clash> findClashes() {
+        List<Clash> clashes = new ArrayList<>();
+        for (int day = 1; day <= TimetableBitmap.DAYS; day++) {
+            List<Interval> intervals = days.get(day);
+            if (intervals.size() < 2) {
+                continue;
+            }
+            intervals.sort(Comparator.comparingInt(Interval::start));
+
+            List<Interval> active = new ArrayList<>();
+            for (Interval current : intervals) {
+                active.removeIf(interval -> interval.end() < current.start());
+                for (Interval other : active) {
+                    if (!other.candidate() && !current.candidate()) {
+                        continue;
+                    }
+                    if (other.schedule().getCourseId().equals(current.schedule().getCourseId())) {
+                        continue;
+                    }
+                    int weeks = other.weekMask() & current.weekMask();
+                    if (weeks != 0) {
+                        clashes.add(new Clash(other.schedule(), current.schedule(), day,
+                                current.start(), Math.min(other.end(), current.end()), weeks));
+                    }
+                }
+                active.add(current);
+            }
+        }
+        return clashes;
+    }
+
+    /**
+     * 周次掩码：第w周对应第(w-1)位
+     */
+    public static int weekMask(CourseSchedule schedule) {
+        int weekStart = Math.max(1, schedule.getWeekStart() != null ? schedule.getWeekStart() : 1);
+        int weekEnd = Math.min(TimetableBitmap.WEEKS, schedule.getWeekEnd() != null ? schedule.getWeekEnd() : TimetableBitmap.WEEKS);
+        String weekType = schedule.getWeekType();
+        int mask = 0;
+        for (int week = weekStart; week <= weekEnd; week++) {
+            if ("ODD".equals(weekType) && week % 2 == 0) continue;
+            if ("EVEN".equals(weekType) && week % 2 == 1) continue;
+            mask |= 1 << (week - 1);
+        }
+        return mask;
+    }
+
+    /**
+     * 周次掩码转为文字，如 "1-8,10,12"
+     */
+    public static String weekText(int weekMask) {
+        StringBuilder sb = new StringBuilder();
+        int week = 1;
+        while (week <= TimetableBitmap.WEEKS) {
+            if ((weekMask & (1 << (week - 1))) == 0) {
+                week++;
+                continue;
+            }
+            int end = week;
+            while (end < TimetableBitmap.WEEKS && (weekMask & (1 << end)) != 0) {
+                end++;
+            }
+            if (sb.length() > 0) sb.append(',');
+            sb.append(week);
+            if (end > week) sb.append('-').append(end);
+            week = end + 1;
+        }
+        return sb.toString();
+    }
+}
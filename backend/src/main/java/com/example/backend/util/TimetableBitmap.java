@@ -0,0 +1,204 @@
+package com.example.backend.util;
+
+import com.example.backend.dto.ScheduleDTO;
+import com.example.backend.entity.CourseSchedule;
+
+import java.nio.ByteBuffer;
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * 课表占用位图：周次(1-20) × 星期(1-7) × 节次(1-12)，每个格子占1位
+ * 冲突检测只需逐字(long)做AND，单双周和起止周都已体现在位图里；
+ * 超出第WEEKS周的部分不会写入位图，CourseService保存时间安排时拒绝超出范围的周次
+ */
+public class TimetableBitmap {
+
+    public static final int WEEKS = 20;
+    public static final int DAYS = 7;
+    public static final int SECTIONS = 12;
+
+    private static final int BITS_PER_DAY = SECTIONS;
+    private static final int BITS_PER_WEEK = DAYS * SECTIONS;
+    private static final int WORDS = (WEEKS * BITS_PER_WEEK + 63) / 64;
+
+    private final long[] words;
+
+    public TimetableBitmap() {
+        this.words = new long[WORDS];
+    }
+
+    private TimetableBitmap(long[] words) {
+        this.words = words;
+    }
+
+    public static TimetableBitmap of(Collection<CourseSchedule> schedules) {
+        TimetableBitmap bitmap = new TimetableBitmap();
+        for (CourseSchedule schedule : schedules) {
+            bitmap.add(schedule);
+        }
+        return bitmap;
+    }
+
+    public static TimetableBitmap of(CourseSchedule schedule) {
+        TimetableBitmap bitmap = new TimetableBitmap();
+        bitmap.add(schedule);
+        return bitmap;
+    }
+
+    /**
+     * 将一条时间安排写入位图
+     */
+    public void add(CourseSchedule schedule) {
+        Integer day = schedule.getDayOfWeek();
+        if (day == null || day < 1 || day > DAYS) {
+            return;
+        }
+
+        int[] sections = sectionRange(schedule);
+        if (sections == null) {
+            return;
+        }
+
+        int weekStart = Math.max(1, schedule.getWeekStart() != null ? schedule.getWeekStart() : 1);
+        int weekEnd = Math.min(WEEKS, schedule.getWeekEnd() != null ? schedule.getWeekEnd() : WEEKS);
+        String weekType = schedule.getWeekType();
+
+        for (int week = weekStart; week <= weekEnd; week++) {
+            if ("ODD".equals(weekType) && week % 2 == 0) continue;
+            if ("EVEN".equals(weekType) && week % 2 == 1) continue;
+
+            for (int section = sections[0]; section <= sections[1]; section++) {
+                int bit = bitIndex(week, day, section);
+                words[bit >>> 6] |= 1L << (bit & 63);
+            }
+        }
+    }
+
+    public boolean intersects(TimetableBitmap other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 第一个重叠的格子下标，没有重叠返回-1
+     */
+    public int firstIntersection(TimetableBitmap other) {
+        for (int i = 0; i < WORDS; i++) {
+            long overlap = words[i] & other.words[i];
+            if (overlap != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(overlap);
+            }
+        }
+        return -1;
+    }
+
+    public void or(TimetableBitmap other) {
+        for (int i = 0; i < WORDS; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public void andNot(TimetableBitmap other) {
+        for (int i = 0; i < WORDS; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 有课的星期掩码：第d天有任一格子被占用时第d-1位为1
+     */
+    public int dayMask() {
+        int mask = 0;
+        for (int i = 0; i < WORDS; i++) {
+            long word = words[i];
+            while (word != 0) {
+                int bit = (i << 6) + Long.numberOfTrailingZeros(word);
+                mask |= 1 << (dayOf(bit) - 1);
+                word &= word - 1;
+            }
+        }
+        return mask;
+    }
+
+    public TimetableBitmap copy() {
+        return new TimetableBitmap(words.clone());
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(WORDS * Long.BYTES);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    public static TimetableBitmap fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != WORDS * Long.BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] words = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new TimetableBitmap(words);
+    }
+
+    public static int weekOf(int bit) {
+        return bit / BITS_PER_WEEK + 1;
+    }
+
+    public static int dayOf(int bit) {
+        return bit % BITS_PER_WEEK / BITS_PER_DAY + 1;
+    }
+
+    public static int sectionOf(int bit) {
+        return bit % BITS_PER_DAY + 1;
+    }
+
+    private static int bitIndex(int week, int day, int section) {
+        return (week - 1) * BITS_PER_WEEK + (day - 1) * BITS_PER_DAY + (section - 1);
+    }
+
+    /**
+     * 时间安排占用的节次范围；没有节次信息时按上课时间换算
+     */
+    public static int[] sectionRange(CourseSchedule schedule) {
+        if (schedule.getSectionStart() != null) {
+            int start = Math.max(1, schedule.getSectionStart());
+            int end = Math.min(SECTIONS, schedule.getSectionEnd() != null ? schedule.getSectionEnd() : start);
+            return start <= end ? new int[]{start, end} : null;
+        }
+
+        LocalTime startTime = schedule.getStartTime();
+        LocalTime endTime = schedule.getEndTime();
+        if (startTime == null || endTime == null) {
+            return null;
+        }
+        int start = -1;
+        int end = -1;
+        for (int section = 1; section <= SECTIONS; section++) {
+            // 与节次时间段有交集即视为占用该节
+            if (ScheduleDTO.getSectionStartTime(section).isBefore(endTime)
+                    && ScheduleDTO.getSectionEndTime(section).isAfter(startTime)) {
+                if (start < 0) start = section;
+                end = section;
+            }
+        }
+        return start > 0 ? new int[]{start, end} : null;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.backend.load;
+
+import com.example.backend.entity.Course;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.service.CourseEnrollmentService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 选课日压测：N名学生（虚拟线程）在同一时刻开始，各自抢M门热门课程中的若干门
+ * 输出吞吐量、p50/p95/p99延迟、行锁等待和连接池等待，
+ * 结束后逐门课程核对current_students与选课记录，不一致或超出名额时失败。
+ * 默认不执行：mvn test -P load-test [-Dload.students=5000 -Dload.courses=20 -Dload.seats=100 -Dload.picks=3]
+ */
+@Tag("load")
+@SpringBootTest
+@ActiveProfiles("loadtest")
+@Import(LoadTestStandIns.class)
+class EnrollmentLoadTest {
+
+    private static final int STUDENTS = Integer.getInteger("load.students", 5000);
+    private static final int COURSES = Integer.getInteger("load.courses", 20);
+    private static final int SEATS = Integer.getInteger("load.seats", 100);
+    private static final int PICKS = Integer.getInteger("load.picks", 3);
+
+    // 学生ID和用户ID从较大的值开始，避免与初始化数据冲突
+    private static final long ID_BASE = 1_000_000;
+
+    @Autowired
+    private CourseEnrollmentService enrollmentService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void enrollmentDayRush() throws Exception {
+        List<Long> courseIds = createCourses();
+
+        int total = STUDENTS * PICKS;
+        long[] latencies = new long[total];
+        AtomicInteger recorded = new AtomicInteger();
+        Map<Long, LongAdder> accepted = new ConcurrentHashMap<>();
+        Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+
+        Sampler sampler = new Sampler();
+        Thread samplerThread = Thread.ofPlatform().daemon().start(sampler);
+
+        CountDownLatch gate = new CountDownLatch(1);
+        long start;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < STUDENTS; i++) {
+                long studentId = ID_BASE + i;
+                List<Long> picks = pick(courseIds, new Random(studentId));
+                executor.submit(() -> {
+                    gate.await();
+                    for (Long courseId : picks) {
+                        long begin = System.nanoTime();
+                        try {
+                            enrollmentService.enrollCourse(courseId, studentId, studentId);
+                            accepted.computeIfAbsent(courseId, k -> new LongAdder()).increment();
+                        } catch (RuntimeException e) {
+                            rejected.computeIfAbsent(String.valueOf(e.getMessage()), k -> new LongAdder()).increment();
+                        } finally {
+                            latencies[recorded.getAndIncrement()] = System.nanoTime() - begin;
+                        }
+                    }
+                    return null;
+                });
+            }
+            start = System.nanoTime();
+            gate.countDown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        sampler.stop.set(true);
+        samplerThread.join();
+
+        report(latencies, recorded.get(), elapsedNanos, accepted, rejected, sampler);
+        verify(courseIds, accepted);
+    }
+
+    private List<Long> createCourses() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setCourseCode("LOAD-" + i);
+            course.setCourseName("压测课程" + i);
+            course.setCredit(BigDecimal.valueOf(2));
+            course.setMaxStudents(SEATS);
+            course.setCurrentStudents(0);
+            course.setStatus("ACTIVE");
+            course.setEnrollMode("FCFS");
+            ids.add(courseRepository.save(course).getId());
+        }
+        return ids;
+    }
+
+    // 热门程度按平方分布：编号靠前的课程被更多学生选择
+    private static List<Long> pick(List<Long> courseIds, Random random) {
+        Set<Long> picked = new LinkedHashSet<>();
+        int want = Math.min(PICKS, courseIds.size());
+        while (picked.size() < want) {
+            int index = (int) (Math.pow(random.nextDouble(), 2) * courseIds.size());
+            picked.add(courseIds.get(Math.min(index, courseIds.size() - 1)));
+        }
+        return new ArrayList<>(picked);
+    }
+
+    private void report(long[] latencies, int count, long elapsedNanos, Map<Long, LongAdder> accepted,
+                        Map<String, LongAdder> rejected, Sampler sampler) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        long ok = accepted.values().stream().mapToLong(LongAdder::sum).sum();
+
+        System.out.printf("%n==== 选课压测 students=%d courses=%d seats=%d picks=%d ====%n", STUDENTS, COURSES, SEATS, PICKS);
+        System.out.printf("requests=%d accepted=%d elapsed=%.2fs throughput=%.0f req/s%n", count, ok, seconds, count / seconds);
+        System.out.printf("latency p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0);
+        System.out.printf("row lock waiters peak=%d avg=%.1f; connection pool waiters peak=%d avg=%.1f (%d samples)%n",
+                sampler.lockPeak, sampler.lockAverage(), sampler.poolPeak, sampler.poolAverage(), sampler.samples);
+        rejected.forEach((message, n) -> System.out.printf("rejected %6d  %s%n", n.sum(), message));
+    }
+
+    private void verify(List<Long> courseIds, Map<Long, LongAdder> accepted) {
+        List<String> problems = new ArrayList<>();
+        for (Long courseId : courseIds) {
+            Integer current = jdbcTemplate.queryForObject(
+                    "SELECT current_students FROM courses WHERE id = ?", Integer.class, courseId);
+            Integer rows = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM course_enrollments WHERE course_id = ? AND enrollment_status = 'ENROLLED'",
+                    Integer.class, courseId);
+            long ok = accepted.getOrDefault(courseId, new LongAdder()).sum();
+            if (current == null || current.intValue() != rows) {
+                problems.add("课程" + courseId + " current_students=" + current + " 实际选课记录=" + rows);
+            }
+            if (rows > SEATS) {
+                problems.add("课程" + courseId + " 超卖：选课记录" + rows + " 名额" + SEATS);
+            }
+            if (ok != rows) {
+                problems.add("课程" + courseId + " 成功返回" + ok + "次 实际选课记录=" + rows);
+            }
+        }
+        assertTrue(problems.isEmpty(), String.join("\n", problems));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * 每5ms采样一次：H2中被其他会话阻塞的会话数（行锁等待）和等待连接的线程数
+     */
+    private class Sampler implements Runnable {
+        final AtomicBoolean stop = new AtomicBoolean();
+        long samples;
+        long lockTotal;
+        long lockPeak;
+        long poolTotal;
+        long poolPeak;
+
+        @Override
+        public void run() {
+            HikariDataSource hikari = dataSource instanceof HikariDataSource h ? h : null;
+            while (!stop.get()) {
+                try {
+                    Long blocked = jdbcTemplate.queryForObject(
+                            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL", Long.class);
+                    long waitingLocks = blocked != null ? blocked : 0;
+                    long waitingPool = hikari != null && hikari.getHikariPoolMXBean() != null
+                            ? hikari.getHikariPoolMXBean().getThreadsAwaitingConnection() : 0;
+                    samples++;
+                    lockTotal += waitingLocks;
+                    lockPeak = Math.max(lockPeak, waitingLocks);
+                    poolTotal += waitingPool;
+                    poolPeak = Math.max(poolPeak, waitingPool);
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // 采样失败不影响压测
+                }
+            }
+        }
+
+        double lockAverage() {
+            return samples == 0 ? 0 : (double) lockTotal / samples;
+        }
+
+        double poolAverage() {
+            return samples == 0 ? 0 : (double) poolTotal / samples;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.backend.load;
+
+import com.example.backend.es.CourseAttachmentEsRepository;
+import com.example.backend.es.CourseEsRepository;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压测用的中间件替身
+ * Redis：所有读取都未命中、锁都抢不到、写入直接丢弃，业务代码全部走数据库回源路径；
+ * RabbitMQ：发送即确认，发件箱中继正常标记为已投递；
+ * Elasticsearch：附件和课程索引仓库为空实现。
+ * 替身不记录调用（stubOnly），不会在高并发下成为额外的锁竞争点
+ */
+@TestConfiguration
+public class LoadTestStandIns {
+
+    @Bean
+    @Primary
+    public StringRedisTemplate loadTestRedisTemplate() {
+        return Mockito.mock(StringRedisTemplate.class, Mockito.withSettings().stubOnly().defaultAnswer(new OfflineRedis()));
+    }
+
+    @Bean
+    @Primary
+    public RabbitTemplate loadTestRabbitTemplate() {
+        return Mockito.mock(RabbitTemplate.class, Mockito.withSettings().stubOnly().defaultAnswer(invocation -> {
+            for (Object argument : invocation.getArguments()) {
+                if (argument instanceof CorrelationData correlation) {
+                    correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+                }
+            }
+            return Answers.RETURNS_DEFAULTS.answer(invocation);
+        }));
+    }
+
+    @Bean
+    public CourseAttachmentEsRepository loadTestEsRepository() {
+        return Mockito.mock(CourseAttachmentEsRepository.class, Mockito.withSettings().stubOnly());
+    }
+
+    @Bean
+    public CourseEsRepository loadTestCourseEsRepository() {
+        return Mockito.mock(CourseEsRepository.class, Mockito.withSettings().stubOnly());
+    }
+
+    /**
+     * 模拟不可用的Redis缓存：opsForXxx返回同样行为的替身，multiGet返回等长的null列表，其余按Mockito默认值
+     */
+    private static class OfflineRedis implements Answer<Object> {
+
+        private final Map<Class<?>, Object> operations = new ConcurrentHashMap<>();
+
+        @Override
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+            Class<?> returnType = invocation.getMethod().getReturnType();
+            if (invocation.getMethod().getName().startsWith("opsFor")) {
+                return operations.computeIfAbsent(returnType,
+                        type -> Mockito.mock(type, Mockito.withSettings().stubOnly().defaultAnswer(this)));
+            }
+            if ("multiGet".equals(invocation.getMethod().getName())) {
+                Object keys = invocation.getArguments()[invocation.getArguments().length - 1];
+                List<Object> values = new ArrayList<>();
+                for (int i = 0; i < ((Collection<?>) keys).size(); i++) {
+                    values.add(null);
+                }
+                return values;
+            }
+            if (returnType == Boolean.class) {
+                return Boolean.FALSE;
+            }
+            return Answers.RETURNS_DEFAULTS.answer(invocation);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.CourseDTO;
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseAttachment;
+import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.repository.CourseAttachmentRepository;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 课程列表：未命中缓存时每页执行的SQL条数是常数，与每页大小无关；
+ * 命中后所有学生共用同一份序列化课程页，每次请求只查询已选标记
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CourseService.class, CourseCatalogCacheService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class CourseServiceCatalogTest {
+
+    private static final int COURSES = 40;
+    private static final long STUDENT_ID = 7L;
+
+    @MockitoBean
+    private SeatReservationService seatReservationService;
+
+    @MockitoBean
+    private TimetableService timetableService;
+
+    @MockitoBean
+    private CourseCacheService courseCacheService;
+
+    @MockitoBean
+    private StudentLoadService studentLoadService;
+
+    @MockitoBean
+    private PrerequisiteService prerequisiteService;
+
+    @MockitoBean
+    private CourseSearchService courseSearchService;
+
+    @MockitoBean
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseCatalogCacheService catalogCacheService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseAttachmentRepository attachmentRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> courseIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Redis中没有缓存，写入直接丢弃
+        when(stringRedisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+        catalogCacheService.invalidate();
+
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setCourseCode("CAT-" + i);
+            course.setCourseName("目录课程" + i);
+            course.setMaxStudents(50);
+            course.setCurrentStudents(0);
+            course.setStatus("ACTIVE");
+            Long courseId = courseRepository.save(course).getId();
+            courseIds.add(courseId);
+
+            // 第i门课程有i%4个附件，偶数课程已选
+            for (int j = 0; j < i % 4; j++) {
+                CourseAttachment attachment = new CourseAttachment();
+                attachment.setCourseId(courseId);
+                attachment.setFileName("file" + j + ".pdf");
+                attachment.setFileType("PDF");
+                attachment.setStoragePath("course/" + courseId + "/" + j);
+                attachment.setBucketName("course");
+                attachmentRepository.save(attachment);
+            }
+            if (i % 2 == 0) {
+                CourseEnrollment enrollment = new CourseEnrollment();
+                enrollment.setCourseId(courseId);
+                enrollment.setStudentId(STUDENT_ID);
+                enrollment.setUserId(STUDENT_ID);
+                enrollmentRepository.save(enrollment);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithPageSize() {
+        long small = statementsFor(5);
+        long large = statementsFor(COURSES / 2);
+        assertEquals(small, large, "每页SQL条数随每页大小变化");
+        // 课程分页、总数、附件数量、当前人数、已选标记
+        assertTrue(large <= 5, "每页SQL条数 " + large);
+        // 再次请求同一页时课程页和当前人数都命中缓存，只剩已选标记
+        assertEquals(1, statementsFor(COURSES / 2));
+    }
+
+    @Test
+    void sharedPageAndOverlay() throws Exception {
+        Pageable pageable = PageRequest.of(0, COURSES, Sort.by("id"));
+        CourseCatalogCacheService.SharedPage shared = courseService.getCatalogPage(null, "ACTIVE", pageable);
+        assertSame(shared.json(), courseService.getCatalogPage(null, "ACTIVE", pageable).json(), "缓存的课程页应原样复用");
+
+        CourseCatalogCacheService.CatalogPage page = objectMapper.readValue(shared.json(), CourseCatalogCacheService.CatalogPage.class);
+        assertEquals((long) COURSES, page.totalElements());
+        assertEquals(courseIds, shared.courseIds());
+        for (CourseDTO dto : page.content()) {
+            int i = courseIds.indexOf(dto.getId());
+            assertEquals(i % 4, dto.getAttachmentCount(), "课程" + i);
+            assertNull(dto.getCurrentStudents());
+            assertNull(dto.getEnrolled());
+        }
+
+        Map<String, Object> overlay = courseService.getCatalogOverlay(shared.courseIds(), STUDENT_ID);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < COURSES; i += 2) {
+            expected.add(courseIds.get(i));
+        }
+        assertEquals(expected, overlay.get("enrolledCourseIds"));
+        assertEquals(0, ((Map<?, ?>) overlay.get("currentStudents")).get(courseIds.get(0)));
+
+        assertEquals(List.of(), courseService.getCatalogOverlay(shared.courseIds(), null).get("enrolledCourseIds"));
+    }
+
+    @Test
+    void cursorSliceWalksAllCourses() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        int slices = 0;
+        do {
+            CourseCatalogCacheService.SharedPage shared = courseService.getCatalogSlice(null, "ACTIVE", cursor, 15, slices == 0);
+            CourseCatalogCacheService.CatalogPage page = objectMapper.readValue(shared.json(), CourseCatalogCacheService.CatalogPage.class);
+            if (slices == 0) {
+                assertEquals((long) COURSES, page.totalElements());
+            } else {
+                assertNull(page.totalElements(), "未要求总数时不执行count");
+            }
+            seen.addAll(shared.courseIds());
+            cursor = page.nextCursor();
+            slices++;
+        } while (cursor != null);
+
+        assertEquals(3, slices);
+        // 按创建时间、id倒序，不重复也不遗漏
+        List<Long> expected = new ArrayList<>(courseIds);
+        Collections.reverse(expected);
+        assertEquals(expected, seen);
+    }
+
+    private long statementsFor(int pageSize) {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        // 取第二页，避免只有一页时省略总数查询
+        CourseCatalogCacheService.SharedPage page = courseService.getCatalogPage(null, "ACTIVE",
+                PageRequest.of(1, pageSize, Sort.by("id")));
+        assertEquals(pageSize, page.courseIds().size());
+        courseService.getCatalogOverlay(page.courseIds(), STUDENT_ID);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Course;
+import com.example.backend.entity.CourseEnrollment;
+import com.example.backend.repository.CourseEnrollmentRepository;
+import com.example.backend.repository.CourseRepository;
+import com.example.backend.repository.CourseSeatShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 名额分片并发测试：不超卖，并且吞吐高于单行UPDATE
+ * 每个事务占名额后停留一小段时间，模拟选课事务中后续的插入和校验，行锁在此期间不释放
+ */
+@DataJpaTest(showSql = false)
+@Import(SeatShardService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeatShardServiceTest {
+
+    private static final int CAPACITY = 200;
+    private static final int ATTEMPTS = 240;
+    private static final int THREADS = 8;
+    private static final long HOLD_MILLIS = 10;
+
+    @Autowired
+    private SeatShardService seatShardService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseSeatShardRepository shardRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void shardedCounterDoesNotOversellAndOutperformsSingleRow() throws Exception {
+        Course single = courseRepository.save(course("HOT-ROW"));
+        long rowNanos = run(course -> courseRepository.incrementCurrentStudents(course.getId()) > 0,
+                single, CAPACITY);
+        assertEquals(CAPACITY, courseRepository.findById(single.getId()).orElseThrow().getCurrentStudents());
+
+        Course hot = courseRepository.save(course("HOT-SHARD"));
+        Course sharded = seatShardService.enableSharding(hot.getId(), THREADS);
+        long shardNanos = run(seatShardService::claim, sharded, CAPACITY);
+        assertEquals(CAPACITY, shardRepository.sumUsedByCourseId(hot.getId()));
+        shardRepository.findByCourseIdOrderBySlotAsc(hot.getId())
+                .forEach(shard -> assertTrue(shard.getUsed() <= shard.getCapacity()));
+
+        // 定时汇总写回courses
+        seatShardService.syncShardedCourses();
+        assertEquals(CAPACITY, courseRepository.findById(hot.getId()).orElseThrow().getCurrentStudents());
+
+        assertTrue(shardNanos < rowNanos,
+                "分片耗时 " + shardNanos / 1_000_000 + "ms 应小于单行 " + rowNanos / 1_000_000 + "ms");
+    }
+
+    @Test
+    void claimsNearCapacityWithoutDeadlockOrFalseFull() throws Exception {
+        // 容量小于分片数的几倍，大部分事务会撞上已满或被锁住的分片
+        Course course = course("NEAR-FULL");
+        course.setMaxStudents(20);
+        Course sharded = seatShardService.enableSharding(courseRepository.save(course).getId(), THREADS);
+
+        run(seatShardService::claim, sharded, 20);
+
+        assertEquals(20, shardRepository.sumUsedByCourseId(sharded.getId()));
+        shardRepository.findByCourseIdOrderBySlotAsc(sharded.getId())
+                .forEach(shard -> assertEquals(shard.getCapacity(), shard.getUsed()));
+
+        // 归还后的名额能被重新占用
+        transactionTemplate.executeWithoutResult(status -> seatShardService.release(sharded));
+        assertEquals(19, shardRepository.sumUsedByCourseId(sharded.getId()));
+        run(seatShardService::claim, sharded, 1);
+        assertEquals(20, shardRepository.sumUsedByCourseId(sharded.getId()));
+    }
+
+    @Test
+    void rebuildKeepsEnrolledCountWhenCapacityShrinks() {
+        Course course = courseRepository.save(course("SHRINK"));
+        Course sharded = seatShardService.enableSharding(course.getId(), 4);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(seatShardService.claim(sharded));
+                enrollmentRepository.save(enrollment(course.getId(), i + 1L, "ENROLLED"));
+            }
+            // 已退课的记录不占名额
+            enrollmentRepository.save(enrollment(course.getId(), 100L, "DROPPED"));
+        });
+
+        sharded.setMaxStudents(6);
+        courseRepository.save(sharded);
+        transactionTemplate.executeWithoutResult(status -> seatShardService.rebuild(sharded));
+
+        // 各分片容量之和等于新容量，已选人数按选课记录保留，超出容量的部分不会被丢掉
+        int capacity = shardRepository.findByCourseIdOrderBySlotAsc(course.getId()).stream()
+                .mapToInt(shard -> shard.getCapacity()).sum();
+        assertEquals(6, capacity);
+        assertEquals(10, shardRepository.sumUsedByCourseId(course.getId()));
+        Boolean claimed = transactionTemplate.execute(status -> seatShardService.claim(sharded));
+        assertFalse(claimed, "容量已满时不能再占名额");
+
+        seatShardService.syncShardedCourses();
+        assertEquals(10, courseRepository.findById(course.getId()).orElseThrow().getCurrentStudents());
+    }
+
+    private long run(Predicate<Course> claim, Course course, int expected) throws Exception {
+        AtomicInteger success = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                if (claim.test(course)) {
+                    success.incrementAndGet();
+                    sleep();
+                }
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(expected, success.get());
+        return elapsed;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(HOLD_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CourseEnrollment enrollment(Long courseId, Long studentId, String status) {
+        CourseEnrollment enrollment = new CourseEnrollment();
+        enrollment.setCourseId(courseId);
+        enrollment.setStudentId(studentId);
+        enrollment.setUserId(studentId);
+        enrollment.setEnrollmentStatus(status);
+        return enrollment;
+    }
+
+    private static Course course(String code) {
+        Course course = new Course();
+        course.setCourseCode(code);
+        course.setCourseName(code);
+        course.setMaxStudents(CAPACITY);
+        course.setCurrentStudents(0);
+        return course;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunksTest {
+
+    @Test
+    void splitsIntoFixedSizeChunksWithShorterTail() {
+        List<Long> ids = LongStream.rangeClosed(1, 7).boxed().toList();
+
+        List<List<Long>> chunks = Chunks.of(ids, 3);
+
+        assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L, 5L, 6L), List.of(7L)), chunks);
+    }
+
+    @Test
+    void emptyListHasNoChunks() {
+        assertTrue(Chunks.of(List.of()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> Chunks.of(List.of(1L), 0));
+    }
+}
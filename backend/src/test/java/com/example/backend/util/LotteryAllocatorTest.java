@@ -0,0 +1,145 @@
+package com.example.backend.util;
+
+import com.example.backend.entity.CourseSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LotteryAllocatorTest {
+
+    @Test
+    void respectsSeatsCourseLimitAndConflicts() {
+        Map<Long, TimetableBitmap> bitmaps = new HashMap<>();
+        bitmaps.put(1L, TimetableBitmap.of(schedule(1, 1, 2)));
+        bitmaps.put(2L, TimetableBitmap.of(schedule(1, 2, 3))); // 与课程1冲突
+        bitmaps.put(3L, TimetableBitmap.of(schedule(2, 1, 2)));
+
+        Map<Long, LotteryAllocator.StudentState> students = new HashMap<>();
+        students.put(100L, new LotteryAllocator.StudentState(100L, 1, 2, new TimetableBitmap()));
+        students.put(200L, new LotteryAllocator.StudentState(200L, 2, 1, new TimetableBitmap()));
+
+        List<LotteryAllocator.Preference> preferences = List.of(
+                new LotteryAllocator.Preference(1, 100L, 1L, 1),
+                new LotteryAllocator.Preference(2, 100L, 2L, 2),
+                new LotteryAllocator.Preference(3, 100L, 3L, 3),
+                new LotteryAllocator.Preference(4, 200L, 1L, 1),
+                new LotteryAllocator.Preference(5, 200L, 3L, 2));
+
+        Map<Long, Integer> seats = Map.of(1L, 1, 2L, 10, 3L, 10);
+        List<LotteryAllocator.Preference> accepted = new LotteryAllocator(seats, bitmaps, ForkJoinPool.commonPool())
+                .allocate(students, preferences);
+
+        Set<Long> ids = new HashSet<>();
+        accepted.forEach(p -> ids.add(p.id()));
+        // 学生100签号靠前拿到课程1，课程2冲突跳过，再拿到课程3；学生200落选课程1后拿到课程3
+        assertEquals(Set.of(1L, 3L, 5L), ids);
+    }
+
+    @Test
+    void respectsCreditLimit() {
+        Map<Long, TimetableBitmap> bitmaps = new HashMap<>();
+        bitmaps.put(1L, TimetableBitmap.of(schedule(1, 1, 2)));
+        bitmaps.put(2L, TimetableBitmap.of(schedule(2, 1, 2)));
+        bitmaps.put(3L, TimetableBitmap.of(schedule(3, 1, 2)));
+
+        // 剩余5学分：4学分的课程1录取后，3学分的课程2超出上限，1学分的课程3仍可录取
+        Map<Long, LotteryAllocator.StudentState> students = new HashMap<>();
+        students.put(100L, new LotteryAllocator.StudentState(100L, 1, 10, 500, new TimetableBitmap()));
+
+        List<LotteryAllocator.Preference> preferences = List.of(
+                new LotteryAllocator.Preference(1, 100L, 1L, 1),
+                new LotteryAllocator.Preference(2, 100L, 2L, 2),
+                new LotteryAllocator.Preference(3, 100L, 3L, 3));
+
+        Map<Long, Integer> seats = Map.of(1L, 10, 2L, 10, 3L, 10);
+        Map<Long, Long> credits = Map.of(1L, 400L, 2L, 300L, 3L, 100L);
+        List<LotteryAllocator.Preference> accepted = new LotteryAllocator(seats, bitmaps, credits, ForkJoinPool.commonPool())
+                .allocate(students, preferences);
+
+        Set<Long> ids = new HashSet<>();
+        accepted.forEach(p -> ids.add(p.id()));
+        assertEquals(Set.of(1L, 3L), ids);
+        assertEquals(0, students.get(100L).getRemainingCredits());
+    }
+
+    /**
+     * 2万学生 × 10个志愿：不超名额、不超门数、不冲突，且每个落选的志愿都有原因（课程已满、门数已满或时间冲突）
+     */
+    @Test
+    void allocatesTwentyThousandStudentsWithoutLeavingUsableSeats() {
+        Random random = new Random(11);
+        int courseCount = 400;
+        int studentCount = 20_000;
+
+        Map<Long, TimetableBitmap> bitmaps = new HashMap<>();
+        Map<Long, Integer> seats = new HashMap<>();
+        for (long courseId = 1; courseId <= courseCount; courseId++) {
+            int day = 1 + random.nextInt(5);
+            int start = 1 + random.nextInt(11);
+            bitmaps.put(courseId, TimetableBitmap.of(schedule(day, start, start + 1)));
+            seats.put(courseId, 100 + random.nextInt(300));
+        }
+
+        Map<Long, LotteryAllocator.StudentState> students = new HashMap<>();
+        List<LotteryAllocator.Preference> preferences = new ArrayList<>();
+        long preferenceId = 1;
+        for (long studentId = 1; studentId <= studentCount; studentId++) {
+            students.put(studentId, new LotteryAllocator.StudentState(studentId, random.nextLong(), 5, new TimetableBitmap()));
+            Set<Long> picked = new LinkedHashSet<>();
+            while (picked.size() < 10) {
+                // 热门课程被更多学生选择
+                long courseId = 1 + (long) (Math.pow(random.nextDouble(), 2) * courseCount);
+                picked.add(Math.min(courseCount, courseId));
+            }
+            int rank = 1;
+            for (Long courseId : picked) {
+                preferences.add(new LotteryAllocator.Preference(preferenceId++, studentId, courseId, rank++));
+            }
+        }
+
+        List<LotteryAllocator.Preference> accepted = new LotteryAllocator(seats, bitmaps, ForkJoinPool.commonPool())
+                .allocate(students, preferences);
+
+        Map<Long, Integer> perCourse = new HashMap<>();
+        Map<Long, TimetableBitmap> perStudent = new HashMap<>();
+        for (LotteryAllocator.Preference p : accepted) {
+            perCourse.merge(p.courseId(), 1, Integer::sum);
+            TimetableBitmap timetable = perStudent.computeIfAbsent(p.studentId(), k -> new TimetableBitmap());
+            assertFalse(timetable.intersects(bitmaps.get(p.courseId())), "学生课表冲突");
+            timetable.or(bitmaps.get(p.courseId()));
+        }
+        perCourse.forEach((courseId, count) -> assertTrue(count <= seats.get(courseId), "课程超额"));
+        Map<Long, Integer> perStudentCount = new HashMap<>();
+        accepted.forEach(p -> perStudentCount.merge(p.studentId(), 1, Integer::sum));
+        perStudentCount.values().forEach(count -> assertTrue(count <= 5, "超过选课门数"));
+
+        Set<Long> acceptedIds = new HashSet<>();
+        accepted.forEach(p -> acceptedIds.add(p.id()));
+        assertEquals(accepted.size(), acceptedIds.size(), "同一志愿被重复录取");
+        for (LotteryAllocator.Preference p : preferences) {
+            if (acceptedIds.contains(p.id())) {
+                continue;
+            }
+            boolean courseFull = perCourse.getOrDefault(p.courseId(), 0).equals(seats.get(p.courseId()));
+            boolean studentFull = perStudentCount.getOrDefault(p.studentId(), 0) == 5;
+            TimetableBitmap timetable = perStudent.get(p.studentId());
+            boolean conflict = timetable != null && timetable.intersects(bitmaps.get(p.courseId()));
+            assertTrue(courseFull || studentFull || conflict, "志愿" + p.id() + "落选但仍可录取");
+        }
+        assertEquals(students.values().stream().mapToInt(s -> 5 - s.getRemaining()).sum(), accepted.size());
+    }
+
+    private static CourseSchedule schedule(int day, int sectionStart, int sectionEnd) {
+        CourseSchedule schedule = new CourseSchedule();
+        schedule.setDayOfWeek(day);
+        schedule.setSectionStart(sectionStart);
+        schedule.setSectionEnd(sectionEnd);
+        schedule.setWeekStart(1);
+        schedule.setWeekEnd(16);
+        schedule.setWeekType("ALL");
+        return schedule;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrerequisiteGraphTest {
+
+    @Test
+    void closureIncludesIndirectPrerequisitesAndRejectsCycles() {
+        PrerequisiteGraph graph = new PrerequisiteGraph();
+        // 3需要2，2需要1
+        assertTrue(graph.addEdge(3, 2));
+        assertTrue(graph.addEdge(2, 1));
+
+        assertEquals(List.of(2L), graph.directPrerequisites(3));
+        assertEquals(Set.of(1L, 2L), new HashSet<>(graph.allPrerequisites(3)));
+        assertFalse(graph.addEdge(1, 3));
+        assertFalse(graph.addEdge(1, 1));
+
+        assertEquals(List.of(1L), graph.missing(3, graph.toBits(List.of(2L))));
+        assertTrue(graph.missing(3, graph.toBits(List.of(1L, 2L, 99L))).isEmpty());
+        assertFalse(graph.hasPrerequisites(1));
+    }
+
+    @Test
+    void removingEdgeKeepsPrerequisitesStillReachableAnotherWay() {
+        // 菱形：4需要2和3，2和3都需要1
+        PrerequisiteGraph graph = new PrerequisiteGraph();
+        graph.addEdge(4, 2);
+        graph.addEdge(4, 3);
+        graph.addEdge(2, 1);
+        graph.addEdge(3, 1);
+
+        assertTrue(graph.removeEdge(2, 1));
+        assertEquals(Set.of(1L, 2L, 3L), new HashSet<>(graph.allPrerequisites(4)));
+        assertTrue(graph.allPrerequisites(2).isEmpty());
+
+        graph.removeCourse(3);
+        assertEquals(List.of(2L), graph.allPrerequisites(4));
+        assertFalse(graph.removeEdge(4, 3));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        PrerequisiteGraph graph = new PrerequisiteGraph();
+        graph.addEdge(2, 1);
+        PrerequisiteGraph copy = graph.copy();
+        copy.addEdge(3, 2);
+
+        assertFalse(graph.hasPrerequisites(3));
+        assertEquals(Set.of(1L, 2L), new HashSet<>(copy.allPrerequisites(3)));
+    }
+
+    /**
+     * 随机增删关系，每一步都与逐课程深度优先搜索的结果对比
+     */
+    @Test
+    void matchesNaiveSearchUnderRandomChanges() {
+        Random random = new Random(5);
+        int courses = 40;
+        PrerequisiteGraph graph = new PrerequisiteGraph();
+        Map<Long, Set<Long>> edges = new HashMap<>();
+
+        for (int step = 0; step < 2000; step++) {
+            long course = 1 + random.nextInt(courses);
+            long prerequisite = 1 + random.nextInt(courses);
+            if (random.nextInt(3) == 0) {
+                boolean removed = edges.getOrDefault(course, Set.of()).contains(prerequisite);
+                assertEquals(removed, graph.removeEdge(course, prerequisite));
+                if (removed) {
+                    edges.get(course).remove(prerequisite);
+                }
+            } else {
+                boolean cycle = course == prerequisite || reachable(edges, prerequisite).contains(course);
+                assertEquals(!cycle, graph.addEdge(course, prerequisite));
+                if (!cycle) {
+                    edges.computeIfAbsent(course, k -> new HashSet<>()).add(prerequisite);
+                }
+            }
+            if (step % 50 == 0) {
+                for (long id = 1; id <= courses; id++) {
+                    assertEquals(reachable(edges, id), new HashSet<>(graph.allPrerequisites(id)), "step " + step);
+                }
+            }
+        }
+    }
+
+    private static Set<Long> reachable(Map<Long, Set<Long>> edges, long from) {
+        Set<Long> seen = new HashSet<>();
+        Deque<Long> stack = new ArrayDeque<>(edges.getOrDefault(from, Set.of()));
+        while (!stack.isEmpty()) {
+            long next = stack.pop();
+            if (seen.add(next)) {
+                stack.addAll(edges.getOrDefault(next, Set.of()));
+            }
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.backend.util;
+
+import com.example.backend.entity.CourseSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulePlannerTest {
+
+    @Test
+    void returnsOnlyMaximalConflictFreeCombinations() {
+        // 1和2冲突，3与两者都不冲突
+        List<SchedulePlanner.Candidate> candidates = List.of(
+                candidate(1, 3, schedule(1, 1, 2)),
+                candidate(2, 2, schedule(1, 2, 3)),
+                candidate(3, 4, schedule(3, 1, 2)));
+
+        List<SchedulePlanner.Plan> plans = new SchedulePlanner(candidates, 0, 10, SchedulePlanner.Rank.CREDITS, 10)
+                .plan(ForkJoinPool.commonPool());
+
+        assertEquals(2, plans.size());
+        assertEquals(List.of(1L, 3L), plans.get(0).courseIds());
+        assertEquals(7.0, plans.get(0).credits());
+        assertEquals(List.of(2L, 3L), plans.get(1).courseIds());
+    }
+
+    @Test
+    void freeDaysRankingPrefersCompactWeeks() {
+        List<SchedulePlanner.Candidate> candidates = List.of(
+                candidate(1, 4, schedule(1, 1, 2)),
+                candidate(2, 4, schedule(2, 1, 2)),
+                candidate(3, 1, schedule(1, 3, 4)));
+
+        List<SchedulePlanner.Plan> plans = new SchedulePlanner(candidates, 0, 2, SchedulePlanner.Rank.FREE_DAYS, 1)
+                .plan(ForkJoinPool.commonPool());
+
+        assertEquals(List.of(1L, 3L), plans.get(0).courseIds());
+        assertEquals(4, plans.get(0).freeDays());
+    }
+
+    @Test
+    void respectsRemainingCredits() {
+        // 三门课互不冲突，但剩余学分只够选4+2或3+2
+        List<SchedulePlanner.Candidate> candidates = List.of(
+                candidate(1, 4, schedule(1, 1, 2)),
+                candidate(2, 3, schedule(2, 1, 2)),
+                candidate(3, 2, schedule(3, 1, 2)));
+
+        List<SchedulePlanner.Plan> plans = new SchedulePlanner(candidates, 0, 10, 6, SchedulePlanner.Rank.CREDITS, 10)
+                .plan(ForkJoinPool.commonPool());
+
+        assertEquals(List.of(List.of(1L, 3L), List.of(2L, 3L)), plans.stream().map(SchedulePlanner.Plan::courseIds).toList());
+        assertTrue(plans.stream().allMatch(plan -> plan.credits() <= 6));
+    }
+
+    /**
+     * 与暴力枚举全部子集对比：前K个方案完全一致
+     */
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 30; round++) {
+                int n = 6 + random.nextInt(12);
+                List<SchedulePlanner.Candidate> candidates = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    int day = 1 + random.nextInt(5);
+                    int start = 1 + random.nextInt(10);
+                    candidates.add(candidate(i + 1, 1 + random.nextInt(4), schedule(day, start, start + 1)));
+                }
+                int maxCourses = 3 + random.nextInt(5);
+                double maxCredits = round % 2 == 0 ? Double.POSITIVE_INFINITY : 4 + random.nextInt(9);
+                for (SchedulePlanner.Rank rank : SchedulePlanner.Rank.values()) {
+                    List<SchedulePlanner.Plan> expected = bruteForce(candidates, maxCourses, maxCredits, rank, 5);
+                    List<SchedulePlanner.Plan> actual = new SchedulePlanner(candidates, 0, maxCourses, maxCredits, rank, 5)
+                            .plan(pool);
+                    assertEquals(expected, actual, "round " + round + " " + rank);
+                }
+            }
+
+            List<SchedulePlanner.Candidate> large = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                int day = 1 + random.nextInt(5);
+                int start = 1 + random.nextInt(10);
+                large.add(candidate(i + 1, 1 + random.nextInt(4), schedule(day, start, start + 1)));
+            }
+            List<SchedulePlanner.Plan> plans = new SchedulePlanner(large, 0, 8, SchedulePlanner.Rank.CREDITS, 10).plan(pool);
+            List<SchedulePlanner.Plan> expected = bruteForce(large, 8, Double.POSITIVE_INFINITY, SchedulePlanner.Rank.CREDITS, 10);
+            assertEquals(expected, plans);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<SchedulePlanner.Plan> bruteForce(List<SchedulePlanner.Candidate> candidates, int maxCourses,
+                                                         double maxCredits, SchedulePlanner.Rank rank, int topK) {
+        int n = candidates.size();
+        List<SchedulePlanner.Plan> valid = new ArrayList<>();
+        for (int mask = 1; mask < 1 << n; mask++) {
+            if (Integer.bitCount(mask) > maxCourses || credits(candidates, mask) > maxCredits
+                    || !conflictFree(candidates, mask)) {
+                continue;
+            }
+            boolean maximal = true;
+            for (int j = 0; j < n && Integer.bitCount(mask) < maxCourses; j++) {
+                if ((mask & 1 << j) == 0 && credits(candidates, mask | 1 << j) <= maxCredits
+                        && conflictFree(candidates, mask | 1 << j)) {
+                    maximal = false;
+                    break;
+                }
+            }
+            if (!maximal) {
+                continue;
+            }
+            List<Long> ids = new ArrayList<>();
+            double credits = 0;
+            int days = 0;
+            for (int j = 0; j < n; j++) {
+                if ((mask & 1 << j) != 0) {
+                    ids.add(candidates.get(j).courseId());
+                    credits += candidates.get(j).credits();
+                    days |= candidates.get(j).dayMask();
+                }
+            }
+            Collections.sort(ids);
+            valid.add(new SchedulePlanner.Plan(ids, credits, SchedulePlanner.freeDays(days)));
+        }
+
+        Comparator<SchedulePlanner.Plan> byCredits = Comparator.comparingDouble(SchedulePlanner.Plan::credits).reversed();
+        Comparator<SchedulePlanner.Plan> byFreeDays = Comparator.comparingInt(SchedulePlanner.Plan::freeDays).reversed();
+        Comparator<SchedulePlanner.Plan> order = rank == SchedulePlanner.Rank.CREDITS
+                ? byCredits.thenComparing(byFreeDays) : byFreeDays.thenComparing(byCredits);
+        order = order.thenComparing(SchedulePlanner.Plan::courseIds, (a, b) -> {
+            for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+                int c = Long.compare(a.get(i), b.get(i));
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(a.size(), b.size());
+        });
+        valid.sort(order);
+        return valid.subList(0, Math.min(topK, valid.size()));
+    }
+
+    private static double credits(List<SchedulePlanner.Candidate> candidates, int mask) {
+        double credits = 0;
+        for (int j = 0; j < candidates.size(); j++) {
+            if ((mask & 1 << j) != 0) {
+                credits += candidates.get(j).credits();
+            }
+        }
+        return credits;
+    }
+
+    private static boolean conflictFree(List<SchedulePlanner.Candidate> candidates, int mask) {
+        TimetableBitmap union = new TimetableBitmap();
+        for (int j = 0; j < candidates.size(); j++) {
+            if ((mask & 1 << j) != 0) {
+                if (candidates.get(j).bitmap().intersects(union)) {
+                    return false;
+                }
+                union.or(candidates.get(j).bitmap());
+            }
+        }
+        return true;
+    }
+
+    private static SchedulePlanner.Candidate candidate(long id, double credits, CourseSchedule schedule) {
+        return new SchedulePlanner.Candidate(id, credits, TimetableBitmap.of(schedule), 1 << (schedule.getDayOfWeek() - 1));
+    }
+
+    private static CourseSchedule schedule(int day, int sectionStart, int sectionEnd) {
+        CourseSchedule schedule = new CourseSchedule();
+        schedule.setDayOfWeek(day);
+        schedule.setSectionStart(sectionStart);
+        schedule.setSectionEnd(sectionEnd);
+        schedule.setWeekStart(1);
+        schedule.setWeekEnd(18);
+        schedule.setWeekType("ALL");
+        return schedule;
+    }
+}
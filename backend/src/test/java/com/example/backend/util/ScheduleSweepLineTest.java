@@ -0,0 +1,96 @@
+package com.example.backend.util;
+
+import com.example.backend.entity.CourseSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleSweepLineTest {
+
+    @Test
+    void reportsEveryClashInsteadOfTheFirst() {
+        ScheduleSweepLine sweepLine = new ScheduleSweepLine();
+        sweepLine.add(schedule(1L, 1, 1, 2, 1, 18, "ALL"), false);
+        sweepLine.add(schedule(2L, 3, 5, 6, 1, 18, "ALL"), false);
+        sweepLine.add(schedule(10L, 1, 2, 3, 1, 18, "ALL"), true);
+        sweepLine.add(schedule(11L, 3, 6, 7, 1, 18, "ODD"), true);
+        sweepLine.add(schedule(12L, 3, 6, 6, 1, 18, "EVEN"), true);
+
+        List<ScheduleSweepLine.Clash> clashes = sweepLine.findClashes();
+        // 10-1（周一第2节）、11-2、12-2（周三第6节）；11与12单双周不重叠
+        assertEquals(3, clashes.size());
+
+        ScheduleSweepLine.Clash monday = clashes.get(0);
+        assertEquals(1, monday.dayOfWeek());
+        assertEquals(2, monday.sectionStart());
+        assertEquals(2, monday.sectionEnd());
+    }
+
+    @Test
+    void existingCoursesAreNotReportedAgainstEachOther() {
+        ScheduleSweepLine sweepLine = new ScheduleSweepLine();
+        sweepLine.add(schedule(1L, 2, 1, 2, 1, 18, "ALL"), false);
+        sweepLine.add(schedule(2L, 2, 1, 2, 1, 18, "ALL"), false);
+
+        assertTrue(sweepLine.findClashes().isEmpty());
+    }
+
+    @Test
+    void weekTextCompressesRanges() {
+        int mask = ScheduleSweepLine.weekMask(schedule(1L, 1, 1, 1, 1, 8, "ALL"))
+                | ScheduleSweepLine.weekMask(schedule(1L, 1, 1, 1, 10, 14, "EVEN"));
+        assertEquals("1-8,10,12,14", ScheduleSweepLine.weekText(mask));
+    }
+
+    /**
+     * 与两两比较的结果一致
+     */
+    @Test
+    void matchesPairwiseComparison() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<CourseSchedule> schedules = new ArrayList<>();
+            List<Boolean> candidates = new ArrayList<>();
+            ScheduleSweepLine sweepLine = new ScheduleSweepLine();
+            for (int i = 0; i < 15; i++) {
+                int start = 1 + random.nextInt(12);
+                int weekStart = 1 + random.nextInt(10);
+                String weekType = new String[]{"ALL", "ODD", "EVEN"}[random.nextInt(3)];
+                CourseSchedule schedule = schedule((long) i, 1 + random.nextInt(3), start,
+                        Math.min(12, start + random.nextInt(3)), weekStart, weekStart + random.nextInt(10), weekType);
+                boolean candidate = random.nextBoolean();
+                schedules.add(schedule);
+                candidates.add(candidate);
+                sweepLine.add(schedule, candidate);
+            }
+
+            int expected = 0;
+            for (int i = 0; i < schedules.size(); i++) {
+                for (int j = i + 1; j < schedules.size(); j++) {
+                    if ((candidates.get(i) || candidates.get(j))
+                            && TimetableBitmap.of(schedules.get(i)).intersects(TimetableBitmap.of(schedules.get(j)))) {
+                        expected++;
+                    }
+                }
+            }
+            assertEquals(expected, sweepLine.findClashes().size());
+        }
+    }
+
+    private static CourseSchedule schedule(Long courseId, int day, int sectionStart, int sectionEnd,
+                                           int weekStart, int weekEnd, String weekType) {
+        CourseSchedule schedule = new CourseSchedule();
+        schedule.setCourseId(courseId);
+        schedule.setDayOfWeek(day);
+        schedule.setSectionStart(sectionStart);
+        schedule.setSectionEnd(sectionEnd);
+        schedule.setWeekStart(weekStart);
+        schedule.setWeekEnd(weekEnd);
+        schedule.setWeekType(weekType);
+        return schedule;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.backend.util;
+
+import com.example.backend.entity.CourseSchedule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimetableBitmapTest {
+
+    @Test
+    void oddAndEvenWeeksDoNotConflict() {
+        TimetableBitmap odd = TimetableBitmap.of(schedule(1, 1, 2, 1, 18, "ODD"));
+        TimetableBitmap even = TimetableBitmap.of(schedule(1, 1, 2, 1, 18, "EVEN"));
+        TimetableBitmap all = TimetableBitmap.of(schedule(1, 2, 3, 1, 18, "ALL"));
+
+        assertFalse(odd.intersects(even));
+        assertTrue(odd.intersects(all));
+        assertTrue(even.intersects(all));
+    }
+
+    @Test
+    void disjointWeekRangesDoNotConflict() {
+        TimetableBitmap firstHalf = TimetableBitmap.of(schedule(3, 5, 6, 1, 8, "ALL"));
+        TimetableBitmap secondHalf = TimetableBitmap.of(schedule(3, 5, 6, 9, 16, "ALL"));
+
+        assertFalse(firstHalf.intersects(secondHalf));
+    }
+
+    @Test
+    void firstIntersectionReportsWeekDayAndSection() {
+        TimetableBitmap a = TimetableBitmap.of(schedule(4, 3, 4, 5, 10, "ALL"));
+        TimetableBitmap b = TimetableBitmap.of(schedule(4, 4, 5, 7, 12, "ALL"));
+
+        int bit = a.firstIntersection(b);
+        assertEquals(7, TimetableBitmap.weekOf(bit));
+        assertEquals(4, TimetableBitmap.dayOf(bit));
+        assertEquals(4, TimetableBitmap.sectionOf(bit));
+    }
+
+    @Test
+    void timeOnlyScheduleIsMappedToSections() {
+        CourseSchedule timeOnly = schedule(2, null, null, 1, 18, "ALL");
+        timeOnly.setStartTime(LocalTime.of(10, 30));
+        timeOnly.setEndTime(LocalTime.of(11, 20));
+
+        assertArrayEquals(new int[]{3, 4}, TimetableBitmap.sectionRange(timeOnly));
+        assertTrue(TimetableBitmap.of(timeOnly).intersects(TimetableBitmap.of(schedule(2, 4, 4, 1, 18, "ALL"))));
+    }
+
+    @Test
+    void dayMaskMarksOccupiedDays() {
+        TimetableBitmap bitmap = TimetableBitmap.of(schedule(1, 1, 2, 1, 18, "ALL"));
+        bitmap.or(TimetableBitmap.of(schedule(7, 11, 12, 20, 20, "ALL")));
+        assertEquals(0b1000001, bitmap.dayMask());
+        assertEquals(0, new TimetableBitmap().dayMask());
+    }
+
+    @Test
+    void orAndNotRoundTripThroughBytes() {
+        TimetableBitmap student = TimetableBitmap.of(schedule(1, 1, 2, 1, 18, "ALL"));
+        TimetableBitmap course = TimetableBitmap.of(schedule(5, 9, 10, 1, 18, "ODD"));
+
+        student.or(course);
+        TimetableBitmap restored = TimetableBitmap.fromBytes(student.toBytes());
+        assertNotNull(restored);
+        assertTrue(restored.intersects(course));
+
+        restored.andNot(course);
+        assertFalse(restored.intersects(course));
+        assertFalse(restored.isEmpty());
+    }
+
+    /**
+     * 随机课表上与原有嵌套循环的冲突判断结果一致
+     */
+    @Test
+    void matchesNestedLoopOnRandomSchedules() {
+        Random random = new Random(42);
+        int conflicts = 0;
+        for (int size = 10; size <= 30; size += 10) {
+            for (int i = 0; i < 200; i++) {
+                List<CourseSchedule> student = randomSchedules(random, size);
+                List<CourseSchedule> candidate = randomSchedules(random, 2);
+                boolean expected = nestedLoopConflict(candidate, student);
+                assertEquals(expected, TimetableBitmap.of(candidate).intersects(TimetableBitmap.of(student)));
+                if (expected) {
+                    conflicts++;
+                }
+            }
+        }
+        // 两种结果都要覆盖到
+        assertTrue(conflicts > 0 && conflicts < 600, "冲突数 " + conflicts);
+    }
+
+    /**
+     * 与原有嵌套循环对比10-30条时间安排下的耗时，结果必须一致
+     * 默认不执行：mvn test -P load-test -Dtest=TimetableBitmapTest
+     */
+    @Tag("load")
+    @Test
+    void benchmarkAgainstNestedLoop() {
+        Random random = new Random(42);
+        int iterations = 20_000;
+
+        for (int size = 10; size <= 30; size += 10) {
+            List<List<CourseSchedule>> students = new ArrayList<>();
+            List<List<CourseSchedule>> candidates = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                students.add(randomSchedules(random, size));
+                candidates.add(randomSchedules(random, 2));
+            }
+
+            List<TimetableBitmap> studentBitmaps = students.stream().map(TimetableBitmap::of).toList();
+            List<TimetableBitmap> candidateBitmaps = candidates.stream().map(TimetableBitmap::of).toList();
+
+            // 预热
+            for (int n = 0; n < iterations; n++) {
+                int i = n % students.size();
+                nestedLoopConflict(candidates.get(i), students.get(i));
+                candidateBitmaps.get(i).intersects(studentBitmaps.get(i));
+            }
+
+            long loopHits = 0;
+            long start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                int i = n % students.size();
+                if (nestedLoopConflict(candidates.get(i), students.get(i))) loopHits++;
+            }
+            long loopNanos = System.nanoTime() - start;
+
+            long bitmapHits = 0;
+            start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                int i = n % students.size();
+                if (candidateBitmaps.get(i).intersects(studentBitmaps.get(i))) bitmapHits++;
+            }
+            long bitmapNanos = System.nanoTime() - start;
+
+            assertEquals(loopHits, bitmapHits);
+            System.out.printf("schedules=%d nested-loop=%dns/op bitmap=%dns/op%n",
+                    size, loopNanos / iterations, bitmapNanos / iterations);
+        }
+    }
+
+    // 原 CourseEnrollmentService.checkScheduleConflict 的节次比较逻辑
+    private static boolean nestedLoopConflict(List<CourseSchedule> newSchedules, List<CourseSchedule> enrolled) {
+        for (CourseSchedule newSch : newSchedules) {
+            for (CourseSchedule existSch : enrolled) {
+                if (newSch.getDayOfWeek().equals(existSch.getDayOfWeek())) {
+                    int newStart = newSch.getSectionStart();
+                    int newEnd = newSch.getSectionEnd();
+                    int existStart = existSch.getSectionStart();
+                    int existEnd = existSch.getSectionEnd();
+                    if (!(newEnd < existStart || newStart > existEnd)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<CourseSchedule> randomSchedules(Random random, int count) {
+        List<CourseSchedule> schedules = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int start = 1 + random.nextInt(12);
+            int end = Math.min(12, start + random.nextInt(2));
+            schedules.add(schedule(1 + random.nextInt(7), start, end, 1, 18, "ALL"));
+        }
+        return schedules;
+    }
+
+    private static CourseSchedule schedule(int day, Integer sectionStart, Integer sectionEnd,
+                                           int weekStart, int weekEnd, String weekType) {
+        CourseSchedule schedule = new CourseSchedule();
+        schedule.setDayOfWeek(day);
+        schedule.setSectionStart(sectionStart);
+        schedule.setSectionEnd(sectionEnd);
+        schedule.setWeekStart(weekStart);
+        schedule.setWeekEnd(weekEnd);
+        schedule.setWeekType(weekType);
+        return schedule;
+    }
+}
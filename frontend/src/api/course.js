@@ -1,8 +1,20 @@
 import request from './request'
 
-// 获取课程列表
+// 获取课程列表（课程页为公共数据，当前人数和已选标记在overlay中单独返回，这里合并到每门课程上）
 export function getCourses(params) {
-  return request.get('/courses', { params })
+  return request.get('/courses', { params }).then(mergeCatalogOverlay)
+}
+
+function mergeCatalogOverlay(res) {
+  const overlay = res.data.overlay
+  if (res.data.success && overlay) {
+    const enrolled = new Set(overlay.enrolledCourseIds)
+    for (const course of res.data.data.content) {
+      course.currentStudents = overlay.currentStudents[course.id] ?? null
+      course.enrolled = enrolled.has(course.id)
+    }
+  }
+  return res
 }
 
 // 获取课程详情
@@ -10,6 +22,11 @@ export function getCourseDetail(id) {
   return request.get(`/courses/${id}`)
 }
 
+// 获取课程的先修课程
+export function getCoursePrerequisites(id) {
+  return request.get(`/courses/${id}/prerequisites`)
+}
+
 // 创建课程
 export function createCourse(data) {
   return request.post('/courses', data)
@@ -65,14 +82,49 @@ export function searchAttachments(params) {
   return request.get('/attachments/search', { params })
 }
 
+// 选课/退课类操作的幂等key：同一操作（方法、路径和请求体相同）在得到明确结果前复用同一个key，
+// 用户重复点击、超时后重试都会被服务端识别为同一次操作；收到响应后才为下一次操作生成新key
+const pendingActionKeys = new Map()
+
+function newIdempotencyKey() {
+  return typeof crypto !== 'undefined' && crypto.randomUUID
+    ? crypto.randomUUID()
+    : Date.now().toString(36) + Math.random().toString(36).slice(2)
+}
+
+function idempotentRequest(method, url, data) {
+  const action = `${method} ${url} ${JSON.stringify(data ?? null)}`
+  let key = pendingActionKeys.get(action)
+  if (!key) {
+    key = newIdempotencyKey()
+    pendingActionKeys.set(action, key)
+  }
+  const config = { headers: { 'Idempotency-Key': key } }
+  const promise = method === 'delete' ? request.delete(url, config) : request.post(url, data, config)
+  return promise.then(
+    res => {
+      pendingActionKeys.delete(action)
+      return res
+    },
+    error => {
+      // 网络错误（结果未知）或首次请求仍在处理中（409）时保留key，再次点击仍是同一次操作
+      const status = error.response?.status
+      if (status !== undefined && status !== 409) {
+        pendingActionKeys.delete(action)
+      }
+      return Promise.reject(error)
+    }
+  )
+}
+
 // 选课
 export function enrollCourse(courseId) {
-  return request.post('/enrollments', { courseId })
+  return idempotentRequest('post', '/enrollments', { courseId })
 }
 
 // 退课
 export function dropCourse(enrollmentId) {
-  return request.delete(`/enrollments/${enrollmentId}`)
+  return idempotentRequest('delete', `/enrollments/${enrollmentId}`)
 }
 
 // 获取我的选课列表
@@ -80,6 +132,11 @@ export function getMyEnrollments() {
   return request.get('/enrollments/my')
 }
 
+// 成绩单（含往届归档的课程）
+export function getTranscript() {
+  return request.get('/enrollments/transcript')
+}
+
 // 获取课程日历数据
 export function getCalendarEvents(startDate, endDate) {
   return request.get('/enrollments/calendar', {
@@ -91,3 +148,58 @@ export function getCalendarEvents(startDate, endDate) {
 export function reindexAttachments(force = false) {
   return request.post('/attachments/reindex', null, { params: { force } })
 }
+
+// 异步选课（排队）
+export function enrollCourseAsync(courseId) {
+  return request.post('/enrollments/async', { courseId })
+}
+
+// 查询异步选课结果
+export function getEnrollmentTicket(ticketId) {
+  return request.get(`/enrollments/tickets/${ticketId}`)
+}
+
+// 换课：退掉fromCourseId并选上toCourseId
+export function swapCourse(fromCourseId, toCourseId) {
+  return idempotentRequest('post', '/enrollments/swap', { fromCourseId, toCourseId })
+}
+
+// 排课方案：根据意向课程给出互不冲突的选课组合（sort: credits | freeDays）
+export function planSchedule(courseIds, sort = 'credits', limit = 10) {
+  return request.post('/enrollments/plan', { courseIds, sort, limit })
+}
+
+// 批量选课
+export function enrollCourses(courseIds) {
+  return idempotentRequest('post', '/enrollments/batch', { courseIds })
+}
+
+// 加入候补
+export function joinWaitlist(courseId) {
+  return request.post('/enrollments/waitlist', { courseId })
+}
+
+// 退出候补
+export function leaveWaitlist(courseId) {
+  return request.delete(`/enrollments/waitlist/${courseId}`)
+}
+
+// 获取我的候补
+export function getMyWaitlist() {
+  return request.get('/enrollments/waitlist')
+}
+
+// 选课冲突预览
+export function getEnrollmentConflicts(courseIds) {
+  return request.get('/enrollments/conflicts', { params: { courseIds: courseIds.join(',') } })
+}
+
+// 填报抽签志愿（按志愿顺序）
+export function submitPreferences(courseIds) {
+  return request.put('/enrollments/preferences', { courseIds })
+}
+
+// 我的抽签志愿及结果
+export function getMyPreferences() {
+  return request.get('/enrollments/preferences')
+}
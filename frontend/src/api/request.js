@@ -36,6 +36,9 @@ request.interceptors.response.use(
         case 403:
           ElMessage.error('权限不足')
           break
+        case 429:
+          ElMessage.warning(error.response.data.message || '当前选课人数过多，请稍后再试')
+          break
         case 500:
           ElMessage.error('服务器错误')
           break